@@ -16,6 +16,8 @@
  */
 package uk.me.parabola.imgfmt.app;
 
+import java.util.Arrays;
+
 import uk.me.parabola.log.Logger;
 
 /**
@@ -43,6 +45,22 @@ public class BitWriter {
 		buf = new byte[bufsize];
 	}
 
+	/**
+	 * Clear the writer so that it can be used for a new bit stream.
+	 * @param size the expected length in bytes, the buffer is enlarged
+	 * if it can't hold it
+	 */
+	public void reset(int size) {
+		if (size >= bufsize) {
+			bufsize = size + 1;
+			buf = new byte[bufsize];
+		} else {
+			Arrays.fill(buf, 0, buflen, (byte) 0);
+		}
+		buflen = 0;
+		bitoff = 0;
+	}
+
 	/**
 	 * Put exactly one bit into the buffer.
 	 *
@@ -189,6 +189,14 @@ public class Coord implements Comparable<Coord> {
 	public void resetHighwayCount() {
 		highwayCount = 0;
 	}
+
+	/**
+	 * @return true if no flag, highway count or distance was set for this point,
+	 * so it can be replaced by a new instance with the same position.
+	 */
+	boolean isPlain() {
+		return flags == 0 && highwayCount == 0 && approxDistanceToDisplayedCoord < 0;
+	}
 	
 	public boolean getOnBoundary() {
 		return (flags & ON_BOUNDARY_MASK) != 0;
@@ -362,10 +370,15 @@ public class Coord implements Comparable<Coord> {
 	}
 	
 	/**
+	 * The flags are not written when the value doesn't change, the house
+	 * number processing of different streets may run concurrently and uses
+	 * this for the shared nodes.
 	 * @param b true or false
 	 */
 	public void setNumberNode(boolean b) {
-		if (b) 
+		if (b == isNumberNode())
+			return;
+		if (b)
 			this.flags |= HOUSENUMBER_NODE;
 		else 
 			this.flags &= ~HOUSENUMBER_NODE; 
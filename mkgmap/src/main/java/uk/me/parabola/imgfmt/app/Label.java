@@ -69,6 +69,17 @@ public class Label {
 		return text;
 	}
 
+	/**
+	 * Get the text as a reader of the LBL file would decode it. Labels that
+	 * were created for writing only hold the characters that were encoded.
+	 * @return the text, an empty string for an empty label
+	 */
+	public String getDecodedText() {
+		if (encText != null)
+			return new String(encText);
+		return text != null ? text : "";
+	}
+
 	public char[] getEncText() {
 		return encText;
 	}
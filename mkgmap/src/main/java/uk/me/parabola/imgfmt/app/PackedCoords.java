@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, read-only form of a list of points. The positions are stored
+ * in high precision in two int arrays, new {@link Coord} instances are
+ * created when the list is unpacked.
+ *
+ * Points that can't simply be replaced by a new instance are kept in a
+ * small side table: points with flags or a highway count, subclasses
+ * like {@link CoordNode} and points that appear more than once in the list.
+ * The caller must make sure that the other points are not used elsewhere,
+ * because they lose their identity. This is the case for the lines and
+ * shapes of the overview map, which are read from the tiles. Ways and the
+ * elements of a tile share their points, so they are not packed.
+ */
+public class PackedCoords {
+	private final int[] latHp;
+	private final int[] lonHp;
+
+	// indexes of the points that are kept as objects, in ascending order
+	private final int[] keptIndexes;
+	private final Coord[] kept;
+
+	private PackedCoords(int[] latHp, int[] lonHp, int[] keptIndexes, Coord[] kept) {
+		this.latHp = latHp;
+		this.lonHp = lonHp;
+		this.keptIndexes = keptIndexes;
+		this.kept = kept;
+	}
+
+	/**
+	 * @param points the points to pack
+	 * @return the packed points
+	 */
+	public static PackedCoords pack(List<Coord> points) {
+		int n = points.size();
+		Map<Coord, Integer> counts = new IdentityHashMap<>(n);
+		for (Coord co : points)
+			counts.merge(co, 1, Integer::sum);
+
+		int[] latHp = new int[n];
+		int[] lonHp = new int[n];
+		boolean[] keep = new boolean[n];
+		int numKept = 0;
+		for (int i = 0; i < n; i++) {
+			Coord co = points.get(i);
+			latHp[i] = co.getHighPrecLat();
+			lonHp[i] = co.getHighPrecLon();
+			if (counts.get(co) > 1 || !isReplaceable(co)) {
+				keep[i] = true;
+				numKept++;
+			}
+		}
+
+		int[] keptIndexes = new int[numKept];
+		Coord[] kept = new Coord[numKept];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (keep[i]) {
+				keptIndexes[k] = i;
+				kept[k++] = points.get(i);
+			}
+		}
+		return new PackedCoords(latHp, lonHp, keptIndexes, kept);
+	}
+
+	/**
+	 * A point can be replaced if a new instance created from the high
+	 * precision position is identical in every respect.
+	 */
+	private static boolean isReplaceable(Coord co) {
+		if (co.getClass() != Coord.class || !co.isPlain())
+			return false;
+		Coord test = Coord.makeHighPrecCoord(co.getHighPrecLat(), co.getHighPrecLon());
+		return test.getLatitude() == co.getLatitude() && test.getLongitude() == co.getLongitude();
+	}
+
+	public int size() {
+		return latHp.length;
+	}
+
+	/**
+	 * @return a new modifiable list with the points
+	 */
+	public List<Coord> unpack() {
+		int n = latHp.length;
+		List<Coord> points = new ArrayList<>(n);
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			if (k < keptIndexes.length && keptIndexes[k] == i) {
+				points.add(kept[k++]);
+			} else {
+				points.add(Coord.makeHighPrecCoord(latHp[i], lonHp[i]));
+			}
+		}
+		return points;
+	}
+
+	@Override
+	public String toString() {
+		return "PackedCoords [" + size() + " points, " + kept.length + " kept]";
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.labelenc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of encoded label texts that is shared by all maps that are built
+ * in the same run. The same names appear in many tiles, so most of them only
+ * have to be transliterated and encoded once.
+ *
+ * The key is the text together with a description of the encoder, so maps
+ * with different character sets can be built at the same time. The encoded
+ * text is immutable, so it can be shared by all threads.
+ *
+ * The cache is bounded, it is simply emptied when it is full.
+ */
+public class EncodedTextCache {
+	private static final int MAX_SIZE = 100_000;
+
+	private static final Map<Key, EncodedText> cache = new ConcurrentHashMap<>();
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+
+	private EncodedTextCache() {
+	}
+
+	/**
+	 * Encode a text, or return the result of an earlier call.
+	 * @param encoder The encoder that is used when the text is not in the cache.
+	 * @param config Describes the encoder, all encoders with the same description
+	 * must give the same result.
+	 * @param text The text to encode.
+	 * @return The encoded text.
+	 */
+	public static EncodedText encode(CharacterEncoder encoder, String config, String text) {
+		if (text == null || text.isEmpty())
+			return encoder.encodeText(text);
+
+		Key key = new Key(config, text);
+		EncodedText et = cache.get(key);
+		if (et != null) {
+			hits.increment();
+			return et;
+		}
+		misses.increment();
+		et = encoder.encodeText(text);
+		if (cache.size() >= MAX_SIZE)
+			cache.clear();
+		cache.put(key, et);
+		return et;
+	}
+
+	public static long getHits() {
+		return hits.sum();
+	}
+
+	public static long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return A short description of the cache statistics for the log.
+	 */
+	public static String getStats() {
+		long h = getHits();
+		long total = h + getMisses();
+		return String.format("label encoding cache: %d lookups, %d hits (%.1f%%), %d entries",
+				total, h, total == 0 ? 0.0 : 100.0 * h / total, cache.size());
+	}
+
+	static void clear() {
+		cache.clear();
+		hits.reset();
+		misses.reset();
+	}
+
+	private static class Key {
+		private final String config;
+		private final String text;
+		private final int hashCode;
+
+		Key(String config, String text) {
+			this.config = config;
+			this.text = text;
+			this.hashCode = 31 * config.hashCode() + text.hashCode();
+		}
+
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key that = (Key) o;
+			return hashCode == that.hashCode && text.equals(that.text) && config.equals(that.config);
+		}
+
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
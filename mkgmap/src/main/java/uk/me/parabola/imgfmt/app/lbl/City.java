@@ -103,6 +103,13 @@ public class City {
 		this.subdivision = subdivision;
 	}
 
+	/**
+	 * @return true if the city is given by an indexed point instead of a label
+	 */
+	public boolean isPointRef() {
+		return pointRef;
+	}
+
 	public String getName() {
 		return label == null ? "" : label.getText();
 	}
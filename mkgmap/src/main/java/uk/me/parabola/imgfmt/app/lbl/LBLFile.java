@@ -17,6 +17,7 @@
 package uk.me.parabola.imgfmt.app.lbl;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import uk.me.parabola.imgfmt.MapFailedException;
@@ -30,6 +31,7 @@ import uk.me.parabola.imgfmt.app.labelenc.BaseEncoder;
 import uk.me.parabola.imgfmt.app.labelenc.CharacterEncoder;
 import uk.me.parabola.imgfmt.app.labelenc.CodeFunctions;
 import uk.me.parabola.imgfmt.app.labelenc.EncodedText;
+import uk.me.parabola.imgfmt.app.labelenc.EncodedTextCache;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.imgfmt.app.trergn.Subdivision;
 import uk.me.parabola.imgfmt.fs.ImgChannel;
@@ -49,6 +51,8 @@ public class LBLFile extends ImgFile {
 	private static final Logger log = Logger.getLogger(LBLFile.class);
 
 	private CharacterEncoder textEncoder = CodeFunctions.getDefaultEncoder();
+	// describes the encoder for the shared cache of encoded texts
+	private String encoderConfig = "ascii";
 
 	private final Map<EncodedText, Label> labelCache = new HashMap<>();
 
@@ -111,17 +115,23 @@ public class LBLFile extends ImgFile {
 		
 		lblHeader.setEncodingType(cfuncs.getEncodingType());
 		textEncoder = cfuncs.getEncoder();
+		encoderConfig = forceUpper ? cs + ":upper" : cs;
 		if (forceUpper && textEncoder instanceof BaseEncoder) {
 			BaseEncoder baseEncoder = (BaseEncoder) textEncoder;
 			baseEncoder.setUpperCase(true);
 		}
 	}
 
+	public int getEncodingType() {
+		return lblHeader.getEncodingType();
+	}
+
 	public void setEncoder(int encodingType, int codepage ) {
 		CodeFunctions cfuncs = CodeFunctions.createEncoderForLBL(encodingType, codepage);
 		
 		lblHeader.setEncodingType(cfuncs.getEncodingType());
 		textEncoder = cfuncs.getEncoder();
+		encoderConfig = encodingType + ":" + codepage;
 	}
 	
 	/**
@@ -160,7 +170,7 @@ public class LBLFile extends ImgFile {
 				text = text.substring(0, trimmedLen + 1);
 			}
 		}
-		EncodedText encodedText = textEncoder.encodeText(text);
+		EncodedText encodedText = EncodedTextCache.encode(textEncoder, encoderConfig, text);
 
 		Label l = labelCache.get(encodedText);
 		if (l == null) {
@@ -249,6 +259,25 @@ public class LBLFile extends ImgFile {
 		places.setSort(sort);
 	}
 
+	/**
+	 * @return The countries in the order of their index, valid after all POIs are done.
+	 */
+	public List<Country> getCountries() {
+		return places.getCountries();
+	}
+
+	public List<Region> getRegions() {
+		return places.getRegions();
+	}
+
+	public List<City> getCities() {
+		return places.getCities();
+	}
+
+	public List<Zip> getZips() {
+		return places.getZips();
+	}
+
 	public int numCities() {
 		return places.numCities();
 	}
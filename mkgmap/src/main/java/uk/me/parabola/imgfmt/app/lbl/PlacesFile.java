@@ -381,6 +381,22 @@ public class PlacesFile {
 		}
 	}
 
+	List<Country> getCountries() {
+		return countryList;
+	}
+
+	List<Region> getRegions() {
+		return regionList;
+	}
+
+	List<City> getCities() {
+		return cityList;
+	}
+
+	List<Zip> getZips() {
+		return zipList;
+	}
+
 	public int numCities() {
 		return cityList.size();
 	}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.map;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Label;
+import uk.me.parabola.imgfmt.app.lbl.City;
+import uk.me.parabola.imgfmt.app.lbl.Country;
+import uk.me.parabola.imgfmt.app.lbl.POIRecord;
+import uk.me.parabola.imgfmt.app.lbl.Region;
+import uk.me.parabola.imgfmt.app.lbl.Zip;
+import uk.me.parabola.imgfmt.app.net.RoadDef;
+import uk.me.parabola.imgfmt.app.trergn.Point;
+import uk.me.parabola.imgfmt.app.trergn.Subdivision;
+import uk.me.parabola.log.Logger;
+
+/**
+ * Reads the index sidecar of a map. The sidecar is written next to the img
+ * file while the map is built, see {@link IndexSidecarWriter}. It contains
+ * the countries, regions, cities, points of level 0, roads and zips that are
+ * needed for the global index, so they don't have to be decoded from the
+ * LBL, RGN and NET files again.
+ *
+ * The objects are the same as the ones that {@link MapReader} returns for
+ * the map, in the same order. Only the zips are returned in the order of
+ * their index in the LBL file.
+ */
+public class IndexSidecarReader {
+	private static final Logger log = Logger.getLogger(IndexSidecarReader.class);
+
+	static final int MAGIC = 0x4d445249; // "MDRI"
+	static final int VERSION = 1;
+	private static final String EXT = ".mdri";
+
+	// countries and regions have a null entry at index 0 like in LBLFileReader
+	private final List<Country> countries = new ArrayList<>();
+	private final List<Region> regions = new ArrayList<>();
+	private final List<City> cities = new ArrayList<>();
+	private final List<Point> points = new ArrayList<>();
+	private final List<RoadDef> roads = new ArrayList<>();
+	private final List<Zip> zips = new ArrayList<>();
+
+	private IndexSidecarReader() {
+	}
+
+	/**
+	 * @param imgName The file name of the map.
+	 * @return The sidecar file of the map.
+	 */
+	public static File getSidecarFile(String imgName) {
+		String base = imgName.endsWith(".img") ? imgName.substring(0, imgName.length() - 4) : imgName;
+		return new File(base + EXT);
+	}
+
+	/**
+	 * Read the sidecar of a map.
+	 * @param imgName The file name of the map.
+	 * @return The content of the sidecar or null if there is no sidecar or
+	 * it doesn't belong to the current img file.
+	 */
+	public static IndexSidecarReader read(String imgName) {
+		File file = getSidecarFile(imgName);
+		if (!file.exists())
+			return null;
+		File imgFile = new File(imgName);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				log.warn("Ignoring index sidecar with unknown format", file);
+				return null;
+			}
+			if (in.readLong() != imgFile.length() || in.readLong() != imgFile.lastModified()) {
+				log.warn("Ignoring outdated index sidecar", file);
+				return null;
+			}
+			IndexSidecarReader sidecar = new IndexSidecarReader();
+			sidecar.readCountries(in);
+			sidecar.readRegions(in);
+			sidecar.readCities(in);
+			sidecar.readPoints(in);
+			sidecar.readRoads(in);
+			sidecar.readZips(in);
+			return sidecar;
+		} catch (IOException e) {
+			log.warn("Could not read index sidecar", file, e.getMessage());
+		}
+		return null;
+	}
+
+	private void readCountries(DataInputStream in) throws IOException {
+		countries.add(null);
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			int index = in.readUnsignedShort();
+			countries.add(new Country(index, readLabel(in)));
+		}
+	}
+
+	private void readRegions(DataInputStream in) throws IOException {
+		regions.add(null);
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			int index = in.readUnsignedShort();
+			Country country = countries.get(in.readUnsignedShort());
+			Region region = new Region(country, readLabel(in));
+			region.setIndex(index);
+			regions.add(region);
+		}
+	}
+
+	private void readCities(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			int info = in.readUnsignedShort();
+			City city;
+			if ((info & 0x4000) == 0)
+				city = new City(regions.get(info));
+			else
+				city = new City(countries.get(info & 0x3fff));
+			city.setIndex(i + 1);
+
+			if (in.readBoolean()) {
+				int subdiv = in.readUnsignedShort();
+				city.setPointIndex(in.readUnsignedByte());
+				city.setSubdivision(Subdivision.createEmptySubdivision(subdiv));
+			} else {
+				city.setSubdivision(Subdivision.createEmptySubdivision(1));
+				city.setLabel(readLabel(in));
+			}
+			cities.add(city);
+		}
+	}
+
+	private void readPoints(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		Subdivision div = null;
+		for (int i = 0; i < n; i++) {
+			int type = in.readInt();
+			int subdiv = in.readUnsignedShort();
+			if (div == null || div.getNumber() != subdiv)
+				div = Subdivision.createEmptySubdivision(subdiv);
+			Point p = new Point(div);
+			p.setType(type);
+			p.setNumber(in.readUnsignedShort());
+			p.setLabel(readLabel(in));
+			int cityIndex = in.readInt();
+			if (cityIndex > 0) {
+				POIRecord poi = new POIRecord();
+				poi.setCity(cities.get(cityIndex - 1));
+				p.setPOIRecord(poi);
+			}
+			points.add(p);
+		}
+	}
+
+	private void readRoads(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			RoadDef road = new RoadDef(i + 1, 0, null);
+			int numLabels = in.readUnsignedByte();
+			for (int j = 0; j < numLabels; j++)
+				road.addLabel(readLabel(in));
+			int numCities = in.readInt();
+			for (int j = 0; j < numCities; j++)
+				road.addCityIfNotPresent(cities.get(in.readInt() - 1));
+			roads.add(road);
+		}
+	}
+
+	private void readZips(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			int index = in.readInt();
+			Zip zip = new Zip(readLabel(in));
+			zip.setIndex(index);
+			zips.add(zip);
+		}
+	}
+
+	private static Label readLabel(DataInputStream in) throws IOException {
+		int offset = in.readInt();
+		Label label = new Label(in.readUTF());
+		label.setOffset(offset);
+		return label;
+	}
+
+	public List<Country> getCountries() {
+		return countries;
+	}
+
+	public List<Region> getRegions() {
+		return regions;
+	}
+
+	public List<City> getCities() {
+		return cities;
+	}
+
+	/**
+	 * @return The points of level 0 without extended types.
+	 */
+	public List<Point> getPoints() {
+		return points;
+	}
+
+	public List<RoadDef> getRoads() {
+		return roads;
+	}
+
+	/**
+	 * @return The zips in the order of their index.
+	 */
+	public List<Zip> getZips() {
+		return zips;
+	}
+}
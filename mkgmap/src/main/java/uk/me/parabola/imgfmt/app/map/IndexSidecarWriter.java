@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.map;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Label;
+import uk.me.parabola.imgfmt.app.lbl.City;
+import uk.me.parabola.imgfmt.app.lbl.Country;
+import uk.me.parabola.imgfmt.app.lbl.LBLFile;
+import uk.me.parabola.imgfmt.app.lbl.POIRecord;
+import uk.me.parabola.imgfmt.app.lbl.Region;
+import uk.me.parabola.imgfmt.app.lbl.Zip;
+import uk.me.parabola.imgfmt.app.net.NETFile;
+import uk.me.parabola.imgfmt.app.net.RoadDef;
+import uk.me.parabola.imgfmt.app.trergn.Point;
+import uk.me.parabola.log.Logger;
+
+/**
+ * Writes the index sidecar of a map, the data that is needed to add the map
+ * to a global index (MDR). See {@link IndexSidecarReader}.
+ *
+ * The points of level 0 are recorded while the map is built, everything else
+ * is taken from the LBL and NET files after the map was closed.
+ */
+public class IndexSidecarWriter {
+	private static final Logger log = Logger.getLogger(IndexSidecarWriter.class);
+	private static final int MAX_POINT_NUMBER = 256;
+
+	// the points of level 0 with the number that a reader would give them
+	private final List<Point> points = new ArrayList<>();
+	private final List<Integer> numbers = new ArrayList<>();
+
+	/**
+	 * Record the points of a subdivision of level 0. They are numbered like
+	 * in the RGN file: the indexed points first, then the other points.
+	 * Points with extended types must not be included.
+	 * @param indPoints the indexed points (cities)
+	 * @param normalPoints the other points
+	 */
+	public void addPoints(List<Point> indPoints, List<Point> normalPoints) {
+		int number = 1;
+		for (Point p : indPoints) {
+			points.add(p);
+			numbers.add(number++);
+		}
+		for (Point p : normalPoints) {
+			points.add(p);
+			numbers.add(number++);
+		}
+	}
+
+	/**
+	 * Write the sidecar of a map.
+	 * @param imgName The file name of the map, it must have been closed.
+	 * @param lbl The LBL file of the map.
+	 * @param net The NET file of the map, may be null.
+	 */
+	public void write(String imgName, LBLFile lbl, NETFile net) {
+		File imgFile = new File(imgName);
+		File file = IndexSidecarReader.getSidecarFile(imgName);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(IndexSidecarReader.MAGIC);
+			out.writeInt(IndexSidecarReader.VERSION);
+			out.writeLong(imgFile.length());
+			out.writeLong(imgFile.lastModified());
+
+			writeCountries(out, lbl.getCountries());
+			writeRegions(out, lbl.getRegions());
+			writeCities(out, lbl.getCities());
+			writePoints(out);
+			writeRoads(out, net == null ? Collections.emptyList() : net.getSortedRoads());
+			writeZips(out, lbl.getZips());
+		} catch (IOException e) {
+			log.error("Could not write index sidecar", file, e.getMessage());
+			if (!file.delete())
+				file.deleteOnExit();
+		}
+	}
+
+	private static void writeCountries(DataOutputStream out, List<Country> countries) throws IOException {
+		out.writeInt(countries.size());
+		for (Country c : countries) {
+			out.writeShort(c.getIndex());
+			writeLabel(out, c.getLabel());
+		}
+	}
+
+	private static void writeRegions(DataOutputStream out, List<Region> regions) throws IOException {
+		out.writeInt(regions.size());
+		for (Region r : regions) {
+			out.writeShort(r.getIndex());
+			out.writeShort(r.getCountry().getIndex());
+			writeLabel(out, r.getLabel());
+		}
+	}
+
+	/**
+	 * A city is written with either its label or its point, like in the LBL file.
+	 */
+	private static void writeCities(DataOutputStream out, List<City> cities) throws IOException {
+		out.writeInt(cities.size());
+		for (City c : cities) {
+			out.writeShort(c.getRegionCountryNumber());
+			out.writeBoolean(c.isPointRef());
+			if (c.isPointRef()) {
+				out.writeShort(c.getSubdivNumber());
+				out.writeByte(c.getPointIndex());
+			} else {
+				writeLabel(out, c.getLabel());
+			}
+		}
+	}
+
+	/**
+	 * The points in the order of the subdivisions, as a reader returns them.
+	 * Points that can't be referenced from the index are left out.
+	 */
+	private void writePoints(DataOutputStream out) throws IOException {
+		List<Integer> order = new ArrayList<>(points.size());
+		for (int i = 0; i < points.size(); i++) {
+			if (numbers.get(i) <= MAX_POINT_NUMBER)
+				order.add(i);
+		}
+		order.sort(Comparator.comparingInt(i -> points.get(i).getSubdiv().getNumber()));
+
+		out.writeInt(order.size());
+		for (int i : order) {
+			Point p = points.get(i);
+			POIRecord poi = p.getPOIRecord();
+			City city = poi.getCity();
+			out.writeInt(p.getType());
+			out.writeShort(p.getSubdiv().getNumber());
+			out.writeShort(numbers.get(i));
+			writeLabel(out, poi.getNameLabel() != null ? poi.getNameLabel() : p.getLabel());
+			out.writeInt(city == null ? 0 : city.getIndex());
+		}
+	}
+
+	private static void writeRoads(DataOutputStream out, List<RoadDef> roads) throws IOException {
+		out.writeInt(roads.size());
+		for (RoadDef rd : roads) {
+			Label[] labels = rd.getLabels();
+			int numLabels = 0;
+			while (numLabels < labels.length && labels[numLabels] != null)
+				numLabels++;
+			out.writeByte(numLabels);
+			for (int i = 0; i < numLabels; i++)
+				writeLabel(out, labels[i]);
+
+			List<Integer> cityIndexes = rd.getNet1CityIndexes();
+			out.writeInt(cityIndexes.size());
+			for (int index : cityIndexes)
+				out.writeInt(index);
+		}
+	}
+
+	private static void writeZips(DataOutputStream out, List<Zip> zips) throws IOException {
+		out.writeInt(zips.size());
+		for (Zip z : zips) {
+			out.writeInt(z.getIndex());
+			writeLabel(out, z.getLabel());
+		}
+	}
+
+	private static void writeLabel(DataOutputStream out, Label label) throws IOException {
+		out.writeInt(label.getOffset());
+		out.writeUTF(label.getDecodedText());
+	}
+}
@@ -174,10 +174,12 @@ public class Map implements InternalFiles, Configurable {
 	 * Add a copyright message to the map.
 	 * @param str the copyright message. The second (last?) one set
 	 * gets shown when the device starts (sometimes?).
+	 * @return the label of the message
 	 */
-	public void addCopyright(String str) {
+	public Label addCopyright(String str) {
 		Label cpy = lblFile.newLabel(str, false);
 		treFile.addCopyright(cpy);
+		return cpy;
 	}
 
 	/**
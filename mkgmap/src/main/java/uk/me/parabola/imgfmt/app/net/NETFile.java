@@ -20,8 +20,10 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.BufferedImgFileWriter;
@@ -48,6 +50,8 @@ public class NETFile extends ImgFile {
 	private final NETHeader netHeader = new NETHeader();
 	private List<RoadDef> roads;
 	private Sort sort;
+	// the roads that are in the sorted roads section
+	private final Set<RoadDef> sortedRoads = new HashSet<>();
 
 	public NETFile(ImgChannel chan) {
 		setHeader(netHeader);
@@ -87,8 +91,10 @@ public class NETFile extends ImgFile {
 		try {
 			List<LabeledRoadDef> labeledRoadDefs = deDupRoads();
 			sortByName(labeledRoadDefs);
-			for (LabeledRoadDef labeledRoadDef : labeledRoadDefs)
+			for (LabeledRoadDef labeledRoadDef : labeledRoadDefs) {
 				labeledRoadDef.roadDef.putSortedRoadEntry(writer, labeledRoadDef.label);
+				sortedRoads.add(labeledRoadDef.roadDef);
+			}
 		} finally {
 			Utils.closeFile(writer);
 		}
@@ -328,6 +334,21 @@ public class NETFile extends ImgFile {
 		}
 	}
 
+	/**
+	 * Get the roads that can be found by name, these are the roads that are
+	 * returned by NETFileReader.getRoads().
+	 * @return The roads in the sorted roads section, in the order of NET1.
+	 * Only valid after writePost().
+	 */
+	public List<RoadDef> getSortedRoads() {
+		List<RoadDef> list = new ArrayList<>();
+		for (RoadDef rd : roads) {
+			if (sortedRoads.contains(rd))
+				list.add(rd);
+		}
+		return list;
+	}
+
 	public void setNetwork(List<RoadDef> roads) {
 		this.roads = roads;
 	}
@@ -788,6 +788,8 @@ class CityZipWriter {
 	private final int numItems;
 	private final int defaultIndex;
 	int []lastEncodedIndexes = {-1, -1};
+	// the indexes in the order in which a reader finds them in the buffer
+	private final List<Integer> readableIndexes = new ArrayList<>();
 	
 	public CityZipWriter(String type, int defIndex, int numItems) {
 		this.type = type;
@@ -800,6 +802,10 @@ class CityZipWriter {
 		return buf;
 	}
 
+	public List<Integer> getReadableIndexes() {
+		return readableIndexes;
+	}
+
 	public boolean compile(List<Numbers> numbers){
 		try {
 			// left and right entry in zip or city table
@@ -887,11 +893,30 @@ class CityZipWriter {
 				writeIndex(indexes[0]);
 			if (indexes[1] > 0 && (sidesFlag & 2) != 0)
 				writeIndex(indexes[1]);
+			addReadableIndexes(sidesFlag, indexes);
 		}
 		lastEncodedIndexes[0] = indexes[0];
 		lastEncodedIndexes[1] = indexes[1];
 	}
 	
+	/**
+	 * Save the indexes as NETFileReader reads them: one index for both sides 
+	 * or the given left and right index.
+	 */
+	private void addReadableIndexes(int sidesFlag, int[] indexes) {
+		if (sidesFlag == 0) {
+			if (indexes[0] > 0)
+				readableIndexes.add(indexes[0]);
+			return;
+		}
+		int left = (sidesFlag & 1) != 0 ? indexes[0] : 0;
+		int right = (sidesFlag & 2) != 0 ? indexes[1] : 0;
+		if (left > 0)
+			readableIndexes.add(left);
+		if (right > 0 && right != left)
+			readableIndexes.add(right);
+	}
+
 	void writeIndex(int val){
 		if (val <= 0)
 			return;
@@ -160,6 +160,8 @@ public class RoadDef {
 	private List<Numbers> numbersList;
 	private List<City> cityList;
 	private List<Zip> zipList;
+	// the indexes of the cities as they are written to NET1
+	private List<Integer> net1CityIndexes = Collections.emptyList();
 	
 	/** cumulative number of special nodes between first and last node of line segments */
 	private int nodeCountInner;
@@ -259,6 +261,7 @@ public class RoadDef {
 			len = (numbers == null)  ? 0: numbers.cityWriter.getBuffer().size();
 			if (len > 0){
 				cityBuf = numbers.cityWriter.getBuffer();
+				net1CityIndexes = numbers.cityWriter.getReadableIndexes();
 				flag = Utils.numberToPointerSize(len) - 1;
 			} else {
 				flag = (city == null) ? 3 : 2;
@@ -293,6 +296,7 @@ public class RoadDef {
 				if(city != null) {
 					int cityIndex = city.getIndex();
 					writer.putNu(Utils.numberToPointerSize(numCities), cityIndex);
+					net1CityIndexes = Collections.singletonList(cityIndex);
 				}
 			}
 			if (numbers != null) {
@@ -759,6 +763,14 @@ public class RoadDef {
 		return cityList;
 	}
 
+	/**
+	 * @return the indexes of the cities that were written to NET1, in the
+	 * order in which a reader finds them. Only valid after NET1 was written.
+	 */
+	public List<Integer> getNet1CityIndexes() {
+		return net1CityIndexes;
+	}
+
 	public List<Zip> getZips(){
 		if (zipList == null)
 			return Collections.emptyList();
@@ -23,13 +23,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.imgfmt.app.CoordNode;
 import uk.me.parabola.log.Logger;
@@ -47,7 +47,7 @@ public class RoadNetwork {
 	private static final Logger log = Logger.getLogger(RoadNetwork.class);
 
 	private static final int MAX_RESTRICTIONS_ARCS = 7;
-	private final Map<Integer, RouteNode> nodes = new LinkedHashMap<>();
+	private final Int2ObjectLinkedOpenHashMap<RouteNode> nodes = new Int2ObjectLinkedOpenHashMap<>();
 
 	// boundary nodes
 	// a node should be in here if the nodes boundary flag is set
@@ -224,7 +224,12 @@ public class RoadNetwork {
 	} 
 	
 	private RouteNode getOrAddNode(int id, Coord coord) {
-		return nodes.computeIfAbsent(id, key -> new RouteNode(coord));
+		RouteNode node = nodes.get(id);
+		if (node == null) {
+			node = new RouteNode(coord);
+			nodes.put(id, node);
+		}
+		return node;
 	}
 
 	public List<RoadDef> getRoadDefs() {
@@ -366,13 +371,7 @@ public class RoadNetwork {
 		
 		if (cleanNodes) {
 			// remove discarded nodes from map nodes
-			Iterator<Entry<Integer, RouteNode>> iter = nodes.entrySet().iterator();
-			while (iter.hasNext()) {
-				RouteNode n = iter.next().getValue();
-				if (n.isDiscarded()) {
-					iter.remove();
-				}
-			}
+			nodes.values().removeIf(RouteNode::isDiscarded);
 		}
 	}
 	
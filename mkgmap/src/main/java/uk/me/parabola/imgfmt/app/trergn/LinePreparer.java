@@ -15,6 +15,7 @@
  */
 package uk.me.parabola.imgfmt.app.trergn;
 
+import java.util.Arrays;
 import java.util.List;
 
 import uk.me.parabola.imgfmt.app.BitWriter;
@@ -50,6 +51,14 @@ public class LinePreparer {
 
 	private final boolean ignoreNumberOnlyNodes;
 
+	// The absolute values of the deltas that are written, sorted
+	private int[] absDx;
+	private int[] absDy;
+	private int numEncodedPoints;
+
+	// the bit stream is copied by the caller, so one writer per thread is enough
+	private static final ThreadLocal<BitWriter> bitWriters = ThreadLocal.withInitial(BitWriter::new);
+
 	LinePreparer(Polyline line) {
 		extraBit = line.isRoad() && line.getSubdiv().getZoom().getLevel() == 0
 				&& (line.hasInternalNodes() || !line.isLastSegment());
@@ -64,85 +73,160 @@ public class LinePreparer {
 	/**
 	 * Write the bit stream to a BitWriter and return it.
 	 * Try different values for xBase and yBase to find the one
-	 * that results in the shortest bit stream.
-	 * 
-	 * @return A class containing the written byte stream.
+	 * that results in the shortest bit stream. The length for each
+	 * candidate is calculated from the deltas, only the best one is
+	 * written.
+	 *
+	 * @return A class containing the written byte stream. The writer is
+	 * reused by the next call in the same thread.
 	 */
 	public BitWriter makeShortestBitStream(int minPointsRequired) {
-		BitWriter bsSimple = makeBitStream(minPointsRequired, xBase, yBase);
-		if (bsSimple == null)
-			return bsSimple;
-		BitWriter bsBest = bsSimple; 
+		collectEncodedDeltas();
+		if (numEncodedPoints < minPointsRequired)
+			return null;
+		int simpleBits = calcBitLength(xBase, xSameSign, yBase, ySameSign);
+		int bestBits = simpleBits;
 		int xBestBase = xBase;
 		int yBestBase = yBase;
+		boolean xBestSameSign = xSameSign;
+		boolean yBestSameSign = ySameSign;
 		if ((xBase > 0 || yBase > 0) && log.isDebugEnabled()) {
 			log.debug("start opt:", xBase, yBase, xSameSign, xSignNegative, ySameSign, ySignNegative);
 		}
 		if (xBase > 0){
 			int notBetter = 0;
 			int xTestBase = xBase-1;
-			boolean xSameSignBak = xSameSign;
-			if (xSameSign) {
-				xSameSign = false;
+			if (xSameSign)
 				--xTestBase; // changing to signed will add a bit to each node so xBase-1 can't give saving
-			}
 			for ( ; xTestBase >= 0; xTestBase--){
-				BitWriter bstest = makeBitStream(minPointsRequired, xTestBase, yBase);
-				if (bstest.getBitPosition() >= bsBest.getBitPosition()){
+				int bits = calcBitLength(xTestBase, false, yBase, ySameSign);
+				if (bits >= bestBits){
 					if (++notBetter >= 2)
 						break; // give up
 				} else {
 					xBestBase = xTestBase;
-					bsBest = bstest;
-					xSameSignBak = false;
+					bestBits = bits;
+					xBestSameSign = false;
 				}
 			}
-			xSameSign = xSameSignBak;
 		}
 		if (yBase > 0){
 			int notBetter = 0;
 			int yTestBase = yBase-1;
-			boolean ySameSignBak = ySameSign;
-			if (ySameSign) {
-				ySameSign = false;
+			if (ySameSign)
 				--yTestBase; // changing to signed will add a bit to each node so yBase-1 can't give saving
-			}
 			for ( ; yTestBase >= 0; yTestBase--){
-				BitWriter bstest = makeBitStream(minPointsRequired, xBestBase, yTestBase);
-				if (bstest.getBitPosition() >= bsBest.getBitPosition()){
+				int bits = calcBitLength(xBestBase, xBestSameSign, yTestBase, false);
+				if (bits >= bestBits){
 					if (++notBetter >= 2)
 						break; // give up
 				} else {
 					yBestBase = yTestBase;
-					bsBest = bstest;
-					ySameSignBak = false;
+					bestBits = bits;
+					yBestSameSign = false;
 				}
 			}
-			ySameSign = ySameSignBak;
 		}
+		int simpleLength = (simpleBits + 7) / 8;
+		int bestLength = (bestBits + 7) / 8;
 		if ((xBase != xBestBase || yBestBase != yBase) && log.isInfoEnabled()) {
-			if (bsSimple.getLength() > bsBest.getLength())
-				log.info("optimizer reduced bit stream byte length from",bsSimple.getLength(),"->",bsBest.getLength(),"(" + (bsSimple.getLength()-bsBest.getLength()), "byte(s)) for",polyline.getClass().getSimpleName(),"with",polyline.getPoints().size(),"points");
+			if (simpleLength > bestLength)
+				log.info("optimizer reduced bit stream byte length from",simpleLength,"->",bestLength,"(" + (simpleLength-bestLength), "byte(s)) for",polyline.getClass().getSimpleName(),"with",polyline.getPoints().size(),"points");
 			else 
-				log.info("optimizer only reduced bit stream bit length from",bsSimple.getBitPosition(),"->",bsBest.getBitPosition(),"bits for",polyline.getClass().getSimpleName(),"with",polyline.getPoints().size(),"points, using original bit stream");
+				log.info("optimizer only reduced bit stream bit length from",simpleBits,"->",bestBits,"bits for",polyline.getClass().getSimpleName(),"with",polyline.getPoints().size(),"points, using original bit stream");
 		}
-		if (bsSimple.getLength() == bsBest.getLength()){
+		BitWriter bw = bitWriters.get();
+		int bitsWritten;
+		if (simpleLength == bestLength){
 			// if the (byte) length was not improved, 
 			// prefer the bit stream that doesn't need the special "trick"
 			// to encode large values, it is assumed that this can safe a  
 			// few CPU cycles when reading the map
-			return bsSimple;
+			bw.reset(simpleLength);
+			writeBitStream(bw, xBase, yBase);
+			bitsWritten = simpleBits;
+		} else {
+			xSameSign = xBestSameSign;
+			ySameSign = yBestSameSign;
+			bw.reset(bestLength);
+			writeBitStream(bw, xBestBase, yBestBase);
+			bitsWritten = bestBits;
+		}
+		assert bw.getBitPosition() == bitsWritten : "calculated " + bitsWritten + " bits, written " + bw.getBitPosition();
+		return bw;
+	}
+
+	/**
+	 * Save the absolute values of the deltas that are written, sorted so
+	 * that the values which need extra bits are at the end.
+	 */
+	private void collectEncodedDeltas() {
+		int[] dxs = new int[deltas.length / 2];
+		int[] dys = new int[deltas.length / 2];
+		int n = 0;
+		for (int i = 0; i < deltas.length; i+=2) {
+			int dx = deltas[i];
+			int dy = deltas[i + 1];
+			if (dx == 0 && dy == 0 && extraBit && !nodes[i/2+1] && i+2 != deltas.length)
+				continue; // skipped by writeBitStream()
+			dxs[n] = Math.abs(dx);
+			dys[n] = Math.abs(dy);
+			n++;
 		}
-		return bsBest;
+		absDx = Arrays.copyOf(dxs, n);
+		absDy = Arrays.copyOf(dys, n);
+		Arrays.sort(absDx);
+		Arrays.sort(absDy);
+		numEncodedPoints = n + 1;
 	}
+
 	/**
-	 * Write the bit stream to a BitWriter and return it.
-	 *
-	 * @return A class containing the written byte stream.
+	 * Calculate the length of the bit stream that {@link #writeBitStream}
+	 * would write.
+	 * @return the number of bits
 	 */
-	public BitWriter makeBitStream(int minPointsRequired, int xb, int yb) {
-		assert xb >= 0 && yb >= 0;
-		
+	private int calcBitLength(int xb, boolean xSame, int yb, boolean ySame) {
+		int xbits = base2Bits(xb);
+		if (!xSame)
+			xbits++;
+		int ybits = base2Bits(yb);
+		if (!ySame)
+			ybits++;
+		// the bases and the sign flags
+		int bits = 4 + 4 + (xSame ? 2 : 1) + (ySame ? 2 : 1);
+		if (extTypeLine)
+			bits++;
+		if (extraBit)
+			bits += numEncodedPoints;
+		bits += valueBits(absDx, xbits, xSame);
+		bits += valueBits(absDy, ybits, ySame);
+		return bits;
+	}
+
+	/**
+	 * Calculate the number of bits used to write the values with
+	 * {@link BitWriter#putn} or {@link BitWriter#sputn}.
+	 * @param sortedAbsValues the absolute values in ascending order
+	 * @param nbits the number of bits for a value
+	 * @param sameSign true if the values are written without sign
+	 * @return the number of bits
+	 */
+	static int valueBits(int[] sortedAbsValues, int nbits, boolean sameSign) {
+		int bits = sortedAbsValues.length * nbits;
+		if (sameSign)
+			return bits;
+		// a signed value that doesn't fit is written as a sequence of values 
+		int mask = (1 << (nbits - 1)) - 1;
+		for (int i = sortedAbsValues.length - 1; i >= 0 && sortedAbsValues[i] > mask; i--) {
+			bits += nbits * ((sortedAbsValues[i] - 1) / mask);
+		}
+		return bits;
+	}
+
+	/**
+	 * Write the bit stream with the given bases and the current sign flags.
+	 */
+	private void writeBitStream(BitWriter bw, int xb, int yb) {
 		int xbits = base2Bits(xb);
 		if (!xSameSign)
 			xbits++;
@@ -150,14 +234,10 @@ public class LinePreparer {
 		if (!ySameSign)
 			ybits++;
 
-			
 		// Note no sign included.
 		if (log.isDebugEnabled())
 			log.debug("xbits", xbits, ", y=", ybits);
 
-		// Write the bitstream
-		BitWriter bw = new BitWriter();
-
 		// Pre bit stream info
 		bw.putn(xb, 4);
 		bw.putn(yb, 4);
@@ -184,7 +264,6 @@ public class LinePreparer {
 		if (extraBit)
 			bw.put1(false);
 
-		int numPointsEncoded = 1;
 		for (int i = 0; i < deltas.length; i+=2) {
 			int dx = deltas[i];
 			int dy = deltas[i + 1];
@@ -192,7 +271,6 @@ public class LinePreparer {
 				if (extraBit && !nodes[i/2+1] && i+2 != deltas.length) // don't skip CoordNode
 					continue;
 			}
-			++numPointsEncoded;
 
 			if (log.isDebugEnabled())
 				log.debug("x delta", dx, "~", xbits);
@@ -215,11 +293,6 @@ public class LinePreparer {
 
 		if (log.isDebugEnabled())
 			log.debug(bw);
-
-		if(numPointsEncoded < minPointsRequired)
-			return null;
-
-		return bw;
 	}
 
 	/**
@@ -25,6 +25,7 @@ import java.time.format.FormatStyle;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
@@ -32,6 +33,10 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
@@ -53,6 +58,7 @@ import uk.me.parabola.imgfmt.app.lbl.LBLFile;
 import uk.me.parabola.imgfmt.app.lbl.POIRecord;
 import uk.me.parabola.imgfmt.app.lbl.Region;
 import uk.me.parabola.imgfmt.app.lbl.Zip;
+import uk.me.parabola.imgfmt.app.map.IndexSidecarWriter;
 import uk.me.parabola.imgfmt.app.map.Map;
 import uk.me.parabola.imgfmt.app.net.NETFile;
 import uk.me.parabola.imgfmt.app.net.NODFile;
@@ -112,6 +118,7 @@ import uk.me.parabola.mkgmap.reader.osm.GType;
 import uk.me.parabola.mkgmap.reader.osm.GeneralRelation;
 import uk.me.parabola.mkgmap.reader.osm.MultiPolygonRelation;
 import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.mkgmap.reader.overview.OverviewFeatures;
 import uk.me.parabola.mkgmap.reader.overview.OverviewMapDataSource;
 import uk.me.parabola.util.Configurable;
 import uk.me.parabola.util.EnhancedProperties;
@@ -186,6 +193,10 @@ public class MapBuilder implements Configurable {
 	private HGTConverter.InterpolationMethod demInterpolationMethod;
 	private boolean allowReverseMerge;
 	private boolean improveOverview;
+	private OverviewFeatures overviewFeatures;
+	private IndexSidecarWriter indexSidecar;
+	// number of threads used to merge the lines of the subdivisions
+	private int mergeThreads = 1;
 
 	/**
 	 * Construct a new MapBuilder.
@@ -298,14 +309,29 @@ public class MapBuilder implements Configurable {
 	 * @param src The map data.
 	 */
 	public void makeMap(Map map, LoadableMapDataSource src) {
+		lblFile = map.getLblFile();
+		hasNet = map.getNetFile() != null;
+
+		// the DEM only depends on the bounds, calculate it while the other sections are built
+		Future<Area> demResult = startDem(map, src);
+		try {
+			makeMapSections(map, src);
+			finishDem(map, demResult);
+		} finally {
+			if (demResult != null)
+				demResult.cancel(true);
+		}
+		map.getTreFile().writePost();
+	}
 
+	/**
+	 * Build and write all sections of the map except the DEM.
+	 */
+	private void makeMapSections(Map map, LoadableMapDataSource src) {
 		RGNFile rgnFile = map.getRgnFile();
 		TREFile treFile = map.getTreFile();
-		lblFile = map.getLblFile();
 		NETFile netFile = map.getNetFile();
-		
-		hasNet = netFile != null;
-		
+
 		if (routeCenterBoundaryType != 0 && netFile != null && src instanceof MapperBasedMapDataSource) {
 			for (RouteCenter rc : src.getRoadNetwork().getCenters()) {
 				((MapperBasedMapDataSource) src).addBoundaryLine(rc.getArea(), routeCenterBoundaryType,
@@ -360,49 +386,88 @@ public class MapBuilder implements Configurable {
 			netFile.writePost(rgnFile.getWriter());
 		}
 		warnAbout3ByteImgRefs();
-		buildDem(map, src);
-		treFile.writePost();
 	}
 
-	private void buildDem(Map map, LoadableMapDataSource src) {
+	/**
+	 * Start the calculation of the DEM section in a separate thread.
+	 * @return the future result of the calculation, null if the map has no DEM
+	 */
+	private Future<Area> startDem(Map map, LoadableMapDataSource src) {
 		DEMFile demFile = map.getDemFile();
 		if (demFile == null)
-			return;
+			return null;
 		if (demDists.size() > src.mapLevels().length) {
 			throw new MapFailedException("More dem-dist values than levels: \n\t" + demDists + "\n\t"
 					+ Arrays.toString(src.mapLevels()) + "\n");
 		}
 
-		try{
-			long t1 = System.currentTimeMillis();
-			java.awt.geom.Area  demArea = null;
-			if (demPolygon != null) {
-				Area bbox = src.getBounds();
-				// the rectangle is a bit larger to avoid problems at tile boundaries
-				Rectangle2D r = new Rectangle(bbox.getMinLong() - 2, bbox.getMinLat() - 2, 
-						bbox.getWidth() + 4, bbox.getHeight() + 4);
-				if (demPolygon.intersects(r) && !demPolygon.contains(r)) {
-					demArea = demPolygon;
-				}
-			} 
-			if (demArea == null && isOverviewCombined) {
-				Path2D demPoly = ((OverviewMapDataSource) src).getTileAreaPath();
-				if (demPoly != null) {
-					demArea = new java.awt.geom.Area(demPoly);
-				}
+		java.awt.geom.Area  demArea = null;
+		if (demPolygon != null) {
+			Area bbox = src.getBounds();
+			// the rectangle is a bit larger to avoid problems at tile boundaries
+			Rectangle2D r = new Rectangle(bbox.getMinLong() - 2, bbox.getMinLat() - 2, 
+					bbox.getWidth() + 4, bbox.getHeight() + 4);
+			if (demPolygon.intersects(r) && !demPolygon.contains(r)) {
+				demArea = demPolygon;
 			}
-			Area treArea = demFile.calc(src.getBounds(), demArea, pathsToHGT, demDists, demOutsidePolygonHeight, demInterpolationMethod);
-			map.setBounds(treArea);
-			long t2 = System.currentTimeMillis();
-			log.info("DEM file calculation for", map.getFilename(), "took", (t2 - t1), "ms");
-			demFile.write();
-		} catch (MapTooBigException e) {
-			throw new MapTooBigException(e.getMaxAllowedSize(), "The DEM section of the map or tile is too big.", "Try increasing the DEM distance."); 
+		} 
+		if (demArea == null && isOverviewCombined) {
+			Path2D demPoly = ((OverviewMapDataSource) src).getTileAreaPath();
+			if (demPoly != null) {
+				demArea = new java.awt.geom.Area(demPoly);
+			}
+		}
+		final java.awt.geom.Area polygon = demArea;
+		final Area bounds = src.getBounds();
+		final String threadTag = log.threadTag();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			return executor.submit(() -> {
+				log.threadTag(threadTag);
+				long t1 = System.currentTimeMillis();
+				Area treArea = demFile.calc(bounds, polygon, pathsToHGT, demDists, demOutsidePolygonHeight,
+						demInterpolationMethod);
+				long t2 = System.currentTimeMillis();
+				log.info("DEM file calculation for", map.getFilename(), "took", (t2 - t1), "ms");
+				return treArea;
+			});
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Wait for the calculation of the DEM section and write it.
+	 * @param demResult the result of {@link #startDem}, may be null
+	 */
+	private static void finishDem(Map map, Future<Area> demResult) {
+		if (demResult == null)
+			return;
+		try {
+			map.setBounds(demResult.get());
+			map.getDemFile().write();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MapFailedException("interrupted while creating DEM File");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof MapFailedException)
+				throw demFailure((MapFailedException) cause);
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new MapFailedException("Error creating DEM File. " + cause, cause);
 		} catch (MapFailedException e) {
-			throw new MapFailedException("Error creating DEM File. " + e.getMessage()); 
+			throw demFailure(e);
 		}
 	}
 
+	private static MapFailedException demFailure(MapFailedException e) {
+		if (e instanceof MapTooBigException)
+			return new MapTooBigException(((MapTooBigException) e).getMaxAllowedSize(),
+					"The DEM section of the map or tile is too big.", "Try increasing the DEM distance.");
+		return new MapFailedException("Error creating DEM File. " + e.getMessage());
+	}
+
 	private void warnAbout3ByteImgRefs() {
 		String mapContains = "Map contains";
 		String infoMsg = "- more than 65535 might cause indexing problems and excess size. Suggest splitter with lower --max-nodes";
@@ -816,6 +881,13 @@ public class MapBuilder implements Configurable {
 			topdiv = makeTopArea(src, map, zoom);
 		}
 
+		if (overviewFeatures != null) {
+			LevelInfo[] dataLevels = new LevelInfo[levels.length];
+			for (int i = 0; i < levels.length; i++)
+				dataLevels[i] = new LevelInfo(levels[i].getLevel(), levels[i].getBits());
+			overviewFeatures.setLevels(dataLevels);
+		}
+
 		// We start with one map data source.
 		List<SourceSubdiv> srcList = Collections.singletonList(new SourceSubdiv(src, topdiv));
 		if (mergeShapes && improveOverview && isOverviewComponent) {
@@ -829,14 +901,20 @@ public class MapBuilder implements Configurable {
 
 			Zoom zoom = map.createZoom(linfo.getLevel(), linfo.getBits());
 
+			List<MapArea[]> splitList = new ArrayList<>();
 			for (SourceSubdiv srcDivPair : srcList) {
 				MapSplitter splitter = new MapSplitter(srcDivPair.getSource(), zoom);
 				MapArea[] areas = splitter.split(orderByDecreasingArea);
 				log.info("Map region", srcDivPair.getSource().getBounds(), "split into", areas.length, "areas at resolution", zoom.getResolution());
+				splitList.add(areas);
+			}
+			java.util.Map<MapArea, List<MapLine>> mergedLines = mergeLinesConcurrently(splitList, zoom.getResolution());
 
-				for (MapArea area : areas) {
+			for (int i = 0; i < srcList.size(); i++) {
+				SourceSubdiv srcDivPair = srcList.get(i);
+				for (MapArea area : splitList.get(i)) {
 					Subdivision parent = srcDivPair.getSubdiv();
-					Subdivision div = makeSubdivision(map, parent, area, zoom);
+					Subdivision div = makeSubdivision(map, parent, area, zoom, mergedLines.get(area));
 					if (log.isDebugEnabled())
 						log.debug("ADD parent-subdiv", parent, srcDivPair.getSource(), ", z=", zoom, "new=", div);
 					nextList.add(new SourceSubdiv(area, div));
@@ -903,12 +981,12 @@ public class MapBuilder implements Configurable {
 	 * @param parent The parent division.
 	 * @param ma	 The area of the map that we are fitting into this division.
 	 * @param z	  The zoom level.
+	 * @param mergedLines The lines of the area after merging or null
+	 * if they were not merged yet.
 	 * @return The new subdivsion.
 	 */
-	private Subdivision makeSubdivision(Map map, Subdivision parent, MapArea ma, Zoom z) {
+	private Subdivision makeSubdivision(Map map, Subdivision parent, MapArea ma, Zoom z, List<MapLine> mergedLines) {
 		List<MapPoint> points = ma.getPoints();
-		List<MapLine> lines = ma.getLines();
-		List<MapShape> shapes = ma.getShapes();
 
 		Subdivision div = map.createSubdivision(parent, ma.getFullBounds(), z);
 
@@ -926,13 +1004,8 @@ public class MapBuilder implements Configurable {
 		processPoints(map, div, points);
 
 		final int res = z.getResolution();
-		lines = lines.stream().filter(l -> l.getMinResolution() <= res).collect(Collectors.toList());
-		shapes = shapes.stream().filter(s -> s.getMinResolution() <= res).collect(Collectors.toList());
-		
-		if (mergeLines) {
-			LineMergeFilter merger = new LineMergeFilter();
-			lines = merger.merge(lines, res, !hasNet, allowReverseMerge);
-		}
+		List<MapLine> lines = mergedLines == null ? mergeLines(ma, res) : mergedLines;
+		List<MapShape> shapes = ma.getShapes().stream().filter(s -> s.getMinResolution() <= res).collect(Collectors.toList());
 
 		if (mergeShapes) {
 			ShapeMergeFilter shapeMergeFilter = new ShapeMergeFilter(res, orderByDecreasingArea);
@@ -959,6 +1032,69 @@ public class MapBuilder implements Configurable {
 		return div;
 	}
 
+	/**
+	 * Select the lines of an area that are visible at the given resolution
+	 * and merge them if wanted. The merge filter only changes copies of the
+	 * lines and doesn't write to the points, so this can be done
+	 * concurrently for the areas of one level. This is not true for the
+	 * ShapeMergeFilter, it changes flags of the points which are shared
+	 * with neighbouring areas.
+	 * @param ma the area
+	 * @param res the resolution
+	 * @return the lines that should be written to the subdivision
+	 */
+	private List<MapLine> mergeLines(MapArea ma, int res) {
+		List<MapLine> lines = ma.getLines().stream().filter(l -> l.getMinResolution() <= res).collect(Collectors.toList());
+		if (mergeLines) {
+			LineMergeFilter merger = new LineMergeFilter();
+			lines = merger.merge(lines, res, !hasNet, allowReverseMerge);
+		}
+		return lines;
+	}
+
+	/**
+	 * Merge the lines of all areas of a level with a pool of
+	 * {@code mergeThreads} threads. Shapes are merged and the subdivisions
+	 * are written later in the original order.
+	 * @param splitList the areas of the level
+	 * @param res the resolution of the level
+	 * @return map with the merged lines for each area, empty if
+	 * the lines should be merged when the subdivision is created
+	 */
+	private java.util.Map<MapArea, List<MapLine>> mergeLinesConcurrently(List<MapArea[]> splitList, int res) {
+		java.util.Map<MapArea, List<MapLine>> merged = new IdentityHashMap<>();
+		List<MapArea> areas = new ArrayList<>();
+		splitList.forEach(a -> areas.addAll(Arrays.asList(a)));
+		if (mergeThreads <= 1 || areas.size() < 2 || !mergeLines)
+			return merged;
+
+		final String threadTag = log.threadTag();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(mergeThreads, areas.size()));
+		try {
+			List<Future<List<MapLine>>> results = new ArrayList<>();
+			for (MapArea area : areas) {
+				results.add(executor.submit(() -> {
+					log.threadTag(threadTag);
+					return mergeLines(area, res);
+				}));
+			}
+			for (int i = 0; i < areas.size(); i++) {
+				merged.put(areas.get(i), results.get(i).get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MapFailedException("interrupted while merging lines");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new MapFailedException("failed to merge lines", cause);
+		} finally {
+			executor.shutdownNow();
+		}
+		return merged;
+	}
+
 	/**
 	 * Mark first and last point of each line as preserved 
 	 * @param the lines 
@@ -1083,16 +1219,22 @@ public class MapBuilder implements Configurable {
 			// All copyright messages are displayed in BaseCamp.
 			String[] copyrightMessages = src.copyrightMessages();
 			if (copyrightMessages.length < 2)
-				map.addCopyright("program licenced under GPL v2");
+				addCopyright(map, "program licenced under GPL v2");
 
 			for (String cm : copyrightMessages)
-				map.addCopyright(cm);
+				addCopyright(map, cm);
 		} else {
 			for (String cm : copyrights)
-				map.addCopyright(cm);
+				addCopyright(map, cm);
 		}
 	}
 
+	private void addCopyright(Map map, String msg) {
+		Label cpy = map.addCopyright(msg);
+		if (overviewFeatures != null)
+			overviewFeatures.addCopyright(cpy.getDecodedText());
+	}
+
 	/**
 	 * Step through the points, filter and create a map point which is then added
 	 * to the map.
@@ -1112,6 +1254,13 @@ public class MapBuilder implements Configurable {
 		boolean haveIndPoints = false;
 		int pointIndex = 1;
 
+		// the points for the index sidecar
+		boolean recordPoints = indexSidecar != null && div.getZoom().getLevel() == 0;
+		List<Point> normalPoints = new ArrayList<>();
+		List<Point> indPoints = new ArrayList<>();
+		// the points for the overview features
+		List<Point> overviewPoints = new ArrayList<>();
+
 		// although the non-indexed points are output first,
 		// pointIndex must be initialized to the number of indexed
 		// points (not 1)
@@ -1157,7 +1306,11 @@ public class MapBuilder implements Configurable {
 				p.setPOIRecord(r);
 
 			map.addMapObject(p);
+			if (overviewFeatures != null)
+				overviewPoints.add(p);
 			if (!point.hasExtendedType()) {
+				if (recordPoints)
+					normalPoints.add(p);
 				if (name != null && div.getZoom().getLevel() == 0) {
 					if (pointIndex > 255) {
 						log.error("Too many POIs near location", div.getCenter().toOSMURL(), "-", name,
@@ -1204,6 +1357,10 @@ public class MapBuilder implements Configurable {
 				}
 
 				map.addMapObject(p);
+			if (overviewFeatures != null)
+				overviewPoints.add(p);
+				if (recordPoints)
+					indPoints.add(p);
 				if(name != null && div.getZoom().getLevel() == 0) {
 					// retrieve the City created earlier for this
 					// point and store the point info in it
@@ -1220,6 +1377,14 @@ public class MapBuilder implements Configurable {
 				++pointIndex;
 			}
 		}
+		if (recordPoints)
+			indexSidecar.addPoints(indPoints, normalPoints);
+		if (overviewFeatures != null) {
+			// record the points in the order in which a reader of the RGN
+			// file returns them: indexed points, points, extended type points
+			overviewPoints.sort(Comparator.comparingInt(p -> p.hasExtendedType() ? 2 : MapPoint.isCityType(p.getType()) ? 0 : 1));
+			overviewPoints.forEach(overviewFeatures::addMapObject);
+		}
 	}
 
 	/**
@@ -1268,7 +1433,7 @@ public class MapBuilder implements Configurable {
 				new RemoveEmpty(),
 				new LineSplitterFilter(), 
 				new LinePreparerFilter(div), 
-				new LineAddFilter(div, map))) {
+				new LineAddFilter(div, map, overviewFeatures))) {
 			normalFilters.addFilter(filter);
 			keepParallelFilters.addFilter(filter);
 		}
@@ -1328,7 +1493,7 @@ public class MapBuilder implements Configurable {
 		}
 		filters.addFilter(new RemoveEmpty());
 		filters.addFilter(new LinePreparerFilter(div));
-		filters.addFilter(new ShapeAddFilter(div, map));
+		filters.addFilter(new ShapeAddFilter(div, map, overviewFeatures));
 
 		for (MapShape shape : shapes) {
 			if (shape.getMinResolution() <= res) {
@@ -1399,6 +1564,31 @@ public class MapBuilder implements Configurable {
 		this.enableLineCleanFilters = enable;
 	}
 
+	/**
+	 * Record the features of an overview map component while they are written. 
+	 * @param features the object that receives the features, may be null  
+	 */
+	public void setOverviewFeatures(OverviewFeatures features) {
+		this.overviewFeatures = features;
+	}
+
+	/**
+	 * Set the number of threads that are used to merge the lines of the
+	 * subdivisions of a level.
+	 * @param threads the number of threads, 1 means no extra threads
+	 */
+	public void setMergeThreads(int threads) {
+		this.mergeThreads = Math.max(1, threads);
+	}
+
+	/**
+	 * Record the points that are needed for the index sidecar.
+	 * @param sidecar the object that receives the points, may be null
+	 */
+	public void setIndexSidecar(IndexSidecarWriter sidecar) {
+		this.indexSidecar = sidecar;
+	}
+
 	/**
 	 * Determine the minimum size for a polygon for the given level.
 	 * @param res the resolution
@@ -1498,10 +1688,12 @@ public class MapBuilder implements Configurable {
 	private static class LineAddFilter extends BaseFilter implements MapFilter {
 		private final Subdivision div;
 		private final Map map;
+		private final OverviewFeatures overviewFeatures;
 
-		LineAddFilter(Subdivision div, Map map) {
+		LineAddFilter(Subdivision div, Map map, OverviewFeatures overviewFeatures) {
 			this.div = div;
 			this.map = map;
+			this.overviewFeatures = overviewFeatures;
 		}
 
 		@Override
@@ -1538,16 +1730,20 @@ public class MapBuilder implements Configurable {
 				roaddef.addPolylineRef(pl);
 			}
 			map.addMapObject(pl);
+			if (overviewFeatures != null)
+				overviewFeatures.addMapObject(pl);
 		}
 	}
 	
 	private static class ShapeAddFilter extends BaseFilter implements MapFilter {
 		private final Subdivision div;
 		private final Map map;
+		private final OverviewFeatures overviewFeatures;
 
-		ShapeAddFilter(Subdivision div, Map map) {
+		ShapeAddFilter(Subdivision div, Map map, OverviewFeatures overviewFeatures) {
 			this.div = div;
 			this.map = map;
+			this.overviewFeatures = overviewFeatures;
 		}
 
 		@Override
@@ -1568,6 +1764,8 @@ public class MapBuilder implements Configurable {
 				}
 			}
 			map.addMapObject(pg);
+			if (overviewFeatures != null)
+				overviewFeatures.addMapObject(pg);
 		}
 	}
 
@@ -19,6 +19,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -35,6 +36,7 @@ import uk.me.parabola.imgfmt.app.lbl.Country;
 import uk.me.parabola.imgfmt.app.lbl.POIRecord;
 import uk.me.parabola.imgfmt.app.lbl.Region;
 import uk.me.parabola.imgfmt.app.lbl.Zip;
+import uk.me.parabola.imgfmt.app.map.IndexSidecarReader;
 import uk.me.parabola.imgfmt.app.map.MapReader;
 import uk.me.parabola.imgfmt.app.mdr.MDRFile;
 import uk.me.parabola.imgfmt.app.mdr.Mdr13Record;
@@ -143,7 +145,8 @@ public class MdrBuilder implements Combiner {
 
 	/**
 	 * Adds a new map to the file.  We need to read in the img file and
-	 * extract all the information that can be indexed from it.
+	 * extract all the information that can be indexed from it. If the map
+	 * was written with an index sidecar, the information is taken from there.
 	 *
 	 * @param info An interface to read the map.
 	 */
@@ -155,28 +158,38 @@ public class MdrBuilder implements Combiner {
 		mdrFile.addMap(info.getHexname(), info.getCodePage());
 
 		String filename = info.getFilename();
+		IndexSidecarReader sidecar = IndexSidecarReader.read(filename);
+		if (sidecar != null) {
+			addMap(sidecar.getCountries(), sidecar.getRegions(), sidecar.getCities(), sidecar.getPoints(),
+					sidecar.getRoads(), sidecar.getZips());
+			return;
+		}
 		try {
 			MapReader mr = info.getMapReader();
-
-			AreaMaps maps = new AreaMaps();
-
-			maps.countries = addCountries(mr);
-			maps.regions = addRegions(mr, maps);
-			List<Mdr5Record> mdrCityList = fetchCities(mr, maps);
-			maps.cityList = mdrCityList;
-
-			addPoints(mr, maps);
-			addCities(mdrCityList);
-			addStreets(mr, mdrCityList);
-			addZips(mr);
+			addMap(mr.getCountries(), mr.getRegions(), mr.getCities(),
+					mr.pointsForLevel(0, MapReader.WITHOUT_EXT_TYPE_DATA), mr.getRoads(), mr.getZips());
 		} catch (FileNotFoundException e) {
 			throw new ExitException("Could not open " + filename + " when creating mdr file");
 		}
 	}
 
-	private Map<Integer, Mdr14Record> addCountries(MapReader mr) {
+	private void addMap(List<Country> countries, List<Region> regions, List<City> cities, List<Point> points,
+			List<RoadDef> roads, List<Zip> zips) {
+		AreaMaps maps = new AreaMaps();
+
+		maps.countries = addCountries(countries);
+		maps.regions = addRegions(regions, maps);
+		List<Mdr5Record> mdrCityList = fetchCities(cities, maps);
+		maps.cityList = mdrCityList;
+
+		addPoints(points, maps);
+		addCities(mdrCityList);
+		addStreets(roads, mdrCityList);
+		addZips(zips);
+	}
+
+	private Map<Integer, Mdr14Record> addCountries(List<Country> countries) {
 		Map<Integer, Mdr14Record> countryMap = new HashMap<>();
-		List<Country> countries = mr.getCountries();
 		for (Country c : countries) {
 			if (c != null) {
 				Mdr14Record record = mdrFile.addCountry(c);
@@ -186,10 +199,9 @@ public class MdrBuilder implements Combiner {
 		return countryMap;
 	}
 
-	private Map<Integer, Mdr13Record> addRegions(MapReader mr, AreaMaps maps) {
+	private Map<Integer, Mdr13Record> addRegions(List<Region> regions, AreaMaps maps) {
 		Map<Integer, Mdr13Record> regionMap = new HashMap<>();
 
-		List<Region> regions = mr.getRegions();
 		for (Region region : regions) {
 			if (region != null) {
 				Mdr14Record mdr14 = maps.countries.get(region.getCountry().getIndex());
@@ -205,11 +217,10 @@ public class MdrBuilder implements Combiner {
 	 * section, it has to be completed from the points section. So we fetch
 	 * and create the mdr5s first before points.
 	 */
-	private List<Mdr5Record> fetchCities(MapReader mr, AreaMaps maps) {
+	private List<Mdr5Record> fetchCities(List<City> cities, AreaMaps maps) {
 		Map<Integer, Mdr5Record> cityMap = maps.cities;
 
 		List<Mdr5Record> cityList = new ArrayList<>();
-		List<City> cities = mr.getCities();
 		for (City c : cities) {
 			int regionCountryNumber = c.getRegionCountryNumber();
 			Mdr13Record mdrRegion = null;
@@ -246,20 +257,25 @@ public class MdrBuilder implements Combiner {
 			mdrFile.addCity(c);
 		}
 	}
-	private void addZips(MapReader mr) {
-		List<Zip> zips = mr.getZips();
-		for (Zip zip : zips)
+	/**
+	 * The zips are added in the order of their index. The reader of the LBL
+	 * file returns them in hash order, so the index would otherwise depend on
+	 * whether the map was read from the img file or the sidecar.
+	 */
+	private void addZips(List<Zip> zips) {
+		List<Zip> sorted = new ArrayList<>(zips);
+		sorted.sort(Comparator.comparingInt(Zip::getIndex));
+		for (Zip zip : sorted)
 			mdrFile.addZip(zip);
 	}
 
 	/**
-	 * Read points from this map and add them to the index.
-	 * @param mr The currently open map.
+	 * Add the points of level 0 of this map to the index.
+	 * @param points The points of the currently open map.
 	 * @param maps Maps of regions, cities countries etc.
 	 */
-	private void addPoints(MapReader mr, AreaMaps maps) {
-		List<Point> list = mr.pointsForLevel(0, MapReader.WITHOUT_EXT_TYPE_DATA);
-		for (Point p : list) {
+	private void addPoints(List<Point> points, AreaMaps maps) {
+		for (Point p : points) {
 			Label label = p.getLabel();
 			if (p.getNumber() > 256) {
 				continue;
@@ -291,9 +307,7 @@ public class MdrBuilder implements Combiner {
 		}
 	}
 
-	private void addStreets(MapReader mr, List<Mdr5Record> cityList) {
-		List<RoadDef> roads = mr.getRoads();
-
+	private void addStreets(List<RoadDef> roads, List<Mdr5Record> cityList) {
 		for (RoadDef road : roads) {
 			List<City> cities = road.getCities();
 			if (cities.isEmpty())
@@ -17,6 +17,12 @@ import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.imgfmt.FileExistsException;
 import uk.me.parabola.imgfmt.FileNotWritableException;
@@ -41,6 +47,8 @@ import uk.me.parabola.mkgmap.general.LevelInfo;
 import uk.me.parabola.mkgmap.general.MapLine;
 import uk.me.parabola.mkgmap.general.MapPoint;
 import uk.me.parabola.mkgmap.general.MapShape;
+import uk.me.parabola.mkgmap.reader.overview.OverviewFeatureCollector;
+import uk.me.parabola.mkgmap.reader.overview.OverviewFeatures;
 import uk.me.parabola.mkgmap.reader.overview.OverviewMapDataSource;
 import uk.me.parabola.mkgmap.srt.SrtTextReader;
 import uk.me.parabola.util.EnhancedProperties;
@@ -69,9 +77,26 @@ public class OverviewBuilder implements Combiner {
 	private boolean hasBackground;
 	private EnhancedProperties overviewProps = new EnhancedProperties();
 	private int maxRes = 16; // we can write a 0x4a polygon for planet in res 16.
+	private final OverviewFeatureCollector featureCollector;
+	// number of threads used to read the tiles and to merge the lines of the overview map
+	private int numThreads = 1;
+	private ExecutorService readPool;
+	// the tiles that are read by the pool, in the order of onMapEnd
+	private final List<FileInfo> pendingInfos = new ArrayList<>();
+	private final List<Future<OverviewFeatures>> pendingFeatures = new ArrayList<>();
 
 	public OverviewBuilder() {
+		this(null);
+	}
+
+	/**
+	 * @param featureCollector if not null, the features of overview map
+	 *            components built in this run are taken from it instead of
+	 *            reading the img files
+	 */
+	public OverviewBuilder(OverviewFeatureCollector featureCollector) {
 		this.overviewSource = new OverviewMapDataSource();
+		this.featureCollector = featureCollector;
 	}
 
 	public void init(CommandArgs args) {
@@ -81,12 +106,17 @@ public class OverviewBuilder implements Combiner {
 		
 		outputDir = args.getOutputDir();
 		overviewProps = new EnhancedProperties(args.getProperties());
+		numThreads = Math.max(1, overviewProps.getProperty("overview-threads", 1));
 	}
 
 	public void onMapEnd(FileInfo finfo) {
 		if (!finfo.isImg())
 			return;
 
+		if (numThreads > 1) {
+			submitFile(finfo);
+			return;
+		}
 		try {
 			readFileIntoOverview(finfo);
 		} catch (FileNotFoundException e) {
@@ -94,7 +124,68 @@ public class OverviewBuilder implements Combiner {
 		}
 	}
 
+	/**
+	 * Read a tile with the pool. The results are added to the overview in
+	 * the order of the calls, so the overview map doesn't depend on the
+	 * number of threads.
+	 * @param finfo Information about an individual map.
+	 */
+	private void submitFile(FileInfo finfo) {
+		String filename = finfo.getFilename();
+		checkCodePage(finfo);
+		OverviewFeatures features = null;
+		if (featureCollector != null && isOverviewImg(filename))
+			features = featureCollector.remove(filename);
+		if (features != null) {
+			pendingFeatures.add(CompletableFuture.completedFuture(features));
+		} else {
+			if (readPool == null)
+				readPool = Executors.newFixedThreadPool(numThreads);
+			final String threadTag = log.threadTag();
+			pendingFeatures.add(readPool.submit(() -> {
+				log.threadTag(threadTag);
+				return readFeatures(filename);
+			}));
+		}
+		pendingInfos.add(finfo);
+		// limit the number of tiles that are kept in memory
+		addPendingFiles(pendingFeatures.size() > 2 * numThreads);
+	}
+
+	/**
+	 * Add the tiles that were read by the pool to the overview.
+	 * @param wait if true, wait until the first tile is read, else only add
+	 * the tiles that are already available
+	 */
+	private void addPendingFiles(boolean wait) {
+		try {
+			while (!pendingFeatures.isEmpty() && (wait || pendingFeatures.get(0).isDone())) {
+				OverviewFeatures features = pendingFeatures.remove(0).get();
+				addFeaturesToOverview(pendingInfos.remove(0), features);
+				wait = pendingFeatures.size() > 2 * numThreads;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExitException("Interrupted while creating overview file", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new ExitException("Could not read detail map " + pendingInfos.get(0).getFilename(), cause);
+		}
+	}
+
 	public void onFinish() {
+		if (numThreads > 1) {
+			try {
+				while (!pendingFeatures.isEmpty())
+					addPendingFiles(true);
+			} finally {
+				if (readPool != null)
+					readPool.shutdownNow();
+				readPool = null;
+			}
+		}
 		if (!hasBackground) {
 			List<MapShape> shapes = overviewSource.getShapes();
 			int inx = shapes.size();
@@ -172,6 +263,7 @@ public class OverviewBuilder implements Combiner {
 		
 		MapBuilder mb = new MapBuilder(false, true);
 		mb.setEnableLineCleanFilters(false);
+		mb.setMergeThreads(numThreads);
 
 		FileSystemParam params = new FileSystemParam();
 		params.setMapDescription(areaName);
@@ -210,69 +302,66 @@ public class OverviewBuilder implements Combiner {
 	 * @param finfo Information about an individual map.
 	 */
 	private void readFileIntoOverview(FileInfo finfo) throws FileNotFoundException {
-		MapReader mapReader = null;
 		String filename = finfo.getFilename();
+		checkCodePage(finfo);
+
+		if (featureCollector != null && isOverviewImg(filename)) {
+			OverviewFeatures features = featureCollector.remove(filename);
+			if (features != null) {
+				addFeaturesToOverview(finfo, features);
+				return;
+			}
+		}
+		addFeaturesToOverview(finfo, readFeatures(filename));
+	}
+
+	private void checkCodePage(FileInfo finfo) {
 		if (codepage == null){
 			codepage = finfo.getCodePage();
 		} 
 		if (codepage != finfo.getCodePage()){
-			Logger.defaultLogger.warn("Input file " + filename + " has different code page " + finfo.getCodePage());
+			Logger.defaultLogger.warn("Input file " + finfo.getFilename() + " has different code page " + finfo.getCodePage());
 		}
+	}
 
+	/**
+	 * Read the features of an .img file that are used for the overview map.
+	 * Only the levels, the encoding and the copyright messages are read from
+	 * a detail map, the points, lines and shapes only from an overview map
+	 * component. This doesn't modify the overview, so it can be called by
+	 * multiple threads.
+	 *
+	 * @param filename The name of the .img file.
+	 * @return The features of the file.
+	 */
+	OverviewFeatures readFeatures(String filename) {
+		MapReader mapReader = null;
 		try {
 			mapReader = new MapReader(filename);
 
-			if (encodingType == null){
-				encodingType = mapReader.getEncodingType();
-			} 
-			if (encodingType != mapReader.getEncodingType()){
-				Logger.defaultLogger.warn("Input file " + filename + " has different charset type " + encodingType);
-			}
-
-			String[] msgs = mapReader.getCopyrights();
-			boolean found = false;
-			for (String[] block : copyrightMsgs) {
-				if (Arrays.deepEquals(block, msgs)){
-					found = true;
-					break;
-				}
-			}
-			if (!found )
-				copyrightMsgs.add(msgs);
-			
-			msgs = finfo.getLicenseInfo();
-			found = false;
-			for (String[] block : licenseInfos) {
-				if (Arrays.deepEquals(block, msgs)){
-					found = true;
-					break;
-				}
-			}
-			if (!found )
-				licenseInfos.add(msgs);
-			
+			OverviewFeatures features = new OverviewFeatures();
+			features.setEncodingType(mapReader.getEncodingType());
+			for (String msg : mapReader.getCopyrights())
+				features.addCopyright(msg);
 			
 			Zoom[] levels = mapReader.getLevels();
-			if (wantedLevels == null){
-				LevelInfo[] mapLevels;
-				if (isOverviewImg(filename)){
-					mapLevels = new LevelInfo[levels.length-1]; 
-					for (int i = 1; i < levels.length; i++){
-						mapLevels[i-1] = new LevelInfo(levels[i].getLevel(), levels[i].getResolution());
-					}
-				} else {
-					mapLevels = new LevelInfo[1];
-					mapLevels[0] = new LevelInfo(levels[1].getLevel(), levels[1].getResolution());
+			LevelInfo[] mapLevels;
+			if (isOverviewImg(filename)){
+				mapLevels = new LevelInfo[levels.length-1]; 
+				for (int i = 1; i < levels.length; i++){
+					mapLevels[i-1] = new LevelInfo(levels[i].getLevel(), levels[i].getResolution());
 				}
-				wantedLevels = mapLevels;
-				maxRes = wantedLevels[wantedLevels.length-1].getBits();
+			} else {
+				mapLevels = new LevelInfo[1];
+				mapLevels[0] = new LevelInfo(levels[1].getLevel(), levels[1].getResolution());
 			}
-			addMapCoverageArea(finfo);
+			features.setLevels(mapLevels);
 			if (isOverviewImg(filename)){
-				readPoints(mapReader);
-				readLines(mapReader);
-				readShapes(mapReader);
+				readPoints(mapReader, features);
+				readLines(mapReader, features);
+				readShapes(mapReader, features);
 			}
+			return features;
 		} catch (FileNotFoundException e) {
 			throw new ExitException("Could not open " + filename + " when creating overview file");
 		} finally {
@@ -281,12 +370,80 @@ public class OverviewBuilder implements Combiner {
 	}
 
 	/**
-	 * Read the points from the .img file and add them to the overview map.
+	 * Add the features of a map to the overview. They were either recorded
+	 * while an overview map component was built in this run or read from
+	 * the img file.
+	 * 
+	 * @param finfo Information about an individual map.
+	 * @param features the features of the map
+	 */
+	private void addFeaturesToOverview(FileInfo finfo, OverviewFeatures features) {
+		checkEncodingType(finfo.getFilename(), features.getEncodingType());
+		addMessages(features.getCopyrights(), finfo.getLicenseInfo());
+		if (wantedLevels == null)
+			setWantedLevels(features.getLevels());
+		addMapCoverageArea(finfo);
+
+		Area sourceBounds = overviewSource.getBounds();
+		for (MapPoint mp : features.getPoints()) {
+			if (!sourceBounds.contains(mp.getLocation())) {
+				if (log.isDebugEnabled())
+					log.debug(mp, "dropped, is outside of tile boundary");
+				continue;
+			}
+			overviewSource.addPoint(mp);
+		}
+		features.getLines().forEach(overviewSource::addLine);
+		for (MapShape ms : features.getShapes()) {
+			if (ms.getType() == 0x4b)
+				hasBackground = true;
+			overviewSource.addShape(ms);
+		}
+	}
+
+	private void checkEncodingType(String filename, int type) {
+		if (encodingType == null){
+			encodingType = type;
+		} 
+		if (encodingType != type){
+			Logger.defaultLogger.warn("Input file " + filename + " has different charset type " + encodingType);
+		}
+	}
+
+	private void addMessages(String[] copyrights, String[] licenseInfo) {
+		boolean found = false;
+		for (String[] block : copyrightMsgs) {
+			if (Arrays.deepEquals(block, copyrights)){
+				found = true;
+				break;
+			}
+		}
+		if (!found )
+			copyrightMsgs.add(copyrights);
+		
+		found = false;
+		for (String[] block : licenseInfos) {
+			if (Arrays.deepEquals(block, licenseInfo)){
+				found = true;
+				break;
+			}
+		}
+		if (!found )
+			licenseInfos.add(licenseInfo);
+	}
+
+	private void setWantedLevels(LevelInfo[] mapLevels) {
+		wantedLevels = mapLevels;
+		maxRes = wantedLevels[wantedLevels.length-1].getBits();
+	}
+
+	/**
+	 * Read the points from the .img file for the overview map.
 	 *
 	 * @param mapReader Map reader on the detailed .img file.
+	 * @param features Receives the points.
 	 */
-	private void readPoints(MapReader mapReader) {
-		Area sourceBounds = overviewSource.getBounds();
+	private void readPoints(MapReader mapReader, OverviewFeatures features) {
 		Zoom[] levels = mapReader.getLevels();
 		for (int l = 1; l < levels.length; l++){
 			int min = levels[l].getLevel();
@@ -295,12 +452,6 @@ public class OverviewBuilder implements Combiner {
 			for (Point point: pointList) {
 				if (log.isDebugEnabled())
 					log.debug("got point", point);
-				if (!sourceBounds.contains(point.getLocation())){
-					if (log.isDebugEnabled())
-						log.debug(point, "dropped, is outside of tile boundary");
-					continue;
-				}
-					
 				MapPoint mp = new MapPoint();
 				mp.setType(point.getType());
 				if (point.getLabel() != null) {
@@ -309,17 +460,18 @@ public class OverviewBuilder implements Combiner {
 				mp.setMaxResolution(res); 
 				mp.setMinResolution(res);  
 				mp.setLocation(point.getLocation());
-				overviewSource.addPoint(mp);
+				features.getPoints().add(mp);
 			}
 		}
 	}
 
 	/**
-	 * Read the lines from the .img file and add them to the overview map.
+	 * Read the lines from the .img file for the overview map.
 	 *
 	 * @param mapReader Map reader on the detailed .img file.
+	 * @param features Receives the lines.
 	 */
-	private void readLines(MapReader mapReader) {
+	private void readLines(MapReader mapReader, OverviewFeatures features) {
 		Zoom[] levels = mapReader.getLevels();
 		for (int l = 1; l < levels.length; l++){
 			int min = levels[l].getLevel();
@@ -345,17 +497,18 @@ public class OverviewBuilder implements Combiner {
 				ml.setMinResolution(res);  
 				ml.setPoints(points);
 
-				overviewSource.addLine(ml);
+				features.getLines().add(ml);
 			}
 		}
 	}
 
 	/**
-	 * Read the polygons from the .img file and add them to the overview map.
+	 * Read the polygons from the .img file for the overview map.
 	 *
 	 * @param mapReader Map reader on the detailed .img file.
+	 * @param features Receives the polygons.
 	 */
-	private void readShapes(MapReader mapReader) {
+	private void readShapes(MapReader mapReader, OverviewFeatures features) {
 		Zoom[] levels = mapReader.getLevels();
 		for (int l = 1; l < levels.length; l++){
 			int min = levels[l].getLevel();
@@ -364,9 +517,6 @@ public class OverviewBuilder implements Combiner {
 			for (Polygon shape : list) {
 				if (log.isDebugEnabled())
 					log.debug("got polygon", shape);
-				if (shape.getType() == 0x4b){
-					hasBackground = true;
-				}
 				MapShape ms = new MapShape();
 
 				List<Coord> points = shape.getPoints();
@@ -383,7 +533,7 @@ public class OverviewBuilder implements Combiner {
 				ms.setMinResolution(res);  
 				ms.setPoints(points);
 
-				overviewSource.addShape(ms);
+				features.getShapes().add(ms);
 			}
 		}
 	}
@@ -21,6 +21,7 @@ import java.util.List;
 
 import uk.me.parabola.imgfmt.app.Area;
 import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.imgfmt.app.PackedCoords;
 import uk.me.parabola.log.Logger;
 
 /**
@@ -33,6 +34,7 @@ public class MapLine extends MapElement {
 	private static final Logger log = Logger.getLogger(MapLine.class);
 
 	private List<Coord> points;
+	private PackedCoords packedPoints; // used instead of points, see packPoints()
 	private boolean direction; // set if direction is important.
 	private boolean skipSizeFilter;
 	private boolean wasClipped;
@@ -55,16 +57,35 @@ public class MapLine extends MapElement {
 	}
 
 	public List<Coord> getPoints() {
+		if (packedPoints != null) {
+			points = packedPoints.unpack();
+			packedPoints = null;
+		}
 		return points;
 	}
 
+	/**
+	 * Store the points in a compact form until they are needed again. This
+	 * is only used for the lines and shapes of the overview map, which are
+	 * kept until all tiles are read. The points that are not shared with
+	 * other elements get new instances when {@link #getPoints()} is called.
+	 * @see PackedCoords
+	 */
+	public void packPoints() {
+		if (points != null) {
+			packedPoints = PackedCoords.pack(points);
+			points = null;
+		}
+	}
+
 	/**
 	 * set the points, calculate new bounds 
 	 * @param points the points to use
 	 */
 	public void setPoints(List<Coord> points) {
-		if (this.points != null)
+		if (this.points != null || packedPoints != null)
 			log.warn("overwriting points");
+		packedPoints = null;
 		assert points != null : "trying to set null points";
 		assert !points.isEmpty() : "trying to set points with zero length";
 
@@ -86,12 +107,14 @@ public class MapLine extends MapElement {
 	}
 
 	public void insertPointsAtStart(List<Coord> additionalPoints) {
+		List<Coord> points = getPoints();
 		assert points.get(0).equals(additionalPoints.get(additionalPoints.size()-1));
 		testForConsecutivePoints(additionalPoints);
 		points.addAll(0, additionalPoints.subList(0, additionalPoints.size()-1));
 	}
 
 	public void insertPointsAtEnd(List<Coord> additionalPoints) {
+		List<Coord> points = getPoints();
 		testForConsecutivePoints(additionalPoints);
 		points.remove(points.size()-1); 
 		points.addAll(additionalPoints);
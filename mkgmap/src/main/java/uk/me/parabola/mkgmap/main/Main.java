@@ -44,11 +44,13 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.imgfmt.MapFailedException;
+import uk.me.parabola.imgfmt.app.labelenc.EncodedTextCache;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.ArgumentProcessor;
@@ -68,8 +70,11 @@ import uk.me.parabola.mkgmap.osmstyle.StyleFileLoader;
 import uk.me.parabola.mkgmap.osmstyle.StyleImpl;
 import uk.me.parabola.mkgmap.reader.osm.Style;
 import uk.me.parabola.mkgmap.reader.osm.StyleInfo;
+import uk.me.parabola.mkgmap.reader.osm.splitter.SplitterTileDataSource;
+import uk.me.parabola.mkgmap.reader.overview.OverviewFeatureCollector;
 import uk.me.parabola.mkgmap.scan.SyntaxException;
 import uk.me.parabola.mkgmap.srt.SrtTextReader;
+import uk.me.parabola.splitter.TileConsumer;
 import uk.me.parabola.util.EnhancedProperties;
 
 /**
@@ -106,6 +111,11 @@ public class Main implements ArgumentProcessor {
 	private final Map<String, Combiner> combinerMap = new HashMap<>();
 	private final Map<String, String> sourceMap = new HashMap<>();
 	private boolean informationDisplayed = false;
+	private final OverviewFeatureCollector overviewFeatureCollector = new OverviewFeatureCollector();
+
+	// input files that are split in memory, see --splitter-args
+	private final List<String> splitterInputs = new ArrayList<>();
+	private CommandArgs splitterInputArgs;
 
 	/**
 	 * Used for unit tests
@@ -279,6 +289,12 @@ public class Main implements ArgumentProcessor {
 		// ignore ovm_* files given as command line arguments
 		if (OverviewBuilder.isOverviewImg(filename))
 			return;
+		if (args.get("splitter-args", null) != null) {
+			// the maps are made from the areas that the splitter creates
+			splitterInputs.add(filename);
+			splitterInputArgs = args;
+			return;
+		}
 		
 		final MapProcessor mp = mapMaker(ext);
 
@@ -305,7 +321,7 @@ public class Main implements ArgumentProcessor {
 	private MapProcessor mapMaker(String ext) {
 		MapProcessor mp = processMap.get(ext);
 		if (mp == null)
-			mp = new MapMaker(createTdbFiles);
+			mp = new MapMaker(createTdbFiles, overviewFeatureCollector);
 		return mp;
 	}
 
@@ -378,7 +394,7 @@ public class Main implements ArgumentProcessor {
 	 */
 	private void addTdbBuilder() {
 		if (!tdbBuilderAdded ){
-			OverviewBuilder overviewBuilder = new OverviewBuilder();
+			OverviewBuilder overviewBuilder = new OverviewBuilder(overviewFeatureCollector);
 			addCombiner("img", overviewBuilder);
 			TdbBuilder tdbBuilder = new TdbBuilder(overviewBuilder);
 			addCombiner("tdb", tdbBuilder);
@@ -497,7 +513,7 @@ public class Main implements ArgumentProcessor {
 		fileOptions(args);
 
 		int taskCount = futures.size();
-		if (taskCount > 0) {
+		if (taskCount > 0 || !splitterInputs.isEmpty()) {
 			Logger.defaultLogger.write("Mkgmap version " + Version.VERSION);
 			Logger.defaultLogger.write("Time started: " + StartTime);
 		}
@@ -507,7 +523,11 @@ public class Main implements ArgumentProcessor {
 		if (threadPool == null) {
 			if (threadCount == 0) {
 				threadCount = 1;
-				if (taskCount > 2) {
+				if (!splitterInputs.isEmpty()) {
+					// the number of tiles is not known yet
+					threadCount = runtime.availableProcessors();
+					Logger.defaultLogger.warn("Setting max-jobs to " + threadCount);
+				} else if (taskCount > 2) {
 					//run one task to see how much memory it uses
 					log.info("Max Memory: " + runtime.maxMemory());
 					futures.get(0).run();
@@ -538,6 +558,8 @@ public class Main implements ArgumentProcessor {
 		for (FilenameTask task : futures) {
 			threadPool.execute(task);
 		}
+		if (!splitterInputs.isEmpty())
+			runSplitter(threadCount);
 
 
 		List<FilenameTask> filenames = new ArrayList<>();
@@ -587,6 +609,7 @@ public class Main implements ArgumentProcessor {
 			}
 		}
 		Logger.defaultLogger.write("Number of MapFailedExceptions: " + numMapFailedExceptions);
+		log.info(EncodedTextCache.getStats());
 		if ((taskCount > threadCount + 1) && (maxJobs == 0) && (threadCount < runtime.availableProcessors())) {
 			Logger.defaultLogger.warn("To reduce the run time, consider increasing the amnount of memory available for use by mkgmap by using the Java -Xmx flag to set the memory to more than " + 100* (1 + ((runtime.maxMemory() * runtime.availableProcessors()) / (threadCount * 1024 * 1024 * 100))) + " MB, providing this is less than the amount of physical memory installed.");
 		}
@@ -705,7 +728,56 @@ public class Main implements ArgumentProcessor {
 		}
 	}
 
-		
+
+	/**
+	 * Split the input files with the splitter in this process. The data of
+	 * each area is passed in memory and the map is made as soon as the area
+	 * is complete, while the splitter works on the following areas.
+	 * @param threadCount the number of threads that make the maps
+	 */
+	private void runSplitter(int threadCount) {
+		List<String> splitterArgs = new ArrayList<>();
+		for (String arg : splitterInputArgs.get("splitter-args", "").trim().split("\\s+")) {
+			if (!arg.isEmpty())
+				splitterArgs.add(arg);
+		}
+		splitterArgs.addAll(splitterInputs);
+		log.info("Running splitter with", splitterArgs);
+
+		// limit the number of areas that are kept in memory
+		Semaphore pendingTiles = new Semaphore(2 * threadCount);
+		MapProcessor mp = new MapMaker(createTdbFiles, overviewFeatureCollector);
+		TileConsumer consumer = (area, elements) -> {
+			pendingTiles.acquireUninterruptibly();
+			String name = SplitterTileDataSource.addTile(area, elements);
+			CommandArgs args = new CommandArgs(splitterInputArgs.getProperties());
+			args.getProperties().setProperty("mapname", String.format(Locale.ROOT, "%08d", area.getMapId()));
+			if (area.getName() != null)
+				args.getProperties().setProperty("description", area.getName());
+			args.setSort(getSort(args));
+
+			log.info("Submitting job " + name);
+			FilenameTask task = new FilenameTask(() -> {
+				log.threadTag(name);
+				try {
+					String output = mp.makeMap(args, name);
+					log.debug("adding output name", output);
+					return output;
+				} finally {
+					pendingTiles.release();
+					log.threadTag(null);
+				}
+			});
+			task.setArgs(args);
+			task.setSource(name);
+			futures.add(task);
+			threadPool.execute(task);
+		};
+		int rc = new uk.me.parabola.splitter.Main().split(splitterArgs.toArray(new String[0]), consumer);
+		if (rc != 0)
+			throw new ExitException("The splitter failed to split " + splitterInputs);
+	}
+
 	private void fileOptions(CommandArgs args) {
 		boolean indexOpt = args.exists("index");
 		boolean gmapsuppOpt = args.exists("gmapsupp");
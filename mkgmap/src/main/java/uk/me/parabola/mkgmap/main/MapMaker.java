@@ -26,6 +26,7 @@ import uk.me.parabola.imgfmt.FileNotWritableException;
 import uk.me.parabola.imgfmt.FileSystemParam;
 import uk.me.parabola.imgfmt.FormatException;
 import uk.me.parabola.imgfmt.MapFailedException;
+import uk.me.parabola.imgfmt.app.map.IndexSidecarWriter;
 import uk.me.parabola.imgfmt.app.map.Map;
 import uk.me.parabola.imgfmt.app.srt.Sort;
 import uk.me.parabola.log.Logger;
@@ -34,6 +35,8 @@ import uk.me.parabola.mkgmap.build.MapBuilder;
 import uk.me.parabola.mkgmap.combiners.OverviewBuilder;
 import uk.me.parabola.mkgmap.general.LoadableMapDataSource;
 import uk.me.parabola.mkgmap.reader.MapReader;
+import uk.me.parabola.mkgmap.reader.overview.OverviewFeatureCollector;
+import uk.me.parabola.mkgmap.reader.overview.OverviewFeatures;
 
 /**
  * Main routine for the command line map-making utility.
@@ -44,9 +47,20 @@ public class MapMaker implements MapProcessor {
 	private static final Logger log = Logger.getLogger(MapMaker.class);
 	private Sort sort;
 	private final boolean createOverviewFiles;
+	private final OverviewFeatureCollector overviewFeatureCollector;
 
 	public MapMaker(boolean createOverviewFiles) {
+		this(createOverviewFiles, null);
+	}
+
+	/**
+	 * @param createOverviewFiles set to true if the ovm_ files should be created
+	 * @param overviewFeatureCollector if not null, the features of the ovm_
+	 *            files are also published to this collector
+	 */
+	public MapMaker(boolean createOverviewFiles, OverviewFeatureCollector overviewFeatureCollector) {
 		this.createOverviewFiles = createOverviewFiles;
+		this.overviewFeatureCollector = overviewFeatureCollector;
 	}
 
 	public String makeMap(CommandArgs args, String filename) {
@@ -109,14 +123,31 @@ public class MapMaker implements MapProcessor {
 			Map map = Map.createMap(mapNamePrefix + args.getMapname(), args.getOutputDir(), params, args.getMapname(), sort, false);
 			setOptions(map, args);
 
-			MapBuilder builder = new MapBuilder(OverviewBuilder.OVERVIEW_PREFIX.equals(mapNamePrefix), false);
+			boolean isOverviewComponent = OverviewBuilder.OVERVIEW_PREFIX.equals(mapNamePrefix);
+			MapBuilder builder = new MapBuilder(isOverviewComponent, false);
 			builder.config(args.getProperties());
+			OverviewFeatures overviewFeatures = null;
+			if (isOverviewComponent && overviewFeatureCollector != null) {
+				overviewFeatures = new OverviewFeatures();
+				builder.setOverviewFeatures(overviewFeatures);
+			}
+			IndexSidecarWriter indexSidecar = null;
+			if (!isOverviewComponent && args.getProperties().getProperty("index-sidecar", false)) {
+				indexSidecar = new IndexSidecarWriter();
+				builder.setIndexSidecar(indexSidecar);
+			}
 			builder.makeMap(map, src);
 
 			// Collect information on map complete.
 			String outName = map.getFilename();
 			log.info("finished making map", outName, "closing");
+			if (overviewFeatures != null)
+				overviewFeatures.setEncodingType(map.getLblFile().getEncodingType());
 			map.close();
+			if (overviewFeatures != null)
+				overviewFeatureCollector.add(outName, overviewFeatures);
+			if (indexSidecar != null)
+				indexSidecar.write(outName, map.getLblFile(), map.getNetFile());
 			return outName;
 		} catch (FileExistsException e) {
 			Logger.defaultLogger.error(e.getMessage());
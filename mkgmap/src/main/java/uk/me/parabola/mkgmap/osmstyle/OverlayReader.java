@@ -17,6 +17,7 @@
 package uk.me.parabola.mkgmap.osmstyle;
 
 import java.io.Reader;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -48,9 +49,10 @@ import uk.me.parabola.mkgmap.scan.TokenScanner;
  * @author Steve Ratcliffe
  *
  */
-public class OverlayReader {
+public class OverlayReader implements Serializable {
 	private final Map<Integer, List<Integer>> overlays = new HashMap<>();
-	private final Reader reader;
+	// only needed while the overlays are read, the prepared style is serialized without it
+	private final transient Reader reader;
 	private final String filename;
 
 	public OverlayReader(Reader r, String filename) {
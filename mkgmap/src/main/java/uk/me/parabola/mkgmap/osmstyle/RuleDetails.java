@@ -12,6 +12,7 @@
  */
 package uk.me.parabola.mkgmap.osmstyle;
 
+import java.io.Serializable;
 import java.util.Set;
 
 import uk.me.parabola.mkgmap.reader.osm.Rule;
@@ -20,7 +21,7 @@ import uk.me.parabola.mkgmap.reader.osm.Rule;
  * Holds the key string, rule and tags that can be changed by the rule.
  * @author Steve Ratcliffe
  */
-class RuleDetails {
+class RuleDetails implements Serializable {
 	private final String keystring;
 	private final Rule rule;
 	private final Set<String> changingTags;
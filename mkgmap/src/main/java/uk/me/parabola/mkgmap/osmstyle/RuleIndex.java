@@ -12,6 +12,9 @@
  */
 package uk.me.parabola.mkgmap.osmstyle;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -21,9 +24,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
 import java.util.Set;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import uk.me.parabola.mkgmap.osmstyle.eval.Op;
 import uk.me.parabola.mkgmap.reader.osm.Rule;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
@@ -62,15 +66,17 @@ import uk.me.parabola.mkgmap.reader.osm.TagDict;
  *
  * @author Steve Ratcliffe
  */
-public class RuleIndex {
+public class RuleIndex implements Serializable {
 	private final List<RuleDetails> ruleDetails = new ArrayList<>();
 
-	private final Map<Short, TagHelper> tagKeyMap = new HashMap<>();
-	private TagHelper[] tagKeyArray = null;
+	// the index by tag name, this is the part that is saved in the style cache
+	private final Map<String, TagHelper> tagHelpers = new HashMap<>();
+	private transient Int2ObjectOpenHashMap<TagHelper> tagKeyMap = new Int2ObjectOpenHashMap<>();
+	private transient TagHelper[] tagKeyArray = null;
 
 	private boolean inited;
 
-	private class TagHelper{
+	private class TagHelper implements Serializable {
 		// This is an index of all rules that start with EXISTS (A=*)
 		final BitSet exists;
 		// This is an index of all rules that start with EQUALS (A=B) 
@@ -180,32 +186,51 @@ public class RuleIndex {
 		
 		// compress the index: create one hash map with one entry for each key
 		for (Map.Entry<String, BitSet> entry : existKeys.entrySet()) {
-			Short skey = TagDict.getInstance().xlate(entry.getKey());
-			tagKeyMap.put(skey, new TagHelper(entry.getValue()));
+			tagHelpers.put(entry.getKey(), new TagHelper(entry.getValue()));
 		}
 		for (Map.Entry<String, BitSet> entry : tagVals.entrySet()) {
 			String keyString = entry.getKey();
 			int ind = keyString.indexOf('=');
 			if (ind >= 0) {
-				short key = TagDict.getInstance().xlate(keyString.substring(0, ind));
+				String key = keyString.substring(0, ind);
 				String val = keyString.substring(ind + 1);
-				TagHelper th = tagKeyMap.computeIfAbsent(key, k-> new TagHelper(null));
+				TagHelper th = tagHelpers.computeIfAbsent(key, k-> new TagHelper(null));
 				th.addTag(val, entry.getValue());
 			}
 		}
-		Optional<Short> minKey = tagKeyMap.keySet().stream().min(Short::compare);
-		if (minKey.isPresent() && minKey.get() > 0) {
-			Optional<Short> maxKey = tagKeyMap.keySet().stream().max(Short::compare);
-			if (maxKey.isPresent()) {
-				tagKeyArray = new TagHelper[maxKey.get() + 1];
-				for (Map.Entry<Short, TagHelper> entry : tagKeyMap.entrySet()) {
-					tagKeyArray[entry.getKey()] = entry.getValue();
-				}
-				tagKeyMap.clear();
+		buildTagKeyIndex();
+
+		inited = true;
+	}
+
+	/**
+	 * Translate the tag names of the index to the keys of the {@link TagDict}.
+	 * The keys are only valid within the running program, so this is also
+	 * done when a cached index is read back.
+	 */
+	private void buildTagKeyIndex() {
+		tagKeyMap = new Int2ObjectOpenHashMap<>();
+		tagKeyArray = null;
+		int minKey = Integer.MAX_VALUE;
+		int maxKey = Integer.MIN_VALUE;
+		for (Map.Entry<String, TagHelper> entry : tagHelpers.entrySet()) {
+			short tagKey = TagDict.getInstance().xlate(entry.getKey());
+			tagKeyMap.put(tagKey, entry.getValue());
+			minKey = Math.min(minKey, tagKey);
+			maxKey = Math.max(maxKey, tagKey);
+		}
+		if (!tagKeyMap.isEmpty() && minKey > 0) {
+			tagKeyArray = new TagHelper[maxKey + 1];
+			for (Int2ObjectMap.Entry<TagHelper> entry : tagKeyMap.int2ObjectEntrySet()) {
+				tagKeyArray[entry.getIntKey()] = entry.getValue();
 			}
+			tagKeyMap.clear();
 		}
+	}
 
-		inited = true;
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		buildTagKeyIndex();
 	}
 
 	private void buildInitialIndex(Map<String, BitSet> existKeys, Map<String, BitSet> tagVals,
@@ -34,6 +34,7 @@ import uk.me.parabola.mkgmap.osmstyle.eval.Op;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.Rule;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
+import uk.me.parabola.mkgmap.reader.osm.TagSnapshot;
 import uk.me.parabola.mkgmap.reader.osm.TypeResult;
 import uk.me.parabola.mkgmap.reader.osm.WatchableTypeResult;
 
@@ -77,6 +78,17 @@ public class RuleSet implements Rule, Iterable<Rule> {
 	 * be saved.
 	 */
 	public int resolveType(int cacheId, Element el, TypeResult result) {
+		// the rules look up the same tags many times, use a key-indexed copy of the tags
+		boolean attached = TagSnapshot.attach(el);
+		try {
+			return resolveTypeWithSnapshot(cacheId, el, result);
+		} finally {
+			if (attached)
+				TagSnapshot.detach(el);
+		}
+	}
+
+	private int resolveTypeWithSnapshot(int cacheId, Element el, TypeResult result) {
 		WatchableTypeResult a = new WatchableTypeResult(result);
 		if (!compiled || cacheId == Integer.MAX_VALUE)
 			compile();
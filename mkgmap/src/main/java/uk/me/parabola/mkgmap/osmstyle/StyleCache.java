@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import uk.me.parabola.imgfmt.ExitException;
+import uk.me.parabola.log.Logger;
+import uk.me.parabola.mkgmap.Version;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Keeps styles in their prepared form so that they are read and checked
+ * only once.
+ *
+ * Within one run the first tile job reads the style and all further jobs
+ * get a copy of the prepared style. A copy is needed because the rules
+ * keep state while they are evaluated (caches, statistics and the data of
+ * the current tile), so that each job must work on its own instance.
+ *
+ * Each copy costs the time to deserialize the style, about 15 ms for the
+ * default style, and the memory of a complete rule set per running job.
+ * Sharing one immutable style between the jobs would avoid both, but the
+ * state would then have to be moved out of the rules and passed along
+ * while the rules are evaluated, which touches every rule and action. The
+ * copies keep the rules unchanged and are cheap compared to the work of
+ * a tile.
+ *
+ * With the option --style-cache the prepared style is also saved to the
+ * given directory so that following runs don't have to read the style
+ * again. The file name is a hash of the contents of the style location,
+ * the mkgmap version and the options that influence how the style is read.
+ * Files included from outside of the style location are not checked. A
+ * style that is not in a local directory, file or jar file, e.g. one that
+ * is given by a URL, is not saved.
+ */
+public class StyleCache {
+	private static final Logger log = Logger.getLogger(StyleCache.class);
+
+	// change this when the format of the saved style changes in an incompatible way
+	private static final int CACHE_VERSION = 1;
+	private static final String CACHE_EXT = ".style.ser";
+
+	private static final Map<String, byte[]> prepared = new ConcurrentHashMap<>();
+
+	private StyleCache() {
+	}
+
+	/**
+	 * Get a style, either from the cache or by reading it.
+	 * @param loc The location of the style, may be null
+	 * @param name The name of the style, may be null
+	 * @param props The program properties
+	 * @return A new style instance that is not shared with other callers.
+	 * @throws FileNotFoundException If the style doesn't exist.
+	 */
+	public static StyleImpl getStyle(String loc, String name, EnhancedProperties props) throws FileNotFoundException {
+		String key = calcOptionsKey(loc, name, props);
+		byte[] data = prepared.get(key);
+		if (data == null) {
+			synchronized (StyleCache.class) {
+				data = prepared.get(key);
+				if (data == null) {
+					// the first caller gets the instance that was used to fill the cache
+					return loadOrCreate(loc, name, props, key);
+				}
+			}
+		}
+		StyleImpl style = deserialize(data);
+		if (style == null)
+			throw new ExitException("Could not copy prepared style " + (name == null ? loc : name));
+		return style;
+	}
+
+	/**
+	 * Forget the styles that were prepared in this run.
+	 */
+	static void clear() {
+		prepared.clear();
+	}
+
+	private static StyleImpl loadOrCreate(String loc, String name, EnhancedProperties props, String key)
+			throws FileNotFoundException {
+		String cacheDir = props.getProperty("style-cache");
+		Path cacheFile = null;
+		String hash = cacheDir == null ? null : calcContentHash(loc, key);
+		if (cacheDir != null && hash == null)
+			log.warn("cannot check the contents of style location", loc, "so it is not cached");
+		if (hash != null) {
+			cacheFile = Path.of(cacheDir, hash + CACHE_EXT);
+			byte[] data = readCacheFile(cacheFile);
+			if (data != null) {
+				StyleImpl style = deserialize(data);
+				if (style != null) {
+					log.info("using cached style", cacheFile);
+					prepared.put(key, data);
+					return style;
+				}
+			}
+		}
+
+		long t1 = System.currentTimeMillis();
+		StyleImpl style = new StyleImpl(loc, name, props, StyleImpl.WITHOUT_CHECKS);
+		byte[] data = serialize(style);
+		log.info("reading style took", System.currentTimeMillis() - t1, "ms");
+		if (cacheFile != null)
+			writeCacheFile(cacheFile, data);
+		prepared.put(key, data);
+		return style;
+	}
+
+	private static byte[] readCacheFile(Path cacheFile) {
+		if (!Files.isRegularFile(cacheFile))
+			return null;
+		try {
+			return Files.readAllBytes(cacheFile);
+		} catch (IOException e) {
+			log.warn("cannot read cached style", cacheFile, e.getMessage());
+		}
+		return null;
+	}
+
+	private static void writeCacheFile(Path cacheFile, byte[] data) {
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			// write to a temporary file first, so that concurrent runs never see a partial file
+			Path tmp = Files.createTempFile(cacheFile.getParent(), "style", ".tmp");
+			Files.write(tmp, data);
+			Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			log.info("saved style in cache", cacheFile);
+		} catch (IOException e) {
+			log.warn("cannot save style in cache", cacheFile, e.getMessage());
+		}
+	}
+
+	private static byte[] serialize(StyleImpl style) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+			oos.writeInt(CACHE_VERSION);
+			oos.writeUTF(Version.VERSION);
+			oos.writeObject(style);
+		} catch (IOException e) {
+			throw new ExitException("Could not prepare style for the cache: " + e.getMessage());
+		}
+		return bos.toByteArray();
+	}
+
+	private static StyleImpl deserialize(byte[] data) {
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+			if (ois.readInt() != CACHE_VERSION || !Version.VERSION.equals(ois.readUTF()))
+				return null;
+			return (StyleImpl) ois.readObject();
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			log.warn("cannot read prepared style", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * The options that are used when the style is read.
+	 */
+	private static String calcOptionsKey(String loc, String name, EnhancedProperties props) {
+		return loc + '|' + name
+				+ '|' + props.getProperty("levels")
+				+ '|' + props.containsKey("route")
+				+ '|' + props.getProperty("dead-ends");
+	}
+
+	/**
+	 * Calculate a hash over the files of the style location and those of
+	 * the built in styles which may be used as base styles.
+	 * @return the hash or null if the contents of a location can't be read
+	 */
+	private static String calcContentHash(String loc, String optionsKey) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new ExitException("No SHA-256 available");
+		}
+		md.update((CACHE_VERSION + "|" + Version.VERSION + "|" + optionsKey).getBytes(StandardCharsets.UTF_8));
+		if (loc != null && !addLocation(md, loc))
+			return null;
+
+		URL builtin = StyleCache.class.getClassLoader().getResource("styles");
+		if (builtin != null) {
+			md.update(builtin.toString().getBytes(StandardCharsets.UTF_8));
+			if (!addResource(md, builtin))
+				return null;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest())
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+	/**
+	 * Add the contents of a style location in the same forms that
+	 * {@link StyleFileLoader} accepts.
+	 * @return false if the location is neither a local file or directory
+	 * nor in a local jar file
+	 */
+	private static boolean addLocation(MessageDigest md, String loc) {
+		File file = new File(loc);
+		if (file.exists()) {
+			addFile(md, file);
+			return true;
+		}
+		md.update(loc.getBytes(StandardCharsets.UTF_8));
+		try {
+			String s = loc.toLowerCase();
+			if (s.startsWith("classpath:")) {
+				ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+				URL url = classLoader == null ? null : classLoader.getResource(loc.substring(10));
+				if (url == null)
+					url = StyleCache.class.getClassLoader().getResource(loc.substring(10));
+				return url != null && addResource(md, url);
+			} else if (s.startsWith("jar:")) {
+				return addResource(md, new URL(loc));
+			}
+		} catch (IOException e) {
+			log.warn("cannot check style location", loc, e.getMessage());
+		}
+		return false;
+	}
+
+	/**
+	 * Add the contents of a resource which is a local file or directory or
+	 * is in a local jar file. For a jar the whole jar file is added.
+	 */
+	private static boolean addResource(MessageDigest md, URL url) {
+		try {
+			if ("jar".equals(url.getProtocol()))
+				url = ((JarURLConnection) url.openConnection()).getJarFileURL();
+			if ("file".equals(url.getProtocol())) {
+				addFile(md, new File(url.toURI()));
+				return true;
+			}
+		} catch (IOException | URISyntaxException | IllegalArgumentException e) {
+			log.warn("cannot check style location", url, e.getMessage());
+		}
+		return false;
+	}
+
+	private static void addFile(MessageDigest md, File file) {
+		md.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+		try {
+			if (file.isDirectory()) {
+				try (Stream<Path> files = Files.walk(file.toPath())) {
+					for (Path p : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+						md.update(p.toString().getBytes(StandardCharsets.UTF_8));
+						md.update(Files.readAllBytes(p));
+					}
+				}
+			} else if (file.isFile()) {
+				md.update(Files.readAllBytes(file.toPath()));
+			}
+		} catch (IOException e) {
+			throw new ExitException("Could not read style location " + file + ": " + e.getMessage());
+		}
+	}
+}
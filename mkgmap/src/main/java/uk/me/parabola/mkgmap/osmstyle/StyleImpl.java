@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Serializable;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -43,6 +44,7 @@ import uk.me.parabola.mkgmap.CommandArgs;
 import uk.me.parabola.mkgmap.Options;
 import uk.me.parabola.mkgmap.general.LevelInfo;
 import uk.me.parabola.mkgmap.general.LineAdder;
+import uk.me.parabola.mkgmap.osmstyle.eval.ValueCache;
 import uk.me.parabola.mkgmap.reader.osm.FeatureKind;
 import uk.me.parabola.mkgmap.reader.osm.Rule;
 import uk.me.parabola.mkgmap.reader.osm.Style;
@@ -61,7 +63,7 @@ import uk.me.parabola.util.EnhancedProperties;
  *
  * @author Steve Ratcliffe
  */
-public class StyleImpl implements Style {
+public class StyleImpl implements Style, Serializable {
 	private static final Logger log = Logger.getLogger(StyleImpl.class);
 
 	public static final boolean WITH_CHECKS = true; 
@@ -81,7 +83,7 @@ public class StyleImpl implements Style {
 	private static final String FILE_OVERLAYS = "overlays";
 
 	// A handle on the style directory or file.
-	private final StyleFileLoader fileLoader;
+	private final transient StyleFileLoader fileLoader;
 	private final String location;
 
 	// The general information in the 'info' file.
@@ -543,7 +545,7 @@ public class StyleImpl implements Style {
 
 		Style style;
 		try {
-			style = new StyleImpl(loc, name, props, WITHOUT_CHECKS);
+			style = StyleCache.getStyle(loc, name, props);
 		} catch (SyntaxException e) {
 			Logger.defaultLogger.error("Error in style: " + e.getMessage());
 			throw new ExitException("Could not open style " + (name == null? "":name));
@@ -567,6 +569,7 @@ public class StyleImpl implements Style {
 		nodes.printStats("points");
 		lines.printStats("lines");
 		polygons.printStats("polygons");
+		ValueCache.printStats("style");
 	}
 	
 	public static void main(String[] args) throws FileNotFoundException {
@@ -80,7 +80,7 @@ import uk.me.parabola.mkgmap.reader.osm.TypeResult;
 import uk.me.parabola.mkgmap.reader.osm.Way;
 import uk.me.parabola.util.ElementQuadTree;
 import uk.me.parabola.util.EnhancedProperties;
-import uk.me.parabola.util.MultiHashMap;
+import uk.me.parabola.util.Long2ObjectMultiHashMap;
 
 /**
  * Convert from OSM to the mkgmap intermediate format using a style.
@@ -101,7 +101,7 @@ public class StyledConverter implements OsmConverter {
 	private Area bbox = Area.PLANET;
 
 	private final List<RestrictionRelation> restrictions = new ArrayList<>();
-	private final MultiHashMap<Long, RestrictionRelation> wayRelMap = new MultiHashMap<>();
+	private final Long2ObjectMultiHashMap<RestrictionRelation> wayRelMap = new Long2ObjectMultiHashMap<>();
 	
 	private Map<Node, List<Way>> poiRestrictions = new LinkedHashMap<>();
 	private Map<Node, CoordNode> replacedCoordPoi = new HashMap<>();
@@ -983,7 +983,7 @@ public class StyledConverter implements OsmConverter {
 					Collections.reverse(points);
 			} 
 		}
-		for (Long wayId: deletedRoads){
+		for (long wayId: deletedRoads){
 			if (wayRelMap.containsKey(wayId)){
 				// may happen e.g. when very short way is leading to nowhere 
 				log.warn("Way that is used in valid restriction relation was removed, id:",wayId);
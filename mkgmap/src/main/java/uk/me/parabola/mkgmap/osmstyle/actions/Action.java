@@ -16,6 +16,8 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.Serializable;
+
 import uk.me.parabola.mkgmap.reader.osm.Element;
 
 /**
@@ -23,7 +25,7 @@ import uk.me.parabola.mkgmap.reader.osm.Element;
  *
  * @author Steve Ratcliffe
  */
-public interface Action {
+public interface Action extends Serializable {
 
 	/**
 	 * 
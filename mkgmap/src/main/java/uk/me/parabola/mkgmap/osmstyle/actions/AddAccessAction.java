@@ -26,7 +26,7 @@ public class AddAccessAction extends ValueBuildedAction {
 	private final boolean modify;
 
 	// The tags used to build the value.
-	private Element valueTags;
+	private transient Element valueTags;
 
 	/**
 	 * Create an action to add the given value to all mkgmap access tags.
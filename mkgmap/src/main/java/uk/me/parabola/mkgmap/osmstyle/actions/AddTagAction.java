@@ -16,6 +16,9 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
 
@@ -28,10 +31,10 @@ import uk.me.parabola.mkgmap.reader.osm.TagDict;
 public class AddTagAction extends ValueBuildedAction {
 	private final boolean modify;
 	private final String tag;
-	private final short tagKey;
+	private transient short tagKey;
 
 	// The tags used to build the value.
-	private Element valueTags;
+	private transient Element valueTags;
 
 	/**
 	 * Create an action to add the given tag with a value.
@@ -66,6 +69,11 @@ public class AddTagAction extends ValueBuildedAction {
 		this.valueTags = valueTags;
 	}
 
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		tagKey = TagDict.getInstance().xlate(tag);
+	}
+
 	public String toString() {
 		return (modify ? "set " : "add ") + tag + "=" + calcValueBuildersString() + ";";
 	}
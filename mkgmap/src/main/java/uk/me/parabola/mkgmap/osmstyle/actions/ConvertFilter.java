@@ -20,6 +20,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import uk.me.parabola.mkgmap.osmstyle.eval.UnitConversions;
+import uk.me.parabola.mkgmap.osmstyle.eval.ValueCache;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 
 /**
@@ -31,15 +32,21 @@ public class ConvertFilter extends ValueFilter {
 	private static final Pattern UNIT_RE = Pattern.compile("\\s*([\\d.]+)\\s*([\\w/]*)\\s*");
 
 	private final UnitConversions units;
+	// the key of the converted values in the ValueCache
+	private final String cacheKey;
 
 	public ConvertFilter(String arg) {
 		units = UnitConversions.createConversion(arg);
+		cacheKey = "convert:" + arg;
 	}
 
 	protected String doFilter(String value, Element el) {
 		if (value == null || !units.isValid())
 			return value;
+		return ValueCache.forThread().get(cacheKey, value, this::convert);
+	}
 
+	private String convert(String value) {
 		String number = value;
 		Double factor = units.getDefaultFactor();
 
@@ -16,6 +16,9 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
 
@@ -25,9 +28,11 @@ import uk.me.parabola.mkgmap.reader.osm.TagDict;
  * @author Steve Ratcliffe
  */
 public class DeleteAction implements Action {
-	private final short tag;
+	private final String tagName;
+	private transient short tag;
 
 	public DeleteAction(String tag) {
+		this.tagName = tag;
 		this.tag = TagDict.getInstance().xlate(tag);
 	}
 
@@ -37,6 +42,11 @@ public class DeleteAction implements Action {
 	}
 
 	public String toString() {
-		return "delete " + TagDict.getInstance().get(tag) + ";";
+		return "delete " + tagName + ";";
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		tag = TagDict.getInstance().xlate(tagName);
 	}
 }
\ No newline at end of file
@@ -11,6 +11,8 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.regex.Pattern;
 
 import uk.me.parabola.mkgmap.reader.osm.Element;
@@ -41,7 +43,8 @@ import uk.me.parabola.mkgmap.scan.SyntaxException;
  */
 public class NotContainedFilter extends ValueFilter {
 	private final String quotedSeparator;
-	private final short tagKey;
+	private final String tagName;
+	private transient short tagKey;
 
 	public NotContainedFilter(String arg) {
 		String[] temp = arg.split(":");
@@ -57,7 +60,8 @@ public class NotContainedFilter extends ValueFilter {
 		else
 			quotedSeparator = Pattern.quote(";");
 		// set the tag short value
-		tagKey = TagDict.getInstance().xlate(temp[1]);
+		tagName = temp[1];
+		tagKey = TagDict.getInstance().xlate(tagName);
 	}
 
 	public String doFilter(String value, Element el) {
@@ -78,4 +82,9 @@ public class NotContainedFilter extends ValueFilter {
 		// nothing found => value not in tag's value
 		return value;
 	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		tagKey = TagDict.getInstance().xlate(tagName);
+	}
 }
@@ -13,6 +13,9 @@
 
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
 
@@ -26,9 +29,11 @@ import uk.me.parabola.mkgmap.reader.osm.TagDict;
  */
 public class NotEqualFilter extends ValueFilter {
 
-	private final short tagKey; 
+	private final String tagName;
+	private transient short tagKey;
 
 	public NotEqualFilter(String s) {
+		tagName = s;
 		tagKey = TagDict.getInstance().xlate(s);
 	}
 
@@ -42,4 +47,9 @@ public class NotEqualFilter extends ValueFilter {
 		return value;
 
 	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		tagKey = TagDict.getInstance().xlate(tagName);
+	}
 }
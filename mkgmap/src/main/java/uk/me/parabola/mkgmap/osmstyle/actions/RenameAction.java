@@ -16,6 +16,9 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
 
@@ -25,10 +28,14 @@ import uk.me.parabola.mkgmap.reader.osm.TagDict;
  * @author Steve Ratcliffe
  */
 public class RenameAction implements Action {
-	private final short from;
-	private final short to;
+	private final String fromName;
+	private final String toName;
+	private transient short from;
+	private transient short to;
 
 	public RenameAction(String from, String to) {
+		this.fromName = from;
+		this.toName = to;
 		this.from = TagDict.getInstance().xlate(from);
 		this.to = TagDict.getInstance().xlate(to);
 	}
@@ -42,4 +49,10 @@ public class RenameAction implements Action {
 		}
 		return false;
 	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		from = TagDict.getInstance().xlate(fromName);
+		to = TagDict.getInstance().xlate(toName);
+	}
 }
@@ -16,6 +16,7 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -33,7 +34,7 @@ import uk.me.parabola.mkgmap.scan.SyntaxException;
  * @author Steve Ratcliffe
  * @author Toby Speight
  */
-public class ValueBuilder {
+public class ValueBuilder implements Serializable {
 	private static final Pattern[] FILTER_ARG_PATTERNS = {
 			Pattern.compile("[ \t]*([^: \\t|]+:\"[^\"]+\")[ \t]*"),
 			Pattern.compile("[ \t]*([^: \\t|]+:'[^']+')[ \t]*"),
@@ -16,6 +16,8 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.Serializable;
+
 import uk.me.parabola.mkgmap.reader.osm.Element;
 
 /**
@@ -27,7 +29,7 @@ import uk.me.parabola.mkgmap.reader.osm.Element;
  * 
  * @author Steve Ratcliffe
  */
-public abstract class ValueFilter {
+public abstract class ValueFilter implements Serializable {
 	private ValueFilter next;
 
 	public final String filter(String value, Element el) {
@@ -16,6 +16,10 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.actions;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
 
@@ -25,9 +29,9 @@ import uk.me.parabola.mkgmap.reader.osm.TagDict;
  * 
  * @author Steve Ratcliffe
  */
-public class ValueItem {
+public class ValueItem implements Serializable {
 	private String tagname;
-	private short tagKey;
+	private transient short tagKey;
 	private ValueFilter filter;
 	private String value;
 	private boolean tagnameIsLocal;
@@ -72,6 +76,12 @@ public class ValueItem {
 		this.tagKey = TagDict.getInstance().xlate(tagname);
 	}
 
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (tagname != null)
+			tagKey = TagDict.getInstance().xlate(tagname);
+	}
+
 	public String toString() {
 		// TODO: don't ignore filter.
 		if (tagname == null)
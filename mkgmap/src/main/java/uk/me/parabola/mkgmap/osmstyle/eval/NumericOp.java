@@ -27,7 +27,6 @@ import uk.me.parabola.mkgmap.reader.osm.Element;
  * @author Steve Ratcliffe
  */
 public abstract class NumericOp extends AbstractBinaryOp {
-
 	/**
 	 * This is passed the result of a compareTo and the subclass
 	 * returns true or false depending on the operation.
@@ -48,11 +47,12 @@ public abstract class NumericOp extends AbstractBinaryOp {
 		if (val == null)
 			return false;
 
-		ValueWithUnit result = new ValueWithUnit(val);
+		ValueCache cache = ValueCache.forThread();
+		ValueWithUnit result = cache.get(ValueWithUnit.class, val, ValueWithUnit::new);
 		String val2 = getSecond().value(el);
 		if (val2 == null)
 			return false;
-		ValueWithUnit ourVal = new ValueWithUnit(val2);
+		ValueWithUnit ourVal = cache.get(ValueWithUnit.class, val2, ValueWithUnit::new);
 
 		if (!result.isValid() || !ourVal.isValid())
 			return false;
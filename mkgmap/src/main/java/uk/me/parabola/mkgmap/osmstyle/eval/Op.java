@@ -12,6 +12,7 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.eval;
 
+import java.io.Serializable;
 import java.util.Set;
 
 import uk.me.parabola.mkgmap.reader.osm.Element;
@@ -28,7 +29,7 @@ import static uk.me.parabola.mkgmap.osmstyle.eval.NodeType.OR;
  *
  * @author Steve Ratcliffe
  */
-public interface Op {
+public interface Op extends Serializable {
 
 	/**
 	 * Evaluate the expression.
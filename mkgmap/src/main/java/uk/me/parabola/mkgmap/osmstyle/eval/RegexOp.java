@@ -28,6 +28,8 @@ import static uk.me.parabola.mkgmap.osmstyle.eval.NodeType.*;
  */
 public class RegexOp extends AbstractBinaryOp {
 	private Pattern pattern;
+	// the key of the match results in the ValueCache
+	private String cacheKey;
 
 	public RegexOp() {
 		setType(REGEX);
@@ -38,7 +40,11 @@ public class RegexOp extends AbstractBinaryOp {
 		if (tagval == null)
 			return false;
 
-		return pattern.matcher(tagval).matches();
+		return ValueCache.forThread().get(cacheKey, tagval, this::matches);
+	}
+
+	private Boolean matches(String value) {
+		return pattern.matcher(value).matches();
 	}
 
 	public int priority() {
@@ -50,6 +56,7 @@ public class RegexOp extends AbstractBinaryOp {
 		assert second.isType(VALUE);
 		super.setSecond(second);
 		pattern = Pattern.compile(second.getKeyValue());
+		cacheKey = "regex:" + second.getKeyValue();
 	}
 
 	@Override
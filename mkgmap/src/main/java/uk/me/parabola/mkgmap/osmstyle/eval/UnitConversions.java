@@ -16,6 +16,7 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.eval;
 
+import java.io.Serializable;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
@@ -29,7 +30,7 @@ import uk.me.parabola.mkgmap.scan.SyntaxException;
  *
  * @author Steve Ratcliffe
  */
-public class UnitConversions {
+public class UnitConversions implements Serializable {
 	private static final Pattern CODE_RE = Pattern.compile("(.*)=>(.*)");
 
 	private static final EnumMap<UnitType, Map<String, Double>> CONVERSIONS = new EnumMap<>(UnitType.class);
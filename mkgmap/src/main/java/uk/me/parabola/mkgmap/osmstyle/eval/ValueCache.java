@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle.eval;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import uk.me.parabola.log.Logger;
+
+/**
+ * A bounded cache for the results of operations on tag values, e.g. a
+ * regular expression match or the parsing of a number with a unit. The
+ * same values appear in many elements, so each operation is done only once
+ * for each distinct value.
+ *
+ * There is one cache for each thread, it is shared by all ops and filters
+ * of the style that the thread works on. Ops that calculate the same
+ * result for a value use the same key, so e.g. all numeric comparisons
+ * share the parsed values. The cache is cleared when it holds
+ * {@link #MAX_SIZE} results. The hits and misses are reported with the
+ * statistics of the style.
+ */
+public class ValueCache {
+	private static final Logger statsLog = Logger.getLogger(ValueCache.class.getPackage().getName() + ".stats");
+
+	static final int MAX_SIZE = 4096;
+
+	private static final ThreadLocal<ValueCache> threadCache = ThreadLocal.withInitial(ValueCache::new);
+
+	// the results for each key of an operation
+	private final Map<Object, Map<String, Object>> results = new HashMap<>();
+	private int size;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @return the cache of the current thread
+	 */
+	public static ValueCache forThread() {
+		return threadCache.get();
+	}
+
+	/**
+	 * Get the result of an operation for the given value.
+	 * @param key identifies the operation, operations with equal keys
+	 * must calculate the same result for a value
+	 * @param value the tag value, not null
+	 * @param operation calculates the result for a value, it must not
+	 * depend on anything else and must not return null
+	 * @return the cached or calculated result
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, String value, Function<String, T> operation) {
+		Map<String, Object> map = results.get(key);
+		if (map != null) {
+			Object result = map.get(value);
+			if (result != null) {
+				hits++;
+				return (T) result;
+			}
+		}
+		misses++;
+		T result = operation.apply(value);
+		if (size >= MAX_SIZE) {
+			results.clear();
+			size = 0;
+			map = null;
+		}
+		if (map == null) {
+			map = new HashMap<>();
+			results.put(key, map);
+		}
+		map.put(value, result);
+		size++;
+		return result;
+	}
+
+	/**
+	 * @return the number of results in the cache
+	 */
+	int size() {
+		return size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Remove all results and reset the counters.
+	 */
+	public void clear() {
+		results.clear();
+		size = 0;
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * Log the hit rate of the cache of the current thread and reset the
+	 * counters.
+	 * @param header the header of the log message
+	 */
+	public static void printStats(String header) {
+		ValueCache cache = forThread();
+		long lookups = cache.hits + cache.misses;
+		if (lookups > 0 && statsLog.isInfoEnabled()) {
+			statsLog.info(header, "value cache stats (lookups/hits/hit rate)",
+					lookups + "/" + cache.hits + "/" + String.format("%.1f%%", 100.0 * cache.hits / lookups));
+		}
+		cache.hits = 0;
+		cache.misses = 0;
+	}
+}
@@ -25,7 +25,7 @@ import uk.me.parabola.mkgmap.reader.osm.Way;
  * @author WanMil
  */
 public abstract class CachedFunction extends StyleFunction {
-	short cacheKey = TagDict.INVALID_TAG_VALUE; 
+	transient short cacheKey = TagDict.INVALID_TAG_VALUE; 
 	public CachedFunction(String value) {
 		super(value);
 	}
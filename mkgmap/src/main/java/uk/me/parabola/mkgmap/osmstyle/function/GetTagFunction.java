@@ -12,6 +12,9 @@
  */
 package uk.me.parabola.mkgmap.osmstyle.function;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.TagDict;
 
@@ -24,7 +27,7 @@ import uk.me.parabola.mkgmap.reader.osm.TagDict;
  * @author Steve Ratcliffe
  */
 public class GetTagFunction extends StyleFunction {
-	short tagKey;
+	transient short tagKey;
 	public GetTagFunction(String value) {
 		super(value);
 		tagKey = TagDict.getInstance().xlate(value);
@@ -45,4 +48,9 @@ public class GetTagFunction extends StyleFunction {
 	public String toString() {
 		return "$" + getKeyValue();
 	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		tagKey = TagDict.getInstance().xlate(getKeyValue());
+	}
 }
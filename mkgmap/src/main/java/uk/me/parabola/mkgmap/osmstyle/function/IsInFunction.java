@@ -136,7 +136,7 @@ actually, would be safe not to call hasOn() even for POLYLINE, because none of t
 	private boolean hasIn;
 	private boolean hasOn;
 	private boolean hasOut;
-	private ElementQuadTree qt = null;
+	private transient ElementQuadTree qt = null;
 
 	public IsInFunction() {
 		super(null);
@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -33,6 +34,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -75,6 +80,8 @@ public class HousenumberGenerator {
 
 	// options for handling of unnamed (service?) roads	
 	private int nameSearchDepth = 3;
+	// number of threads used to process the street/city clusters
+	private final int numThreads;
 
 	private MultiHashMap<String, HousenumberIvl> interpolationWays;
 	private List<MapRoad> allRoads;
@@ -109,6 +116,7 @@ public class HousenumberGenerator {
 				Logger.defaultLogger.warn("name-service-roads=" + n + " was changed to name-service-roads=" + nameSearchDepth);
 			}
 		}
+		numThreads = Math.max(1, props.getProperty("housenumber-threads", 1));
 	}
 
 	/**
@@ -674,41 +682,11 @@ public class HousenumberGenerator {
 				cluster.computeIfAbsent(hnr.getRoadCityInfo(), k -> new ArrayList<>()).add(hnr);
 			}
 			
-			for (Entry<String, TreeMap<CityInfo, List<HousenumberRoad>>> streetNameEntry : streetnameCityRoadMap.entrySet()) {
-				String streetName = streetNameEntry.getKey();
-				
-				for (Entry<CityInfo, List<HousenumberRoad>> clusterEntry : streetNameEntry.getValue().entrySet()) {
-					useInterpolationInfo(streetName, clusterEntry.getValue(), road2HousenumberRoadMap);
-				}
-				
-				for (Entry<CityInfo, List<HousenumberRoad>> clusterEntry : streetNameEntry.getValue().entrySet()) {
-					List<HousenumberRoad> roadsInCluster = clusterEntry.getValue();
-					if (log.isDebugEnabled()) {
-						log.debug("processing road(s) with name",streetName,"in",clusterEntry.getKey() );
-					}
-					for (HousenumberRoad hnr : roadsInCluster) {
-						hnr.buildIntervals();
-					}
-					boolean optimized = false;
-					for (int loop = 0; loop < 10; loop++) {
-						for (HousenumberRoad hnr : roadsInCluster) {
-							hnr.checkIntervals();
-						}
-						checkWrongRoadAssignmments(roadsInCluster);
-						boolean changed = hasChanges(roadsInCluster);
-						if (!optimized && !changed) {
-							for (HousenumberRoad hnr : roadsInCluster) {
-								hnr.improveSearchResults();
-							}
-							changed = hasChanges(roadsInCluster);
-							optimized = true;
-						}
-						if (!changed)
-							break;
-					}
-					for (HousenumberRoad hnr : roadsInCluster) {
-						hnr.setNumbers();
-					}
+			if (numThreads > 1) {
+				processStreetsConcurrently(streetnameCityRoadMap, road2HousenumberRoadMap);
+			} else {
+				for (Entry<String, TreeMap<CityInfo, List<HousenumberRoad>>> streetNameEntry : streetnameCityRoadMap.entrySet()) {
+					processStreet(streetNameEntry.getKey(), streetNameEntry.getValue(), road2HousenumberRoadMap);
 				}
 			}
 		}
@@ -740,6 +718,180 @@ public class HousenumberGenerator {
 		}
 	}
 	
+	/**
+	 * Calculate the intervals and numbers for the roads with the same name in one city.
+	 * @param roadsInCluster the roads
+	 */
+	private static void processCluster(List<HousenumberRoad> roadsInCluster) {
+		if (log.isDebugEnabled()) {
+			HousenumberRoad first = roadsInCluster.get(0);
+			log.debug("processing road(s) with name",first.getName(),"in",first.getRoadCityInfo());
+		}
+		for (HousenumberRoad hnr : roadsInCluster) {
+			hnr.buildIntervals();
+		}
+		boolean optimized = false;
+		for (int loop = 0; loop < 10; loop++) {
+			for (HousenumberRoad hnr : roadsInCluster) {
+				hnr.checkIntervals();
+			}
+			checkWrongRoadAssignmments(roadsInCluster);
+			boolean changed = hasChanges(roadsInCluster);
+			if (!optimized && !changed) {
+				for (HousenumberRoad hnr : roadsInCluster) {
+					hnr.improveSearchResults();
+				}
+				changed = hasChanges(roadsInCluster);
+				optimized = true;
+			}
+			if (!changed)
+				break;
+		}
+		for (HousenumberRoad hnr : roadsInCluster) {
+			hnr.setNumbers();
+		}
+	}
+
+	/**
+	 * Use the addr:interpolation information and calculate the numbers for
+	 * the roads with the given name.
+	 * @param streetName the name of the roads
+	 * @param clusters the roads grouped by city
+	 * @param road2HousenumberRoadMap maps each road to its house number information
+	 */
+	private void processStreet(String streetName, TreeMap<CityInfo, List<HousenumberRoad>> clusters,
+			Map<MapRoad, HousenumberRoad> road2HousenumberRoadMap) {
+		for (List<HousenumberRoad> roadsInCluster : clusters.values()) {
+			useInterpolationInfo(streetName, roadsInCluster, road2HousenumberRoadMap);
+		}
+		for (List<HousenumberRoad> roadsInCluster : clusters.values()) {
+			processCluster(roadsInCluster);
+		}
+	}
+
+	/**
+	 * Process the streets with a pool of {@code numThreads} threads. Each
+	 * task works on the roads, houses and interpolation ways of its streets.
+	 * The tasks change the flags of existing road points only by making
+	 * them number nodes, and add new points. Streets with roads that share
+	 * a point which is not yet a number node are processed by the same task,
+	 * see {@link #groupDependentStreets(TreeMap, Map)}. The other shared
+	 * points, e.g. junctions, are number nodes already and are not changed.
+	 * So no point is written by two tasks and the result doesn't depend on
+	 * the order in which the tasks are executed.
+	 * @param streetnameCityRoadMap the roads grouped by name and city
+	 * @param road2HousenumberRoadMap maps each road to its house number information
+	 */
+	private void processStreetsConcurrently(TreeMap<String, TreeMap<CityInfo, List<HousenumberRoad>>> streetnameCityRoadMap,
+			Map<MapRoad, HousenumberRoad> road2HousenumberRoadMap) {
+		List<List<String>> groups = groupDependentStreets(streetnameCityRoadMap, road2HousenumberRoadMap);
+		if (groups.size() < 2) {
+			streetnameCityRoadMap.forEach((name, clusters) -> processStreet(name, clusters, road2HousenumberRoadMap));
+			return;
+		}
+		long t1 = System.currentTimeMillis();
+		final String threadTag = log.threadTag();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, groups.size()));
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (List<String> group : groups) {
+				results.add(executor.submit(() -> {
+					log.threadTag(threadTag);
+					for (String name : group)
+						processStreet(name, streetnameCityRoadMap.get(name), road2HousenumberRoadMap);
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MapFailedException("interrupted while processing house numbers");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new MapFailedException("failed to process house numbers", cause);
+		} finally {
+			executor.shutdownNow();
+		}
+		if (log.isDebugEnabled())
+			log.debug("processing of", streetnameCityRoadMap.size(), "streets in", groups.size(), "groups took", System.currentTimeMillis() - t1, "ms");
+	}
+
+	/**
+	 * Combine the streets which are connected by an addr:interpolation way.
+	 * The interpolation way of one street may use a house that is assigned
+	 * to a road with a different name and add the interpolated houses to
+	 * that road. Streets are also combined when their roads share a point
+	 * that is not a number node, because processing either street may
+	 * make it one.
+	 * @param streetnameCityRoadMap the roads grouped by name and city
+	 * @param road2HousenumberRoadMap maps each road to its house number information
+	 * @return list of groups, each group keeps the original order of the street names 
+	 */
+	private List<List<String>> groupDependentStreets(TreeMap<String, TreeMap<CityInfo, List<HousenumberRoad>>> streetnameCityRoadMap,
+			Map<MapRoad, HousenumberRoad> road2HousenumberRoadMap) {
+		List<String> names = new ArrayList<>(streetnameCityRoadMap.keySet());
+		Map<String, Integer> nameIndex = new HashMap<>();
+		int[] parent = new int[names.size()];
+		for (int i = 0; i < parent.length; i++) {
+			parent[i] = i;
+			nameIndex.put(names.get(i), i);
+		}
+		for (int i = 0; i < names.size(); i++) {
+			for (HousenumberIvl hivl : interpolationWays.get(names.get(i))) {
+				for (HousenumberMatch house : hivl.getHouseNodes()) {
+					if (house == null)
+						continue;
+					union(parent, i, nameIndex.get(getName(house.getHousenumberRoad())));
+					if (house.getRoad() != null)
+						union(parent, i, nameIndex.get(getName(road2HousenumberRoadMap.get(house.getRoad()))));
+				}
+			}
+		}
+		Map<Coord, Integer> pointOwners = new IdentityHashMap<>();
+		for (int i = 0; i < names.size(); i++) {
+			for (List<HousenumberRoad> roadsInCluster : streetnameCityRoadMap.get(names.get(i)).values()) {
+				for (HousenumberRoad hnr : roadsInCluster) {
+					for (Coord co : hnr.getRoad().getPoints()) {
+						if (!co.isNumberNode()) {
+							Integer owner = pointOwners.putIfAbsent(co, i);
+							if (owner != null)
+								union(parent, i, owner);
+						}
+					}
+				}
+			}
+		}
+		Map<Integer, List<String>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < names.size(); i++) {
+			groups.computeIfAbsent(findRoot(parent, i), k -> new ArrayList<>()).add(names.get(i));
+		}
+		return new ArrayList<>(groups.values());
+	}
+
+	private static String getName(HousenumberRoad hnr) {
+		return hnr == null ? null : hnr.getName();
+	}
+
+	private static void union(int[] parent, int i, Integer j) {
+		if (j == null)
+			return;
+		int r1 = findRoot(parent, i);
+		int r2 = findRoot(parent, j);
+		if (r1 != r2)
+			parent[Math.max(r1, r2)] = Math.min(r1, r2);
+	}
+
+	private static int findRoot(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
 	private List<HousenumberRoad> createHousenumberRoads(
 			MultiHashMap<MapRoad, HousenumberMatch> initialHousesForRoads) {
 		List<HousenumberRoad> hnrList = new ArrayList<>();
@@ -22,6 +22,7 @@ import java.util.List;
 
 import uk.me.parabola.mkgmap.general.LoadableMapDataSource;
 import uk.me.parabola.mkgmap.reader.osm.OsmMapDataSource;
+import uk.me.parabola.mkgmap.reader.osm.splitter.SplitterTileDataSource;
 import uk.me.parabola.mkgmap.reader.polish.PolishMapDataSource;
 import uk.me.parabola.mkgmap.reader.test.ElementTestDataSource;
 
@@ -40,6 +41,7 @@ public class MapReader {
 		loaders = new ArrayList<>();
 		loaders.add(new PolishMapDataSource());
 		loaders.add(new ElementTestDataSource());
+		loaders.add(new SplitterTileDataSource());
 		loaders.add(new OsmMapDataSource()); // must be last
 	}
 
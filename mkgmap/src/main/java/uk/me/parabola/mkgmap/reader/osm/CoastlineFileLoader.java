@@ -17,25 +17,39 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import uk.me.parabola.imgfmt.app.Area;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.log.Logger;
+import uk.me.parabola.util.ElementQuadTree;
 import uk.me.parabola.util.EnhancedProperties;
 
+/**
+ * Loads the coastline files once and keeps the joined coastlines for all tiles.
+ *
+ * Long coastlines are split into chunks of a limited number of points which
+ * are stored in a quad tree, so that a tile only has to look at the parts of
+ * the coastlines that are near to it.
+ */
 public final class CoastlineFileLoader {
 
 	private static final Logger log = Logger.getLogger(CoastlineFileLoader.class);
 
+	/** The maximum number of points in a chunk of a coastline */
+	private static final int CHUNK_SIZE = 250;
+
 	private final Set<String> coastlineFiles;
-	private final Collection<CoastlineWay> coastlines = new ArrayList<>();
+	private final List<CoastlineChunk[]> coastlines = new ArrayList<>();
+	private ElementQuadTree index;
 
 	private final AtomicBoolean coastlinesLoaded = new AtomicBoolean(false);
 	private final AtomicBoolean loadingStarted = new AtomicBoolean(false);
@@ -99,7 +113,7 @@ public final class CoastlineFileLoader {
 				while (wayIter.hasNext()) {
 					Way way = wayIter.next();
 					wayIter.remove();
-					coastlines.add(new CoastlineWay(way.getId(), way.getPoints()));
+					addChunks(way);
 				}
 
 				log.info((coastlines.size() - nBefore), "coastlines loaded from", coastlineFile);
@@ -109,9 +123,51 @@ public final class CoastlineFileLoader {
 				log.error("Unexpected exception reading " + coastlineFile, exp);
 			}
 		}
+		buildIndex();
 		coastlinesLoaded.set(true);
 	}
 
+	/**
+	 * Split the coastline into chunks. Consecutive chunks share the end point.
+	 * @param way the joined coastline
+	 */
+	private void addChunks(Way way) {
+		List<Coord> points = way.getPoints();
+		int wayIndex = coastlines.size();
+		int numChunks = Math.max(1, (points.size() + CHUNK_SIZE - 2) / CHUNK_SIZE);
+		CoastlineChunk[] wayChunks = new CoastlineChunk[numChunks];
+		for (int i = 0; i < numChunks; i++) {
+			int start = i * CHUNK_SIZE;
+			int end = Math.min(start + CHUNK_SIZE, points.size() - 1);
+			wayChunks[i] = new CoastlineChunk(way.getId(), points.subList(start, end + 1), wayIndex, i);
+		}
+		coastlines.add(wayChunks);
+	}
+
+	private void buildIndex() {
+		if (coastlines.isEmpty())
+			return;
+		List<Element> chunks = new ArrayList<>();
+		int minLat = Integer.MAX_VALUE;
+		int minLong = Integer.MAX_VALUE;
+		int maxLat = Integer.MIN_VALUE;
+		int maxLong = Integer.MIN_VALUE;
+		for (CoastlineChunk[] wayChunks : coastlines) {
+			for (CoastlineChunk chunk : wayChunks) {
+				// the chunks need their own ids because ways with the same id are equal
+				chunk.setChunkId(chunks.size());
+				chunks.add(chunk);
+				Area bbox = chunk.getBbox();
+				minLat = Math.min(minLat, bbox.getMinLat());
+				minLong = Math.min(minLong, bbox.getMinLong());
+				maxLat = Math.max(maxLat, bbox.getMaxLat());
+				maxLong = Math.max(maxLong, bbox.getMaxLong());
+			}
+		}
+		index = new ElementQuadTree(new Area(minLat, minLong, maxLat, maxLong), chunks);
+		log.info("Coastline index contains", chunks.size(), "chunks of", coastlines.size(), "coastlines");
+	}
+
 	public Collection<Way> getCoastlines(Area bbox) {
 		if (!coastlinesLoaded.get()) {
 			synchronized (this) {
@@ -119,17 +175,56 @@ public final class CoastlineFileLoader {
 			}
 		}
 		Collection<Way> ways = new ArrayList<>();
-		for (CoastlineWay w : coastlines) {
-			if (w.getBbox().intersects(bbox)) {
-				Way x = new Way(w.getOriginalId(), w.getPoints());
-				x.markAsGeneratedFrom(w);
-				x.addTag("natural", "coastline");
-				ways.add(x);
+		if (index == null)
+			return ways;
+
+		// collect the chunks in the tile, sorted by coastline
+		Map<Integer, List<CoastlineChunk>> found = new TreeMap<>();
+		for (Element el : index.get(bbox)) {
+			CoastlineChunk chunk = (CoastlineChunk) el;
+			found.computeIfAbsent(chunk.wayIndex, k -> new ArrayList<>()).add(chunk);
+		}
+
+		// join consecutive chunks again, the end points of the
+		// parts are outside of the tile so that clipping them gives
+		// the same result as clipping the complete coastline
+		for (List<CoastlineChunk> wayChunks : found.values()) {
+			wayChunks.sort(Comparator.comparingInt(c -> c.chunkIndex));
+			CoastlineChunk[] allChunks = coastlines.get(wayChunks.get(0).wayIndex);
+			if (allChunks.length > 1 && wayChunks.get(0).chunkIndex == 0
+					&& wayChunks.get(wayChunks.size() - 1).chunkIndex == allChunks.length - 1
+					&& allChunks[0].getFirstPoint() == allChunks[allChunks.length - 1].getLastPoint()) {
+				// the clipped parts at the start and the end of a closed
+				// coastline might have to be joined, use the complete way
+				wayChunks = Arrays.asList(allChunks);
+			}
+			List<Coord> points = null;
+			CoastlineChunk first = null;
+			int lastIndex = -1;
+			for (CoastlineChunk chunk : wayChunks) {
+				if (points != null && chunk.chunkIndex == lastIndex + 1) {
+					List<Coord> chunkPoints = chunk.getPoints();
+					points.addAll(chunkPoints.subList(1, chunkPoints.size()));
+				} else {
+					if (points != null)
+						ways.add(createCoastline(first, points));
+					first = chunk;
+					points = new ArrayList<>(chunk.getPoints());
+				}
+				lastIndex = chunk.chunkIndex;
 			}
+			ways.add(createCoastline(first, points));
 		}
 		return ways;
 	}
 
+	private static Way createCoastline(CoastlineChunk orig, List<Coord> points) {
+		Way x = new Way(orig.coastlineId, points);
+		x.markAsGeneratedFrom(orig);
+		x.addTag("natural", "coastline");
+		return x;
+	}
+
 	public static class CoastlineWay extends Way {
 		private final Area bbox;
 
@@ -185,4 +280,24 @@ public final class CoastlineFileLoader {
 		}
 	}
 
+	/**
+	 * A part of a coastline.
+	 */
+	private static class CoastlineChunk extends CoastlineWay {
+		private final long coastlineId;
+		private final int wayIndex;
+		private final int chunkIndex;
+
+		CoastlineChunk(long coastlineId, List<Coord> points, int wayIndex, int chunkIndex) {
+			super(coastlineId, points);
+			this.coastlineId = coastlineId;
+			this.wayIndex = wayIndex;
+			this.chunkIndex = chunkIndex;
+		}
+
+		void setChunkId(long id) {
+			setId(id);
+		}
+	}
+
 }
@@ -33,6 +33,8 @@ public abstract class Element {
 	private static final byte TYPE_RELATION = 3;
 	
 	private Tags tags;
+	// key-indexed copy of the tags while the style rules are evaluated, see TagSnapshot
+	private TagSnapshot tagSnapshot;
 	private long id;
 	private long originalId;
 	private byte origType;
@@ -88,6 +90,7 @@ public abstract class Element {
 		if (tags == null)
 			tags = new Tags();
 		tags.put(key, val);
+		tagsChanged();
 	}
 
 	/**
@@ -101,19 +104,33 @@ public abstract class Element {
 		if (tags == null)
 			tags = new Tags();
 		tags.put(tagKey, val);
+		tagsChanged();
 	}
 
 	public String getTag(String key) {
+		if (tagSnapshot != null)
+			return tagSnapshot.get(TagDict.getInstance().xlate(key), tags);
 		if (tags == null)
 			return null;
 		return tags.get(key);
 	}
 	public String getTag(short tagKey) {
+		if (tagSnapshot != null)
+			return tagSnapshot.get(tagKey, tags);
 		if (tags == null)
 			return null;
 		return tags.get(tagKey);
 	}
 
+	void setTagSnapshot(TagSnapshot snapshot) {
+		tagSnapshot = snapshot;
+	}
+
+	private void tagsChanged() {
+		if (tagSnapshot != null)
+			tagSnapshot.invalidate();
+	}
+
 
 	public String deleteTag(String tagname) {
 		String old = null;
@@ -122,7 +139,7 @@ public abstract class Element {
 			if (tags.size() == 0) {
 				tags = null;
 			}
-			
+			tagsChanged();
 		}
 		return old;
 	}
@@ -134,7 +151,7 @@ public abstract class Element {
 			if (tags.size() == 0) {
 				tags = null;
 			}
-			
+			tagsChanged();
 		}
 		return old;
 	}
@@ -220,6 +237,15 @@ public abstract class Element {
 		originalId = id;
 	}
 
+	/**
+	 * Replace the fake id of a generated element.
+	 * @param newId the new id
+	 * @see FakeIdGenerator#beginLocalIds()
+	 */
+	void changeFakeId(long newId) {
+		id = newId;
+	}
+
 	/**
 	 * Mark this element as generated from another element. 
 	 * @param orig the original element (used to extract the type) 
@@ -270,6 +296,7 @@ public abstract class Element {
 			tags = null;
 		else
 			tags = other.tags.copy();
+		tagsChanged();
 	}
 
 	protected void copyIds(Element other) {
@@ -291,6 +318,7 @@ public abstract class Element {
 
 	public void removeAllTags() {
 		tags = null;
+		tagsChanged();
 	}
 
 	/**
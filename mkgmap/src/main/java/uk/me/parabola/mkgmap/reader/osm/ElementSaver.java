@@ -13,19 +13,21 @@
 package uk.me.parabola.mkgmap.reader.osm;
 
 import java.util.AbstractMap;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.imgfmt.app.Area;
 import uk.me.parabola.imgfmt.app.Coord;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.general.LineClipper;
 import uk.me.parabola.util.EnhancedProperties;
-import uk.me.parabola.util.MultiHashMap;
+import uk.me.parabola.util.Long2ObjectHashOrderMap;
+import uk.me.parabola.util.Long2ObjectMultiHashMap;
 
 /**
  * This is where we save the elements read from any of the file formats that
@@ -49,11 +51,11 @@ public class ElementSaver {
 
 	protected OSMId2ObjectMap<Coord> coordMap = new OSMId2ObjectMap<>();
 
-	protected Map<Long, Node> nodeMap;
-	protected Map<Long, Way> wayMap;
-	protected Map<Long, Relation> relationMap;
+	protected Long2ObjectMap<Node> nodeMap;
+	protected Long2ObjectMap<Way> wayMap;
+	protected Long2ObjectMap<Relation> relationMap;
 
-	protected final MultiHashMap<Long, Map.Entry<String, Relation>> deferredRelationMap = new MultiHashMap<>();
+	protected final Long2ObjectMultiHashMap<Map.Entry<String, Relation>> deferredRelationMap = new Long2ObjectMultiHashMap<>();
 
 	// This is an explicitly given bounding box from the input file command line etc.
 	private Area boundingBox;
@@ -64,6 +66,18 @@ public class ElementSaver {
 	private int maxLat = Integer.MIN_VALUE;
 	private int maxLon = Integer.MIN_VALUE;
 
+	// Used with a two pass load: the nodes and ways that are needed, see setNeededIds()
+	private LongSet neededNodes;
+	private LongSet relationWays;
+	// the last point that was not stored, the handler may still use it for a node with tags
+	private long pendingId;
+	private Coord pendingCoord;
+	private int numDroppedPoints;
+	private int numDroppedWays;
+
+	// multipolygons that are processed with several threads, null if they are processed at once
+	private final MultiPolygonProcessor multiPolygonProcessor;
+
 	// Options
 	private final boolean ignoreTurnRestrictions;
 	private final String[] deadEndArgs;
@@ -73,17 +87,20 @@ public class ElementSaver {
 
 	public ElementSaver(EnhancedProperties args) {
 		if (args.getProperty("preserve-element-order", false)) {
-			nodeMap = new LinkedHashMap<>(5000);
-			wayMap = new LinkedHashMap<>(5000);
-			relationMap = new LinkedHashMap<>();
+			nodeMap = new Long2ObjectLinkedOpenHashMap<>(5000);
+			wayMap = new Long2ObjectLinkedOpenHashMap<>(5000);
+			relationMap = new Long2ObjectLinkedOpenHashMap<>();
 		} else {
-			nodeMap = new HashMap<>();
-			wayMap = new HashMap<>();
-			relationMap = new HashMap<>();
+			// same order as a HashMap, the output depends on it
+			nodeMap = new Long2ObjectHashOrderMap<>();
+			wayMap = new Long2ObjectHashOrderMap<>();
+			relationMap = new Long2ObjectHashOrderMap<>();
 		}
 
 		ignoreTurnRestrictions = args.getProperty("ignore-turn-restrictions", false) || !args.containsKey("route");
 		deadEndArgs = args.getProperty("dead-ends", "fixme,FIXME").split(",");
+		int mpThreads = args.getProperty("multipolygon-threads", 1);
+		multiPolygonProcessor = mpThreads > 1 ? new MultiPolygonProcessor(mpThreads) : null;
 	}
 
 	/**
@@ -96,7 +113,13 @@ public class ElementSaver {
 	 * @param co The point.
 	 */
 	public void addPoint(long id, Coord co) {
-		coordMap.put(id, co);
+		if (neededNodes == null || neededNodes.contains(id)) {
+			coordMap.put(id, co);
+		} else {
+			pendingId = id;
+			pendingCoord = co;
+			numDroppedPoints++;
+		}
 		if (co.getLatitude() < minLat)
 			minLat = co.getLatitude();
 		if (co.getLatitude() > maxLat)
@@ -114,6 +137,7 @@ public class ElementSaver {
 	 * @param node The osm node.
 	 */
 	public void addNode(Node node) {
+		processDeferredRelations();
 		nodeMap.put(node.getId(), node);
 	}
 
@@ -123,6 +147,11 @@ public class ElementSaver {
 	 * @param way The osm way.
 	 */
 	public void addWay(Way way) {
+		processDeferredRelations();
+		if (relationWays != null && way.getTagCount() == 0 && !relationWays.contains(way.getId())) {
+			numDroppedWays++;
+			return;
+		}
 		wayMap.put(way.getId(), way);
 		/*
 		Way old = wayMap.put(way.getId(), way);
@@ -158,9 +187,16 @@ public class ElementSaver {
 
 		if(rel != null) {
 			long id = rel.getId();
+			// the subclasses are used by other savers and processed at once
+			boolean defer = multiPolygonProcessor != null && rel.getClass() == MultiPolygonRelation.class;
+			if (!defer)
+				processDeferredRelations();
 			relationMap.put(rel.getId(), rel);
 			
-			rel.processElements();
+			if (defer)
+				multiPolygonProcessor.add((MultiPolygonRelation) rel);
+			else
+				rel.processElements();
 
 			List<Map.Entry<String, Relation>> entries = deferredRelationMap.remove(id);
 			if (entries != null) {
@@ -190,7 +226,10 @@ public class ElementSaver {
 	}
 
 	public Coord getCoord(long id) {
-		return coordMap.get(id);
+		Coord co = coordMap.get(id);
+		if (co == null && pendingCoord != null && id == pendingId)
+			return pendingCoord;
+		return co;
 	}
 
 	public Node getNode(long id) {
@@ -205,8 +244,38 @@ public class ElementSaver {
 		return relationMap.get(id);
 	}
 	
+	/**
+	 * Used for a two pass load. Only the points with the given ids are stored
+	 * and ways without tags are only stored when they are used in a relation.
+	 * @param neededNodes the ids of the nodes that are used in ways or relations
+	 * @param relationWays the ids of the ways that are used in relations
+	 * @see ReferenceCollector
+	 */
+	public void setNeededIds(LongSet neededNodes, LongSet relationWays) {
+		this.neededNodes = neededNodes;
+		this.relationWays = relationWays;
+	}
+
+	/**
+	 * Process the multipolygons that were collected to be processed with
+	 * several threads. This is done before anything else is added, so the
+	 * result and the ids are the same as when each relation is processed
+	 * when it is added.
+	 */
+	private void processDeferredRelations() {
+		if (multiPolygonProcessor != null)
+			multiPolygonProcessor.process(wayMap);
+	}
+
 	public void finishLoading() {
+		processDeferredRelations();
 		coordMap = null;
+		if (neededNodes != null) {
+			log.info("Two pass load: ignored", numDroppedPoints, "points and", numDroppedWays, "ways without tags");
+			neededNodes = null;
+			relationWays = null;
+			pendingCoord = null;
+		}
 	}
 
 	/**
@@ -312,15 +381,15 @@ public class ElementSaver {
 		log.info("Making boundary nodes - finished (" + numBoundaryNodesAdded + " added, " + numBoundaryNodesDetected + " detected)");
 	}
 
-	public Map<Long, Node> getNodes() {
+	public Long2ObjectMap<Node> getNodes() {
 		return nodeMap;
 	}
 	
-	public Map<Long, Way> getWays() {
+	public Long2ObjectMap<Way> getWays() {
 		return wayMap;
 	}
 
-	public Map<Long, Relation> getRelations() {
+	public Long2ObjectMap<Relation> getRelations() {
 		return relationMap;
 	}
 	
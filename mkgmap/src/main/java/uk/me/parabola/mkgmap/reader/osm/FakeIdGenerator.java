@@ -25,6 +25,10 @@ public class FakeIdGenerator {
 	private static final AtomicLong fakeId = new AtomicLong(START_ID);
 
 	private static long startId = START_ID;
+
+	// ids used by the current thread instead of the global ones, see beginLocalIds()
+	private static final ThreadLocal<long[]> localIds = new ThreadLocal<>();
+	private static final long LOCAL_ID_OFFSET = 1L << 60;
 	
 	/**
 	 * Change the first id that is returned by this generator. The method must 
@@ -42,9 +46,45 @@ public class FakeIdGenerator {
 	 * @return a unique id
 	 */
 	public static long makeFakeId() {
+		long[] local = localIds.get();
+		if (local != null)
+			return ++local[0];
 		return fakeId.incrementAndGet(); 
 	}
 
+	/**
+	 * Let the current thread use ids from a separate range until
+	 * {@link #endLocalIds()} is called. This is used when work is done
+	 * concurrently: the ids can later be replaced by ids from
+	 * {@link #reserveIds(long)}, so that they are the same as in a
+	 * sequential run.
+	 * @return the id before the first local id
+	 */
+	public static long beginLocalIds() {
+		long first = startId + LOCAL_ID_OFFSET;
+		localIds.set(new long[] { first });
+		return first;
+	}
+
+	/**
+	 * Stop using local ids in the current thread.
+	 * @return the number of local ids that were used
+	 */
+	public static long endLocalIds() {
+		long[] local = localIds.get();
+		localIds.remove();
+		return local == null ? 0 : local[0] - (startId + LOCAL_ID_OFFSET);
+	}
+
+	/**
+	 * Reserve a number of ids.
+	 * @param count the number of ids
+	 * @return the id before the first reserved id
+	 */
+	public static long reserveIds(long count) {
+		return fakeId.getAndAdd(count);
+	}
+
 	public static boolean isFakeId(long id) {
 		return id >= startId;
 	}
@@ -16,6 +16,7 @@
 
 package uk.me.parabola.mkgmap.reader.osm;
 
+import java.io.Serializable;
 import java.util.Formatter;
 
 import uk.me.parabola.imgfmt.ExitException;
@@ -30,7 +31,7 @@ import uk.me.parabola.mkgmap.general.MapShape;
  * will be needed to represent it on the map.  So we have a range of
  * resolutions at which it will be present.
  */
-public class GType {
+public class GType implements Serializable {
 	private static final Logger log = Logger.getLogger(GType.class);
 
 	private final FeatureKind featureKind;
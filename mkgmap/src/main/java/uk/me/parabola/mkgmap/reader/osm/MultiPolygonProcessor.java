@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.me.parabola.imgfmt.MapFailedException;
+import uk.me.parabola.log.Logger;
+import uk.me.parabola.mkgmap.reader.osm.MultiPolygonRelation.JoinedWay;
+
+/**
+ * Processes consecutive multipolygon relations of a tile with a pool of
+ * threads, see {@link ElementSaver#processDeferredRelations()}.
+ *
+ * Relations that share member ways are processed in the same task in the
+ * original order, because the tags of the shared ways are changed. The
+ * generated ways get temporary ids while they are created. They are added
+ * to the way map in the original order of the relations, and the ids are
+ * replaced by ids that are reserved in that order, so the result doesn't
+ * depend on the number of threads.
+ */
+public class MultiPolygonProcessor {
+	private static final Logger log = Logger.getLogger(MultiPolygonProcessor.class);
+
+	private final int numThreads;
+	private final List<MultiPolygonRelation> relations = new ArrayList<>();
+
+	public MultiPolygonProcessor(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Add a relation, it is processed when {@link #process(Map)} is called.
+	 * @param rel the multipolygon relation
+	 */
+	public void add(MultiPolygonRelation rel) {
+		relations.add(rel);
+	}
+
+	/**
+	 * Process all relations that were added.
+	 * @param wayMap the way map of the tile, receives the generated ways
+	 */
+	public void process(Map<Long, Way> wayMap) {
+		if (relations.isEmpty())
+			return;
+		long t1 = System.currentTimeMillis();
+		List<List<Integer>> groups = groupByMemberWays();
+		Result[] results = new Result[relations.size()];
+		if (groups.size() < 2) {
+			for (int i = 0; i < results.length; i++) {
+				results[i] = processRelation(relations.get(i));
+				apply(relations.get(i), results[i], wayMap);
+			}
+			relations.clear();
+			return;
+		}
+
+		final String threadTag = log.threadTag();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, groups.size()));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (List<Integer> group : groups) {
+				futures.add(executor.submit(() -> {
+					log.threadTag(threadTag);
+					for (int i : group)
+						results[i] = processRelation(relations.get(i));
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MapFailedException("interrupted while processing multipolygons");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new MapFailedException("failed to process multipolygons", cause);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int i = 0; i < results.length; i++) {
+			apply(relations.get(i), results[i], wayMap);
+		}
+		log.info("Processed", relations.size(), "multipolygons in", groups.size(), "groups in",
+				System.currentTimeMillis() - t1, "ms");
+		relations.clear();
+	}
+
+	private static Result processRelation(MultiPolygonRelation rel) {
+		long firstId = FakeIdGenerator.beginLocalIds();
+		Map<Long, Way> ways;
+		long numIds;
+		try {
+			ways = rel.processElementsDeferred();
+		} finally {
+			numIds = FakeIdGenerator.endLocalIds();
+		}
+		return new Result(ways, firstId, numIds);
+	}
+
+	/**
+	 * Give the generated ways and rings their final ids and add the ways to
+	 * the way map.
+	 */
+	private static void apply(MultiPolygonRelation rel, Result result, Map<Long, Way> wayMap) {
+		long base = FakeIdGenerator.reserveIds(result.numIds);
+		Set<Way> done = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Way w : result.ways.values()) {
+			changeId(w, result.firstId, base, done);
+			wayMap.put(w.getId(), w);
+		}
+		if (rel.polygons != null) {
+			for (JoinedWay jw : rel.polygons)
+				changeId(jw, result.firstId, base, done);
+		}
+	}
+
+	private static void changeId(Way w, long firstId, long base, Set<Way> done) {
+		if (!done.add(w))
+			return;
+		w.changeFakeId(base + (w.getId() - firstId));
+		if (w instanceof JoinedWay) {
+			for (Way orgWay : ((JoinedWay) w).getOriginalWays()) {
+				if (orgWay instanceof JoinedWay)
+					changeId(orgWay, firstId, base, done);
+			}
+		}
+	}
+
+	/**
+	 * Combine relations which have common member ways.
+	 * @return list of groups, each group keeps the original order of the relations
+	 */
+	private List<List<Integer>> groupByMemberWays() {
+		int[] parent = new int[relations.size()];
+		for (int i = 0; i < parent.length; i++)
+			parent[i] = i;
+		Map<Long, Integer> wayOwners = new HashMap<>();
+		for (int i = 0; i < relations.size(); i++) {
+			for (Map.Entry<String, Element> entry : relations.get(i).getElements()) {
+				if (!(entry.getValue() instanceof Way))
+					continue;
+				Integer owner = wayOwners.putIfAbsent(entry.getValue().getId(), i);
+				if (owner != null) {
+					int r1 = findRoot(parent, owner);
+					int r2 = findRoot(parent, i);
+					if (r1 != r2)
+						parent[Math.max(r1, r2)] = Math.min(r1, r2);
+				}
+			}
+		}
+		Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < relations.size(); i++) {
+			groups.computeIfAbsent(findRoot(parent, i), k -> new ArrayList<>()).add(i);
+		}
+		return new ArrayList<>(groups.values());
+	}
+
+	private static int findRoot(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static class Result {
+		final Map<Long, Way> ways;
+		final long firstId;
+		final long numIds;
+
+		Result(Map<Long, Way> ways, long firstId, long numIds) {
+			this.ways = ways;
+			this.firstId = firstId;
+			this.numIds = numIds;
+		}
+	}
+}
@@ -76,7 +76,7 @@ public class MultiPolygonRelation extends Relation {
 	private static final byte INT_ROLE_OTHER = 16; 
 
 	/** maps ids to ways, will be extended with joined ways */
-	private final Map<Long, Way> tileWayMap; // never clear!
+	private Map<Long, Way> tileWayMap; // never clear!
 	
 
 	protected List<JoinedWay> polygons;
@@ -632,6 +632,23 @@ public class MultiPolygonRelation extends Relation {
 		cleanup();
 	}
 
+	/**
+	 * Process the elements like {@link #processElements()}, but don't add the
+	 * resulting ways to the way map of the tile.
+	 * @return the ways that have to be added to the way map, in the order in
+	 * which they would have been added
+	 */
+	final Map<Long, Way> processElementsDeferred() {
+		Map<Long, Way> wayMap = tileWayMap;
+		tileWayMap = new LinkedHashMap<>();
+		try {
+			processElements();
+			return tileWayMap;
+		} finally {
+			tileWayMap = wayMap;
+		}
+	}
+
 	/**
 	 * Other Implementations can return true to process the MP as is 
 	 * @return true if the MP should never be split before cutting.
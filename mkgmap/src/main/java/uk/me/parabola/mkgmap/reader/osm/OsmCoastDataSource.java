@@ -28,6 +28,12 @@ public class OsmCoastDataSource extends OsmMapDataSource {
 		elementSaver = new CoastlineElementSaver(getConfig());
 	}
 
+	@Override
+	protected boolean isTwoPassLoad() {
+		// the saver removes the tags of the coastline ways
+		return false;
+	}
+
 	@Override
 	public Set<String> getUsedTags() {
 		return Collections.singleton("natural");
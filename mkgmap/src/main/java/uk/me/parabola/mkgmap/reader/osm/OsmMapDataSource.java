@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import uk.me.parabola.imgfmt.ExitException;
 import uk.me.parabola.imgfmt.Utils;
 import uk.me.parabola.log.Logger;
 import uk.me.parabola.mkgmap.CommandArgs;
@@ -145,7 +146,15 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 		} catch (IOException e) {
 			// exception thrown from implicit call to close() on resource variable 'is'
 		}
-		
+		finishLoading(addBackground);
+	}
+
+	/**
+	 * Called when all elements were read. Runs the end of the hooks and
+	 * converts the saved elements.
+	 * @param addBackground true if the background polygon should be added
+	 */
+	protected void finishLoading(boolean addBackground) {
 		elementSaver.finishLoading();
 
 		osmReadingHooks.end();
@@ -164,6 +173,11 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 				try {
 					OsmHandler handler = h.getClass().getDeclaredConstructor().newInstance();
 					setupHandler(handler);
+					if (isTwoPassLoad()) {
+						OsmHandler scanHandler = h.getClass().getDeclaredConstructor().newInstance();
+						ReferenceCollector collector = collectReferences(scanHandler, name);
+						elementSaver.setNeededIds(collector.getNeededNodes(), collector.getRelationWays());
+					}
 					handler.parse(is);
 					break;
 				} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
@@ -176,6 +190,35 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 		
 	}
 
+	/**
+	 * The first pass of a two pass load. The file is read with the same tag
+	 * filter, but nothing is saved and no hooks are called.
+	 * @param handler A new handler for the file.
+	 * @param name The file name.
+	 * @return The ids that are needed in the second pass.
+	 */
+	private ReferenceCollector collectReferences(OsmHandler handler, String name) {
+		ReferenceCollector collector = new ReferenceCollector(getConfig());
+		handler.setElementSaver(collector);
+		handler.setHooks(new NullHook());
+		setupInputFilter(handler);
+		try (InputStream is = Utils.openFile(name)) {
+			handler.parse(is);
+		} catch (IOException e) {
+			throw new ExitException("Failed to read " + name + " " + e.getMessage());
+		}
+		collector.finishLoading();
+		return collector;
+	}
+
+	/**
+	 * @return true if the input file should be read twice, first to find out
+	 * which elements are needed, see {@link ReferenceCollector}.
+	 */
+	protected boolean isTwoPassLoad() {
+		return getConfig().getProperty("two-pass-load", false);
+	}
+
 	/**
 	 * There are no copyright messages in the OSM files themselves.  So we
 	 * include a fixed set of strings on the assumption that .osm files
@@ -205,13 +248,20 @@ public class OsmMapDataSource extends MapperBasedMapDataSource implements Loadab
 		createElementSaver();
 		createConverter();
 		
-		handler.setIgnoreBounds(getConfig().getProperty("ignore-osm-bounds", false));
-		
 		osmReadingHooks = pluginChain(elementSaver, getConfig());
 
 		handler.setElementSaver(elementSaver);
 		handler.setHooks(osmReadingHooks);
 
+		setupInputFilter(handler);
+	}
+
+	/**
+	 * Set the options that decide which parts of the input are used.
+	 * @param handler The file handler.
+	 */
+	private void setupInputFilter(OsmHandler handler) {
+		handler.setIgnoreBounds(getConfig().getProperty("ignore-osm-bounds", false));
 		handler.setUsedTags(getUsedTags());
 
 		String deleteTagsFileName = getConfig().getProperty("delete-tags-file");
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import uk.me.parabola.imgfmt.app.Area;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Used for the first pass of a two pass load. Nothing is saved, only the
+ * ids of the elements that are needed in the second pass are collected:
+ * <ul>
+ * <li>the ways that have tags or are members of a relation</li>
+ * <li>the nodes of these ways and the nodes that are members of a relation</li>
+ * </ul>
+ * Ways without tags that are not used in a relation are ignored by the
+ * converter and the hooks, so they and the points that are only used by them
+ * don't have to be kept.
+ *
+ * The handler must use the same tag filter as in the second pass.
+ */
+public class ReferenceCollector extends ElementSaver {
+	private final LongOpenHashSet neededNodes = new LongOpenHashSet();
+	private final LongOpenHashSet relationWays = new LongOpenHashSet();
+
+	// the node ids of the ways without tags, they are needed if the way is used in a relation
+	private final Long2ObjectOpenHashMap<long[]> untaggedWays = new Long2ObjectOpenHashMap<>();
+
+	// the node ids that were requested since the last node or way
+	private final LongArrayList currentRefs = new LongArrayList();
+
+	public ReferenceCollector(EnhancedProperties args) {
+		super(args);
+	}
+
+	@Override
+	public void addPoint(long id, Coord co) {
+		currentRefs.clear();
+	}
+
+	@Override
+	public void addNode(Node node) {
+		currentRefs.clear();
+	}
+
+	/**
+	 * Called by the handler for each node of a way. We don't have the
+	 * coordinates, so the node is reported as missing.
+	 */
+	@Override
+	public Coord getCoord(long id) {
+		currentRefs.add(id);
+		return null;
+	}
+
+	@Override
+	public Node getNode(long id) {
+		return null;
+	}
+
+	@Override
+	public void addWay(Way way) {
+		if (way.getTagCount() > 0)
+			neededNodes.addAll(currentRefs);
+		else
+			untaggedWays.put(way.getId(), currentRefs.toLongArray());
+		currentRefs.clear();
+	}
+
+	@Override
+	public Way getWay(long id) {
+		relationWays.add(id);
+		return null;
+	}
+
+	@Override
+	public Node getOrCreateNode(long id) {
+		neededNodes.add(id);
+		return null;
+	}
+
+	@Override
+	public Relation getRelation(long id) {
+		return null;
+	}
+
+	@Override
+	public void deferRelation(long id, Relation parentRel, String role) {
+		// do nothing
+	}
+
+	@Override
+	public void addRelation(Relation rel) {
+		// do nothing
+	}
+
+	@Override
+	public void setBoundingBox(Area bbox) {
+		// do nothing
+	}
+
+	/**
+	 * Called after the first pass, adds the nodes of the ways without tags
+	 * that are used in relations.
+	 */
+	@Override
+	public void finishLoading() {
+		for (long id : relationWays) {
+			long[] refs = untaggedWays.get(id);
+			if (refs != null) {
+				for (long ref : refs)
+					neededNodes.add(ref);
+			}
+		}
+		untaggedWays.clear();
+		untaggedWays.trim();
+		currentRefs.clear();
+	}
+
+	@Override
+	public void convert(OsmConverter converter) {
+		// do nothing
+	}
+
+	/**
+	 * @return the ids of the nodes whose coordinates are needed
+	 */
+	public LongOpenHashSet getNeededNodes() {
+		return neededNodes;
+	}
+
+	/**
+	 * @return the ids of the ways that are used in relations
+	 */
+	public LongOpenHashSet getRelationWays() {
+		return relationWays;
+	}
+}
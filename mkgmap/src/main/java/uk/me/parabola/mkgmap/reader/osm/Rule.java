@@ -16,13 +16,15 @@
  */
 package uk.me.parabola.mkgmap.reader.osm;
 
+import java.io.Serializable;
+
 /**
  * A rule takes an element and returns the correct garmin type for it.
  * Implementations can be simple or complex as needed.
  *
  * @author Steve Ratcliffe
  */
-public interface Rule {
+public interface Rule extends Serializable {
 
 	/**
 	 * Given the element return the garmin type that should be used to
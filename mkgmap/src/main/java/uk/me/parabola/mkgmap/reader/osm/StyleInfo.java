@@ -16,6 +16,7 @@
  */
 package uk.me.parabola.mkgmap.reader.osm;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,7 +26,7 @@ import java.util.List;
  *
  * @author Steve Ratcliffe
  */
-public class StyleInfo {
+public class StyleInfo implements Serializable {
 
 	private String version;
 	private String summary;
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import java.util.Arrays;
+
+/**
+ * A copy of the tags of one element in an array that is indexed by the
+ * {@link TagDict} key, so that the many tag lookups of the style rules
+ * are a single array access.
+ *
+ * Each thread has one snapshot which is attached to the element while its
+ * rules are evaluated. The entries are marked with a stamp instead of being
+ * cleared, so filling the snapshot only costs the number of tags. When a
+ * tag of the element is changed the snapshot is invalidated and filled
+ * again with the next lookup.
+ */
+public final class TagSnapshot {
+	private static final ThreadLocal<TagSnapshot> perThread = ThreadLocal.withInitial(TagSnapshot::new);
+
+	private String[] values = new String[1024];
+	private int[] stamps = new int[1024];
+	private int stamp;
+	private boolean valid;
+	private Element owner;
+
+	private TagSnapshot() {
+	}
+
+	/**
+	 * Attach the snapshot of the current thread to the element.
+	 * @param el the element
+	 * @return false if the snapshot is already in use, e.g. for the same
+	 * element by a nested rule set
+	 */
+	public static boolean attach(Element el) {
+		TagSnapshot snapshot = perThread.get();
+		if (snapshot.owner != null)
+			return false;
+		snapshot.owner = el;
+		snapshot.valid = false;
+		el.setTagSnapshot(snapshot);
+		return true;
+	}
+
+	/**
+	 * Remove the snapshot from the element, must be called when
+	 * {@link #attach(Element)} returned true.
+	 * @param el the element
+	 */
+	public static void detach(Element el) {
+		TagSnapshot snapshot = perThread.get();
+		assert snapshot.owner == el;
+		el.setTagSnapshot(null);
+		snapshot.owner = null;
+	}
+
+	void invalidate() {
+		valid = false;
+	}
+
+	String get(short key, Tags tags) {
+		if (!valid)
+			fill(tags);
+		int pos = key & 0xffff;
+		if (pos < stamps.length && stamps[pos] == stamp)
+			return values[pos];
+		return null;
+	}
+
+	private void fill(Tags tags) {
+		if (stamp == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			stamp = 0;
+		}
+		stamp++;
+		if (tags != null)
+			tags.copyTo(this);
+		valid = true;
+	}
+
+	void set(short key, String value) {
+		int pos = key & 0xffff;
+		if (pos >= stamps.length) {
+			int newSize = Math.min(0x10000, Math.max(pos + 1, stamps.length * 2));
+			stamps = Arrays.copyOf(stamps, newSize);
+			values = Arrays.copyOf(values, newSize);
+		}
+		stamps[pos] = stamp;
+		values[pos] = value;
+	}
+}
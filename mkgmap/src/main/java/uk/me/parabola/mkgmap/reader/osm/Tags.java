@@ -178,6 +178,16 @@ public class Tags {
 		return -1;
 	}
 
+	/**
+	 * Copy the tags into the key-indexed array of the snapshot.
+	 */
+	void copyTo(TagSnapshot snapshot) {
+		for (int i = 0; i < capacity; i++) {
+			if (values[i] != null)
+				snapshot.set(keys[i], values[i]);
+		}
+	}
+
 	public Iterator<Map.Entry<String, String>> entryIterator() {
 		return new Iterator<Map.Entry<String, String>>() {
 			private int pos;
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.splitter;
+
+import java.io.InputStream;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.FormatException;
+import uk.me.parabola.imgfmt.Utils;
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.reader.osm.Element;
+import uk.me.parabola.mkgmap.reader.osm.GeneralRelation;
+import uk.me.parabola.mkgmap.reader.osm.Node;
+import uk.me.parabola.mkgmap.reader.osm.OsmHandler;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+import uk.me.parabola.splitter.Relation.Member;
+
+/**
+ * Reads the elements of an area that were passed in memory by the
+ * splitter. The elements are handled like those read from the
+ * files that the splitter writes.
+ */
+public class SplitterElementHandler extends OsmHandler {
+
+	@Override
+	public boolean isFileSupported(String name) {
+		return false; // there is no file
+	}
+
+	@Override
+	public void parse(InputStream is) {
+		throw new FormatException("Data of the splitter can't be read from a stream");
+	}
+
+	/**
+	 * Add the elements to the element saver.
+	 * @param area the area of the splitter
+	 * @param elements the elements, the list is cleared while they are added
+	 */
+	public void process(uk.me.parabola.splitter.Area area, List<uk.me.parabola.splitter.Element> elements) {
+		setBBox(Utils.toDegrees(area.getMinLat()), Utils.toDegrees(area.getMinLong()),
+				Utils.toDegrees(area.getMaxLat()), Utils.toDegrees(area.getMaxLong()));
+		for (int i = 0; i < elements.size(); i++) {
+			uk.me.parabola.splitter.Element el = elements.get(i);
+			// the original is not needed any longer
+			elements.set(i, null);
+			if (el instanceof uk.me.parabola.splitter.Node)
+				addNode((uk.me.parabola.splitter.Node) el);
+			else if (el instanceof uk.me.parabola.splitter.Way)
+				addWay((uk.me.parabola.splitter.Way) el);
+			else if (el instanceof uk.me.parabola.splitter.Relation)
+				addRelation((uk.me.parabola.splitter.Relation) el);
+		}
+		elements.clear();
+	}
+
+	private void addNode(uk.me.parabola.splitter.Node splitterNode) {
+		long id = splitterNode.getId();
+		Coord co = new Coord(splitterNode.getLat(), splitterNode.getLon());
+		saver.addPoint(id, co);
+
+		Node node = null;
+		for (int j = 0; j < splitterNode.getTagCount(); j++) {
+			String val = splitterNode.getTagValue(j);
+			String key = keepTag(splitterNode.getTagKey(j), val);
+			if (key != null) {
+				if (node == null)
+					node = new Node(id, co);
+				node.addTagFromRawOSM(key, val);
+			}
+		}
+		if (node != null) {
+			saver.addNode(node);
+			hooks.onAddNode(node);
+		}
+	}
+
+	private void addWay(uk.me.parabola.splitter.Way splitterWay) {
+		Way way = startWay(splitterWay.getId());
+		for (int j = 0; j < splitterWay.getTagCount(); j++) {
+			String val = splitterWay.getTagValue(j);
+			String key = keepTag(splitterWay.getTagKey(j), val);
+			if (key != null)
+				way.addTagFromRawOSM(key, val);
+		}
+		for (int j = 0; j < splitterWay.getRefs().size(); j++) {
+			addCoordToWay(way, splitterWay.getRefs().getLong(j));
+		}
+		endWay(way);
+	}
+
+	private void addRelation(uk.me.parabola.splitter.Relation splitterRel) {
+		GeneralRelation rel = new GeneralRelation(splitterRel.getId());
+		for (int j = 0; j < splitterRel.getTagCount(); j++) {
+			String key = splitterRel.getTagKey(j);
+			String val = splitterRel.getTagValue(j);
+			// type is required for relations - all other tags are filtered
+			if ("type".equals(key))
+				key = "type";
+			else
+				key = keepTag(key, val);
+			if (key != null)
+				rel.addTagFromRawOSM(key, val);
+		}
+
+		for (Member mem : splitterRel.getMembers()) {
+			long mid = mem.getRef();
+			String role = mem.getRole();
+			Element el = null;
+			if ("node".equals(mem.getType())) {
+				el = saver.getOrCreateNode(mid);
+			} else if ("way".equals(mem.getType())) {
+				el = saver.getWay(mid);
+			} else if ("relation".equals(mem.getType())) {
+				el = saver.getRelation(mid);
+				if (el == null)
+					saver.deferRelation(mid, rel, role);
+			}
+			if (el != null) // ignore non existing ways caused by splitting files
+				rel.addElement(role, el);
+		}
+		saver.addRelation(rel);
+	}
+}
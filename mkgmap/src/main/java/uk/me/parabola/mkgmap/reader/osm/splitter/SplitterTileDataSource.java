@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm.splitter;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import uk.me.parabola.mkgmap.reader.osm.OsmMapDataSource;
+import uk.me.parabola.splitter.Area;
+import uk.me.parabola.splitter.Element;
+
+/**
+ * Map source for the areas that the splitter passes in memory, see
+ * the option --splitter-args. The data of an area is kept with a name 
+ * that starts with splitter: until the map is loaded.
+ */
+public class SplitterTileDataSource extends OsmMapDataSource {
+	private static final String PREFIX = "splitter:";
+
+	private static final Map<String, TileData> tiles = new ConcurrentHashMap<>();
+
+	/**
+	 * Keep the data of an area until it is loaded.
+	 * @param area the area, the map id is used for the name
+	 * @param elements the elements of the area
+	 * @return the name that is used to load the data
+	 */
+	public static String addTile(Area area, List<Element> elements) {
+		String name = String.format(Locale.ROOT, "%s%08d", PREFIX, area.getMapId());
+		tiles.put(name, new TileData(area, elements));
+		return name;
+	}
+
+	@Override
+	public boolean isFileSupported(String name) {
+		return name != null && name.startsWith(PREFIX);
+	}
+
+	@Override
+	public void load(String name, boolean addBackground) throws FileNotFoundException {
+		TileData tile = tiles.remove(name);
+		if (tile == null)
+			throw new FileNotFoundException(name);
+		SplitterElementHandler handler = new SplitterElementHandler();
+		setupHandler(handler);
+		handler.process(tile.area, tile.elements);
+		finishLoading(addBackground);
+	}
+
+	private static class TileData {
+		final Area area;
+		final List<Element> elements;
+
+		TileData(Area area, List<Element> elements) {
+			this.area = area;
+			this.elements = elements;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.overview;
+
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the {@link OverviewFeatures} of the overview map components that
+ * are built in this run. The tile jobs publish their features here, the
+ * overview builder takes them out again. Files that were not built in this
+ * run (e.g. given as input) are not found here and have to be read.
+ * 
+ * This class is thread safe.
+ */
+public class OverviewFeatureCollector {
+	private final Map<String, OverviewFeatures> features = new ConcurrentHashMap<>();
+
+	/**
+	 * Publish the features of an overview map component.
+	 * @param filename the name of the written img file
+	 * @param ovFeatures the features 
+	 */
+	public void add(String filename, OverviewFeatures ovFeatures) {
+		features.put(key(filename), ovFeatures);
+	}
+
+	/**
+	 * Retrieve and forget the features for the given file.
+	 * @param filename the name of the img file
+	 * @return the features or null if the file was not built in this run 
+	 */
+	public OverviewFeatures remove(String filename) {
+		return features.remove(key(filename));
+	}
+
+	private static String key(String filename) {
+		return Paths.get(filename).toAbsolutePath().normalize().toString();
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.overview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.imgfmt.app.trergn.MapObject;
+import uk.me.parabola.imgfmt.app.trergn.Point;
+import uk.me.parabola.imgfmt.app.trergn.Polygon;
+import uk.me.parabola.imgfmt.app.trergn.Polyline;
+import uk.me.parabola.mkgmap.general.LevelInfo;
+import uk.me.parabola.mkgmap.general.MapLine;
+import uk.me.parabola.mkgmap.general.MapPoint;
+import uk.me.parabola.mkgmap.general.MapShape;
+
+/**
+ * The features of an overview map component (ovm_ file) as they are written
+ * to the RGN file. They are recorded while the component is built so that the
+ * {@link uk.me.parabola.mkgmap.combiners.OverviewBuilder} doesn't have to
+ * read them back from the img file when the tile was compiled in the same run.
+ * 
+ * The content is the same as what a MapReader would return: map units for the
+ * coordinates, the label text and the resolution of the level as min and max
+ * resolution.
+ */
+public class OverviewFeatures {
+	private final List<MapPoint> points = new ArrayList<>();
+	private final List<MapLine> lines = new ArrayList<>();
+	private final List<MapShape> shapes = new ArrayList<>();
+	private final List<String> copyrights = new ArrayList<>();
+	private LevelInfo[] levels;
+	private int encodingType;
+
+	/**
+	 * Record an object that was added to the RGN file.
+	 * @param obj the point, line or polygon
+	 */
+	public void addMapObject(MapObject obj) {
+		int res = obj.getSubdiv().getResolution();
+		String name = obj.getLabel() == null ? null : obj.getLabel().getDecodedText();
+		if (obj instanceof Point) {
+			MapPoint mp = new MapPoint();
+			mp.setType(obj.getType());
+			mp.setName(name);
+			mp.setMaxResolution(res);
+			mp.setMinResolution(res);
+			mp.setLocation(((Point) obj).getLocation());
+			points.add(mp);
+		} else if (obj instanceof Polygon) {
+			List<Coord> coords = copyPoints(((Polygon) obj).getPoints());
+			if (coords.size() < 3)
+				return;
+			MapShape ms = new MapShape();
+			ms.setType(obj.getType());
+			ms.setName(name);
+			ms.setMaxResolution(res);
+			ms.setMinResolution(res);
+			ms.setPoints(coords);
+			shapes.add(ms);
+		} else if (obj instanceof Polyline) {
+			Polyline pl = (Polyline) obj;
+			List<Coord> coords = copyPoints(pl.getPoints());
+			if (coords.size() < 2)
+				return;
+			MapLine ml = new MapLine();
+			ml.setType(obj.getType());
+			// like OverviewBuilder.readLines, so that the overview doesn't
+			// depend on whether the tile was read from the img file
+			ml.setDirection((obj.getType() & 0x40) != 0);
+			ml.setName(name);
+			ml.setMaxResolution(res);
+			ml.setMinResolution(res);
+			ml.setPoints(coords);
+			lines.add(ml);
+		}
+	}
+
+	/**
+	 * Create new instances with the precision that is stored in the img file. 
+	 */
+	private static List<Coord> copyPoints(List<Coord> points) {
+		List<Coord> coords = new ArrayList<>(points.size());
+		for (Coord co : points) {
+			coords.add(new Coord(co.getLatitude(), co.getLongitude()));
+		}
+		return coords;
+	}
+
+	public void addCopyright(String msg) {
+		copyrights.add(msg);
+	}
+
+	public String[] getCopyrights() {
+		return copyrights.toArray(new String[0]);
+	}
+
+	public List<MapPoint> getPoints() {
+		return points;
+	}
+
+	public List<MapLine> getLines() {
+		return lines;
+	}
+
+	public List<MapShape> getShapes() {
+		return shapes;
+	}
+
+	/**
+	 * @return the levels which contain data, in the order used in the TRE file 
+	 */
+	public LevelInfo[] getLevels() {
+		return levels;
+	}
+
+	public void setLevels(LevelInfo[] levels) {
+		this.levels = levels;
+	}
+
+	public int getEncodingType() {
+		return encodingType;
+	}
+
+	public void setEncodingType(int encodingType) {
+		this.encodingType = encodingType;
+	}
+}
@@ -145,12 +145,15 @@ public class OverviewMapDataSource extends MapperBasedMapDataSource
 	}
 
 	/**
-	 * Add a line to the map.
+	 * Add a line to the map. The lines and shapes of all tiles are kept until
+	 * the overview map is built, so their points are stored in compact form.
+	 * The points are read from the tiles and not shared with other elements.
 	 *
 	 * @param line The line information.
 	 */
 	public void addLine(MapLine line) {
 		mapper.addLine(line);
+		line.packPoints();
 	}
 
 	/**
@@ -162,6 +165,7 @@ public class OverviewMapDataSource extends MapperBasedMapDataSource
 	 */
 	public void addShape(MapShape shape) {
 		mapper.addShape(shape);
+		shape.packPoints();
 	}
 
 	public void addRoad(MapRoad road) {
@@ -0,0 +1,397 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import it.unimi.dsi.fastutil.longs.AbstractLong2ObjectMap;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+
+/**
+ * A map with primitive long keys that iterates in the same order as a
+ * {@code java.util.HashMap<Long, V>} with the default load factor that
+ * saw the same calls of put, remove and clear.
+ *
+ * The order of the elements read from the OSM file depends on this order,
+ * so the output doesn't change when the keys are no longer boxed. The
+ * entries are kept in chained buckets in arrays and the table grows like
+ * the one of HashMap. HashMap converts a bucket into a tree when it holds
+ * more than 8 keys, this changes the order inside the bucket. That only
+ * happens with unusual ids. If it does, the entries are copied into a
+ * HashMap with the same table size and the map then delegates to it.
+ */
+public class Long2ObjectHashOrderMap<V> extends AbstractLong2ObjectMap<V> {
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final float LOAD_FACTOR = 0.75f;
+	// the values of HashMap.TREEIFY_THRESHOLD and MIN_TREEIFY_CAPACITY
+	private static final int TREEIFY_THRESHOLD = 8;
+	private static final int MIN_TREEIFY_CAPACITY = 64;
+
+	// first entry of each bucket, -1 if empty
+	private int[] table;
+	private int threshold;
+	private int size;
+
+	private long[] keys = new long[DEFAULT_CAPACITY];
+	private Object[] values = new Object[DEFAULT_CAPACITY];
+	// next entry in the same bucket, -1 at the end, also links the free entries
+	private int[] next = new int[DEFAULT_CAPACITY];
+	private int used;
+	private int free = -1;
+
+	// used instead of the arrays after a bucket was converted into a tree
+	private HashMap<Long, V> delegate;
+
+	public Long2ObjectHashOrderMap() {
+		// like HashMap(), the table is allocated with the first put
+	}
+
+	/**
+	 * @param initialCapacity the initial capacity as for HashMap
+	 */
+	public Long2ObjectHashOrderMap(int initialCapacity) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		threshold = tableSizeFor(initialCapacity);
+	}
+
+	private static int tableSizeFor(int cap) {
+		int n = -1 >>> Integer.numberOfLeadingZeros(cap - 1);
+		return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+	}
+
+	/** The hash of HashMap for a Long key. */
+	private static int hash(long key) {
+		int h = Long.hashCode(key);
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	public int size() {
+		return delegate != null ? delegate.size() : size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	private int find(long key) {
+		if (table == null)
+			return -1;
+		int e = table[hash(key) & (table.length - 1)];
+		while (e >= 0 && keys[e] != key)
+			e = next[e];
+		return e;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		if (delegate != null) {
+			V v = delegate.get(key);
+			return v == null && !delegate.containsKey(key) ? defRetValue : v;
+		}
+		int e = find(key);
+		return e < 0 ? defRetValue : (V) values[e];
+	}
+
+	@Override
+	public boolean containsKey(long key) {
+		if (delegate != null)
+			return delegate.containsKey(key);
+		return find(key) >= 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (delegate != null) {
+			boolean known = delegate.containsKey(key);
+			V old = delegate.put(key, value);
+			return known ? old : defRetValue;
+		}
+		if (table == null)
+			resize();
+		int bucket = hash(key) & (table.length - 1);
+		int e = table[bucket];
+		if (e < 0) {
+			table[bucket] = newEntry(key, value);
+		} else {
+			int chainLength = 1;
+			while (true) {
+				if (keys[e] == key) {
+					V old = (V) values[e];
+					values[e] = value;
+					return old;
+				}
+				if (next[e] < 0)
+					break;
+				e = next[e];
+				chainLength++;
+			}
+			if (chainLength >= TREEIFY_THRESHOLD) {
+				if (table.length >= MIN_TREEIFY_CAPACITY) {
+					switchToHashMap();
+					delegate.put(key, value);
+					return defRetValue;
+				}
+				// newEntry() may replace the arrays
+				int added = newEntry(key, value);
+				next[e] = added;
+				resize();
+			} else {
+				int added = newEntry(key, value);
+				next[e] = added;
+			}
+		}
+		if (++size > threshold)
+			resize();
+		return defRetValue;
+	}
+
+	private int newEntry(long key, V value) {
+		int e;
+		if (free >= 0) {
+			e = free;
+			free = next[e];
+		} else {
+			if (used == keys.length) {
+				int newLength = keys.length + (keys.length >> 1);
+				keys = Arrays.copyOf(keys, newLength);
+				values = Arrays.copyOf(values, newLength);
+				next = Arrays.copyOf(next, newLength);
+			}
+			e = used++;
+		}
+		keys[e] = key;
+		values[e] = value;
+		next[e] = -1;
+		return e;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		if (delegate != null) {
+			boolean known = delegate.containsKey(key);
+			V old = delegate.remove(key);
+			return known ? old : defRetValue;
+		}
+		if (table == null)
+			return defRetValue;
+		int bucket = hash(key) & (table.length - 1);
+		int prev = -1;
+		for (int e = table[bucket]; e >= 0; prev = e, e = next[e]) {
+			if (keys[e] == key) {
+				if (prev < 0)
+					table[bucket] = next[e];
+				else
+					next[prev] = next[e];
+				V old = (V) values[e];
+				values[e] = null;
+				next[e] = free;
+				free = e;
+				size--;
+				return old;
+			}
+		}
+		return defRetValue;
+	}
+
+	@Override
+	public void clear() {
+		if (delegate != null) {
+			delegate.clear();
+			return;
+		}
+		// HashMap keeps its table size
+		if (table != null)
+			Arrays.fill(table, -1);
+		Arrays.fill(values, 0, used, null);
+		used = 0;
+		free = -1;
+		size = 0;
+	}
+
+	/**
+	 * Grow the table like HashMap.resize(). The entries of an old bucket
+	 * are split into two new buckets and keep their order.
+	 */
+	private void resize() {
+		int oldCap = table == null ? 0 : table.length;
+		int oldThr = threshold;
+		int newCap;
+		int newThr = 0;
+		if (oldCap > 0) {
+			if (oldCap >= MAXIMUM_CAPACITY) {
+				threshold = Integer.MAX_VALUE;
+				return;
+			}
+			newCap = oldCap << 1;
+			if (newCap < MAXIMUM_CAPACITY && oldCap >= DEFAULT_CAPACITY)
+				newThr = oldThr << 1;
+		} else if (oldThr > 0) {
+			newCap = oldThr;
+		} else {
+			newCap = DEFAULT_CAPACITY;
+			newThr = (int) (DEFAULT_CAPACITY * LOAD_FACTOR);
+		}
+		if (newThr == 0) {
+			float ft = newCap * LOAD_FACTOR;
+			newThr = newCap < MAXIMUM_CAPACITY && ft < MAXIMUM_CAPACITY ? (int) ft : Integer.MAX_VALUE;
+		}
+		threshold = newThr;
+
+		int[] newTable = new int[newCap];
+		Arrays.fill(newTable, -1);
+		if (oldCap > 0) {
+			int[] tails = new int[newCap];
+			for (int j = 0; j < oldCap; j++) {
+				int e = table[j];
+				while (e >= 0) {
+					int following = next[e];
+					int bucket = hash(keys[e]) & (newCap - 1);
+					next[e] = -1;
+					if (newTable[bucket] < 0)
+						newTable[bucket] = e;
+					else
+						next[tails[bucket]] = e;
+					tails[bucket] = e;
+					e = following;
+				}
+			}
+		}
+		table = newTable;
+	}
+
+	/**
+	 * Copy the entries into a HashMap with the same table size. They are
+	 * added in iteration order, so the buckets have the same order as here.
+	 */
+	private void switchToHashMap() {
+		HashMap<Long, V> map = new HashMap<>(table.length);
+		for (Entry<V> entry : long2ObjectEntrySet())
+			map.put(entry.getLongKey(), entry.getValue());
+		delegate = map;
+		table = null;
+		keys = null;
+		values = null;
+		next = null;
+	}
+
+	@Override
+	public ObjectSet<Entry<V>> long2ObjectEntrySet() {
+		return new AbstractObjectSet<Entry<V>>() {
+			@Override
+			public ObjectIterator<Entry<V>> iterator() {
+				if (delegate != null)
+					return new DelegateIterator();
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return Long2ObjectHashOrderMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				Long2ObjectHashOrderMap.this.clear();
+			}
+		};
+	}
+
+	private class EntryIterator implements ObjectIterator<Entry<V>> {
+		private int bucket = -1;
+		private int nextEntry = -1;
+		private int current = -1;
+
+		EntryIterator() {
+			advance(-1);
+		}
+
+		private void advance(int e) {
+			nextEntry = e >= 0 ? next[e] : -1;
+			while (nextEntry < 0 && table != null && ++bucket < table.length)
+				nextEntry = table[bucket];
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextEntry >= 0;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Entry<V> next() {
+			if (nextEntry < 0)
+				throw new NoSuchElementException();
+			current = nextEntry;
+			advance(current);
+			return new BasicEntry<>(keys[current], (V) values[current]) {
+				private final int entry = current;
+
+				@Override
+				public V setValue(V value) {
+					V old = (V) values[entry];
+					values[entry] = value;
+					this.value = value;
+					return old;
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			if (current < 0)
+				throw new IllegalStateException();
+			Long2ObjectHashOrderMap.this.remove(keys[current]);
+			current = -1;
+		}
+	}
+
+	private class DelegateIterator implements ObjectIterator<Entry<V>> {
+		private final Iterator<Map.Entry<Long, V>> iter = delegate.entrySet().iterator();
+
+		@Override
+		public boolean hasNext() {
+			return iter.hasNext();
+		}
+
+		@Override
+		public Entry<V> next() {
+			Map.Entry<Long, V> e = iter.next();
+			return new BasicEntry<>(e.getKey(), e.getValue()) {
+				@Override
+				public V setValue(V value) {
+					this.value = value;
+					return e.setValue(value);
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			iter.remove();
+		}
+	}
+}
@@ -27,16 +27,23 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import uk.me.parabola.imgfmt.Utils;
+import uk.me.parabola.imgfmt.fs.DirectoryEntry;
+import uk.me.parabola.imgfmt.fs.FileSystem;
+import uk.me.parabola.imgfmt.fs.ImgChannel;
+import uk.me.parabola.imgfmt.sys.ImgFS;
 import uk.me.parabola.mkgmap.general.LevelInfo;
 import uk.me.parabola.mkgmap.main.Main;
 import uk.me.parabola.mkgmap.osmstyle.RuleFileReader;
@@ -52,6 +59,9 @@ import uk.me.parabola.mkgmap.reader.osm.FeatureKind;
 public class TestUtils {
 	private static final List<String> files = new ArrayList<>();
 	private static final Deque<Closeable> open = new ArrayDeque<>();
+	// the position of the creation date in the common header of the files in an img file
+	private static final int CREATION_DATE_OFFSET = 14;
+	private static final int CREATION_DATE_LEN = 7;
 
 	static {
 		files.add(Args.DEF_MAP_FILENAME);
@@ -188,6 +198,33 @@ public class TestUtils {
 		}
 	}
 
+	/**
+	 * Read the files inside an img file. The creation date in the header of
+	 * each file is cleared, so that the files of two runs can be compared.
+	 * @param imgName The img file.
+	 * @return The contents of the files by their names.
+	 */
+	public static Map<String, byte[]> readImgContents(String imgName) throws IOException {
+		Map<String, byte[]> contents = new TreeMap<>();
+		try (FileSystem fs = ImgFS.openFs(imgName)) {
+			for (DirectoryEntry ent : fs.list()) {
+				if (ent.isSpecial() || ent.getName().trim().isEmpty())
+					continue;
+				ByteBuffer buf = ByteBuffer.allocate(ent.getSize());
+				try (ImgChannel chan = fs.open(ent.getFullName(), "r")) {
+					while (buf.hasRemaining() && chan.read(buf) > 0) {
+						// read until the buffer is full
+					}
+				}
+				byte[] data = buf.array();
+				if (data.length >= CREATION_DATE_OFFSET + CREATION_DATE_LEN)
+					Arrays.fill(data, CREATION_DATE_OFFSET, CREATION_DATE_OFFSET + CREATION_DATE_LEN, (byte) 0);
+				contents.put(ent.getFullName(), data);
+			}
+		}
+		return contents;
+	}
+
 	/**
 	 * Create a rule set out of a string.  The string is processed
 	 * as if it were in a file and the levels spec had been set.
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class PackedCoordsTest {
+
+	/**
+	 * The unpacked points must have exactly the same positions.
+	 */
+	@Test
+	public void testPositions() {
+		List<Coord> points = Arrays.asList(new Coord(51.123456789, -0.987654321),
+				new Coord(51.2, -0.9), new Coord(1000, 2000),
+				Coord.makeHighPrecCoord(123456789, -98765431));
+		List<Coord> unpacked = PackedCoords.pack(points).unpack();
+		assertEquals(points.size(), unpacked.size());
+		for (int i = 0; i < points.size(); i++) {
+			Coord co = points.get(i);
+			Coord up = unpacked.get(i);
+			assertEquals(co.getLatitude(), up.getLatitude());
+			assertEquals(co.getLongitude(), up.getLongitude());
+			assertEquals(co.getHighPrecLat(), up.getHighPrecLat());
+			assertEquals(co.getHighPrecLon(), up.getHighPrecLon());
+		}
+	}
+
+	/**
+	 * Points with attributes and points that appear more than once keep
+	 * their identity.
+	 */
+	@Test
+	public void testKeptPoints() {
+		Coord first = new Coord(51.0, -1.0);
+		Coord plain = new Coord(51.1, -1.0);
+		Coord preserved = new Coord(51.1, -0.9);
+		preserved.preserved(true);
+		Coord node = new CoordNode(new Coord(51.0, -0.9), 1, false, false);
+		List<Coord> points = new ArrayList<>(Arrays.asList(first, plain, preserved, node, first));
+
+		PackedCoords packed = PackedCoords.pack(points);
+		assertEquals(5, packed.size());
+		List<Coord> unpacked = packed.unpack();
+		assertSame(first, unpacked.get(0));
+		assertNotSame(plain, unpacked.get(1));
+		assertEquals(plain, unpacked.get(1));
+		assertSame(preserved, unpacked.get(2));
+		assertSame(node, unpacked.get(3));
+		assertSame(first, unpacked.get(4));
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.labelenc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EncodedTextCacheTest {
+
+	@BeforeEach
+	public void setUp() {
+		EncodedTextCache.clear();
+	}
+
+	/**
+	 * The cached result must be the same as encoding the text directly.
+	 */
+	@Test
+	public void testSameAsEncoder() {
+		CharacterEncoder enc = CodeFunctions.createEncoderForLBL("latin1").getEncoder();
+		EncodedText expected = enc.encodeText("Straße");
+		assertEquals(expected, EncodedTextCache.encode(enc, "latin1", "Straße"));
+		assertEquals(expected, EncodedTextCache.encode(enc, "latin1", "Straße"));
+		assertEquals(1, EncodedTextCache.getHits(), "hits");
+		assertEquals(1, EncodedTextCache.getMisses(), "misses");
+	}
+
+	@Test
+	public void testSharedBetweenEncoders() {
+		CharacterEncoder enc1 = CodeFunctions.createEncoderForLBL("ascii").getEncoder();
+		CharacterEncoder enc2 = CodeFunctions.createEncoderForLBL("ascii").getEncoder();
+		EncodedText et = EncodedTextCache.encode(enc1, "ascii", "Main Street");
+		assertSame(et, EncodedTextCache.encode(enc2, "ascii", "Main Street"));
+	}
+
+	/**
+	 * Different encoder configurations must not share entries.
+	 */
+	@Test
+	public void testDifferentConfig() {
+		CharacterEncoder ascii = CodeFunctions.createEncoderForLBL("ascii").getEncoder();
+		CharacterEncoder utf8 = CodeFunctions.createEncoderForLBL("unicode").getEncoder();
+		EncodedText et1 = EncodedTextCache.encode(ascii, "ascii", "Main Street");
+		EncodedText et2 = EncodedTextCache.encode(utf8, "unicode", "Main Street");
+		assertNotEquals(et1, et2);
+		assertEquals(utf8.encodeText("Main Street"), et2);
+		assertEquals(0, EncodedTextCache.getHits(), "hits");
+	}
+
+	@Test
+	public void testNoText() {
+		CharacterEncoder enc = CodeFunctions.createEncoderForLBL("ascii").getEncoder();
+		assertSame(BaseEncoder.NO_TEXT, EncodedTextCache.encode(enc, "ascii", null));
+		assertSame(BaseEncoder.NO_TEXT, EncodedTextCache.encode(enc, "ascii", ""));
+	}
+}
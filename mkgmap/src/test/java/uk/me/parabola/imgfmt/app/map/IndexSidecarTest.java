@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.me.parabola.imgfmt.app.Label;
+import uk.me.parabola.imgfmt.app.lbl.City;
+import uk.me.parabola.imgfmt.app.lbl.Country;
+import uk.me.parabola.imgfmt.app.lbl.Region;
+import uk.me.parabola.imgfmt.app.lbl.Zip;
+import uk.me.parabola.imgfmt.app.net.RoadDef;
+import uk.me.parabola.imgfmt.app.trergn.Point;
+import uk.me.parabola.mkgmap.main.Main;
+
+/**
+ * The index sidecar that is written with a map gives the same data as the
+ * map itself.
+ */
+public class IndexSidecarTest {
+	private static final String[] TOWNS = { "Ashby", "Brampton", "Calder" };
+
+	@TempDir
+	File tempDir;
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		String imgName = writeMap();
+		IndexSidecarReader sidecar = IndexSidecarReader.read(imgName);
+		assertNotNull(sidecar, "sidecar is read");
+
+		try (MapReader mr = new MapReader(imgName)) {
+			List<String> countries = describeCountries(mr.getCountries());
+			assertFalse(countries.isEmpty(), "the map has countries");
+			assertEquals(countries, describeCountries(sidecar.getCountries()), "countries");
+			assertEquals(describeRegions(mr.getRegions()), describeRegions(sidecar.getRegions()), "regions");
+
+			List<String> cities = describeCities(mr.getCities());
+			assertTrue(cities.size() >= TOWNS.length, "the map has cities");
+			assertEquals(cities, describeCities(sidecar.getCities()), "cities");
+
+			List<String> points = describePoints(mr.pointsForLevel(0, MapReader.WITHOUT_EXT_TYPE_DATA));
+			assertFalse(points.isEmpty(), "the map has points");
+			assertEquals(points, describePoints(sidecar.getPoints()), "points");
+
+			List<String> roads = describeRoads(mr.getRoads());
+			assertFalse(roads.isEmpty(), "the map has roads");
+			assertEquals(roads, describeRoads(sidecar.getRoads()), "roads");
+
+			// the reader of the LBL file returns the zips in hash order
+			List<Zip> zips = new ArrayList<>(mr.getZips());
+			zips.sort(Comparator.comparingInt(Zip::getIndex));
+			assertEquals(TOWNS.length, zips.size(), "the map has zips");
+			assertEquals(describeZips(zips), describeZips(sidecar.getZips()), "zips in index order");
+		}
+	}
+
+	/**
+	 * A sidecar that doesn't belong to the img file is ignored.
+	 */
+	@Test
+	public void testOutdatedSidecar() throws IOException {
+		String imgName = writeMap();
+		File img = new File(imgName);
+		assertTrue(img.setLastModified(img.lastModified() + 10_000));
+		assertNull(IndexSidecarReader.read(imgName));
+	}
+
+	/**
+	 * Compile a map with a town, a shop and a street with a postcode for
+	 * each of the towns.
+	 * @return the name of the img file
+	 */
+	private String writeMap() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n");
+		sb.append("<bounds minlat='51.0' minlon='0.0' maxlat='51.1' maxlon='0.1'/>\n");
+		for (int i = 0; i < TOWNS.length; i++) {
+			double lat = 51.01 + i * 0.03;
+			String town = TOWNS[i];
+			String postcode = "AB" + (i + 1);
+			sb.append("<node id='").append(10 * i + 1).append("' lat='").append(lat).append("' lon='0.05'>");
+			tag(sb, "place", "town");
+			tag(sb, "name", town);
+			sb.append("</node>\n");
+			sb.append("<node id='").append(10 * i + 2).append("' lat='").append(lat + 0.001).append("' lon='0.051'>");
+			tag(sb, "shop", "bakery");
+			tag(sb, "name", town + " Bakery");
+			tag(sb, "addr:city", town);
+			tag(sb, "addr:postcode", postcode);
+			tag(sb, "addr:country", "GBR");
+			sb.append("</node>\n");
+			sb.append("<node id='").append(10 * i + 3).append("' lat='").append(lat).append("' lon='0.02'/>\n");
+			sb.append("<node id='").append(10 * i + 4).append("' lat='").append(lat).append("' lon='0.08'/>\n");
+			sb.append("<way id='").append(10 * i + 5).append("'>");
+			sb.append("<nd ref='").append(10 * i + 3).append("'/><nd ref='").append(10 * i + 4).append("'/>");
+			tag(sb, "highway", "residential");
+			tag(sb, "name", town + " Road");
+			tag(sb, "mkgmap:city", town);
+			tag(sb, "mkgmap:postal_code", postcode);
+			tag(sb, "mkgmap:country", "GBR");
+			sb.append("</way>\n");
+		}
+		sb.append("</osm>\n");
+		File osm = new File(tempDir, "63240001.osm");
+		Files.write(osm.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+		Main.mainNoSystemExit("--output-dir=" + tempDir.getPath(), "--route", "--index-sidecar",
+				osm.getPath());
+		return new File(tempDir, "63240001.img").getPath();
+	}
+
+	private static void tag(StringBuilder sb, String key, String value) {
+		sb.append("<tag k='").append(key).append("' v='").append(value).append("'/>");
+	}
+
+	private static String describe(Label label) {
+		return label == null ? "-" : label.getOffset() + ":" + label.getText();
+	}
+
+	private static List<String> describeCountries(List<Country> countries) {
+		List<String> list = new ArrayList<>();
+		for (Country c : countries)
+			list.add(c == null ? "null" : c.getIndex() + " " + describe(c.getLabel()));
+		return list;
+	}
+
+	private static List<String> describeRegions(List<Region> regions) {
+		List<String> list = new ArrayList<>();
+		for (Region r : regions) {
+			list.add(r == null ? "null"
+					: r.getIndex() + " " + r.getCountry().getIndex() + " " + describe(r.getLabel()));
+		}
+		return list;
+	}
+
+	private static List<String> describeCities(List<City> cities) {
+		List<String> list = new ArrayList<>();
+		for (City c : cities)
+			list.add(c.getIndex() + " " + c.getRegionCountryNumber() + " " + c + " " + c.getLblOffset());
+		return list;
+	}
+
+	private static List<String> describePoints(List<Point> points) {
+		List<String> list = new ArrayList<>();
+		for (Point p : points) {
+			String city = p.getPOIRecord() == null || p.getPOIRecord().getCity() == null ? "-"
+					: Integer.toString(p.getPOIRecord().getCity().getIndex());
+			list.add(p.getType() + " " + p.getSubdiv().getNumber() + "/" + p.getNumber() + " "
+					+ describe(p.getLabel()) + " " + city);
+		}
+		return list;
+	}
+
+	private static List<String> describeRoads(List<RoadDef> roads) {
+		List<String> list = new ArrayList<>();
+		for (RoadDef rd : roads) {
+			StringBuilder sb = new StringBuilder();
+			for (Label label : rd.getLabels()) {
+				if (label != null)
+					sb.append(describe(label)).append(' ');
+			}
+			for (City c : rd.getCities())
+				sb.append("city ").append(c.getIndex()).append(' ');
+			list.add(sb.toString());
+		}
+		return list;
+	}
+
+	private static List<String> describeZips(List<Zip> zips) {
+		List<String> list = new ArrayList<>();
+		for (Zip z : zips)
+			list.add(z.getIndex() + " " + describe(z.getLabel()));
+		return list;
+	}
+}
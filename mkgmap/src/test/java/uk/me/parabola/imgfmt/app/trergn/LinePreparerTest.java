@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.imgfmt.app.trergn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import uk.me.parabola.imgfmt.app.BitWriter;
+
+public class LinePreparerTest {
+
+	/**
+	 * The calculated number of bits must be the number of bits that
+	 * the BitWriter writes, also for values that need extra bits.
+	 */
+	@Test
+	public void testValueBits() {
+		Random random = new Random(7);
+		for (int nbits = 3; nbits < 20; nbits++) {
+			int[] values = new int[50];
+			for (int i = 0; i < values.length; i++) {
+				// up to four times the range of the signed value
+				values[i] = random.nextInt(1 << (nbits + 1)) - (1 << nbits);
+			}
+			BitWriter signed = new BitWriter();
+			BitWriter unsigned = new BitWriter();
+			for (int val : values) {
+				signed.sputn(val, nbits);
+				unsigned.putn(Math.abs(val), nbits);
+			}
+			int[] abs = Arrays.stream(values).map(Math::abs).sorted().toArray();
+			assertEquals(signed.getBitPosition(), LinePreparer.valueBits(abs, nbits, false), "signed " + nbits);
+			assertEquals(unsigned.getBitPosition(), LinePreparer.valueBits(abs, nbits, true), "unsigned " + nbits);
+		}
+	}
+
+	/**
+	 * Compare the time to find the best width by calculating the lengths
+	 * with the time that the former trial encoding with a BitWriter for
+	 * each candidate needs. The lengths must be the same and the
+	 * calculation must be faster.
+	 */
+	@Test
+	public void testValueBitsTiming() {
+		Random random = new Random(11);
+		int[][] lines = new int[2000][];
+		for (int i = 0; i < lines.length; i++) {
+			int[] deltas = new int[50 + random.nextInt(200)];
+			for (int j = 0; j < deltas.length; j++) {
+				// mostly small deltas with a few large ones
+				int range = random.nextInt(20) == 0 ? 1 << 12 : 1 << 6;
+				deltas[j] = random.nextInt(2 * range) - range;
+			}
+			lines[i] = deltas;
+		}
+		int[][] sorted = new int[lines.length][];
+		for (int i = 0; i < lines.length; i++)
+			sorted[i] = Arrays.stream(lines[i]).map(Math::abs).sorted().toArray();
+
+		long calcTime = Long.MAX_VALUE;
+		long writeTime = Long.MAX_VALUE;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			long calcBits = 0;
+			for (int[] abs : sorted) {
+				for (int nbits = 3; nbits <= 14; nbits++)
+					calcBits += LinePreparer.valueBits(abs, nbits, false);
+			}
+			calcTime = Math.min(calcTime, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			long writtenBits = 0;
+			for (int[] deltas : lines) {
+				for (int nbits = 3; nbits <= 14; nbits++) {
+					BitWriter bw = new BitWriter();
+					for (int val : deltas)
+						bw.sputn(val, nbits);
+					writtenBits += bw.getBitPosition();
+				}
+			}
+			writeTime = Math.min(writeTime, System.nanoTime() - start);
+			assertEquals(writtenBits, calcBits);
+		}
+		System.out.println("time calculated: " + calcTime / 1000 + "us, written: " + writeTime / 1000 + "us");
+		assertTrue(calcTime < writeTime, "calculation is faster than trial encoding");
+	}
+
+	@Test
+	public void testReusedBitWriter() {
+		BitWriter bw = new BitWriter();
+		bw.putn(0x3ff, 10);
+		bw.reset(1);
+		bw.putn(0x5, 4);
+		assertEquals(4, bw.getBitPosition());
+		assertEquals(1, bw.getLength());
+		assertEquals(0x5, bw.getBytes()[0]);
+		assertEquals(0, bw.getBytes()[1]);
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.combiners;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.CommandArgs;
+import uk.me.parabola.mkgmap.general.LevelInfo;
+import uk.me.parabola.mkgmap.general.MapElement;
+import uk.me.parabola.mkgmap.general.MapLine;
+import uk.me.parabola.mkgmap.general.MapPoint;
+import uk.me.parabola.mkgmap.general.MapShape;
+import uk.me.parabola.mkgmap.main.MapMaker;
+import uk.me.parabola.mkgmap.reader.overview.OverviewFeatureCollector;
+import uk.me.parabola.mkgmap.reader.overview.OverviewFeatures;
+import uk.me.parabola.mkgmap.srt.SrtTextReader;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * The features of an overview map component that are recorded while it is
+ * built are the same as those that OverviewBuilder reads from the ovm_ img
+ * file.
+ */
+public class OverviewFeaturesTest {
+	private static final String[] NAMES = { "Zürich", "Łódź", "Straße 7", "São Paulo" };
+
+	@TempDir
+	File tempDir;
+
+	@Test
+	public void testDefaultCharset() throws IOException {
+		checkSameFeatures("default", null);
+	}
+
+	@Test
+	public void testLatin1() throws IOException {
+		checkSameFeatures("latin1", "1252");
+	}
+
+	@Test
+	public void testUnicode() throws IOException {
+		checkSameFeatures("unicode", "65001");
+	}
+
+	private void checkSameFeatures(String name, String codePage) throws IOException {
+		File dir = new File(tempDir, name);
+		File styleDir = new File(dir, "style");
+		Files.createDirectories(styleDir.toPath());
+		writeStyle(styleDir);
+		File osm = new File(dir, "63240001.osm");
+		Files.write(osm.toPath(), makeOsm().getBytes(StandardCharsets.UTF_8));
+
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("mapname", "63240001");
+		props.setProperty("description", "test");
+		props.setProperty("output-dir", dir.getPath());
+		props.setProperty("style-file", styleDir.getPath());
+		props.setProperty("copyright-message", "Copyright test");
+		if (codePage != null)
+			props.setProperty("code-page", codePage);
+		OverviewFeatureCollector collector = new OverviewFeatureCollector();
+		CommandArgs args = new CommandArgs(props);
+		args.setSort(SrtTextReader.sortForCodepage(args.getCodePage()));
+		new MapMaker(true, collector).makeMap(args, osm.getPath());
+
+		String ovmName = new File(dir, OverviewBuilder.getOverviewImgName("63240001.img")).getPath();
+		OverviewFeatures recorded = collector.remove(ovmName);
+		assertNotNull(recorded, "features are recorded");
+		OverviewFeatures read = new OverviewBuilder().readFeatures(ovmName);
+
+		assertEquals(read.getEncodingType(), recorded.getEncodingType(), "encoding type");
+		assertArrayEquals(read.getCopyrights(), recorded.getCopyrights(), "copyrights");
+		assertEquals(describeLevels(read.getLevels()), describeLevels(recorded.getLevels()), "levels");
+
+		List<String> points = describePoints(read.getPoints());
+		// each city and attraction is in both overview levels
+		assertEquals(4 * NAMES.length, points.size(), "the overview has points");
+		assertEquals(points, describePoints(recorded.getPoints()), "points");
+		List<String> lines = describeLines(read.getLines());
+		assertFalse(lines.isEmpty(), "the overview has lines");
+		assertEquals(lines, describeLines(recorded.getLines()), "lines");
+		List<String> shapes = describeShapes(read.getShapes());
+		assertFalse(shapes.isEmpty(), "the overview has shapes");
+		assertEquals(shapes, describeShapes(recorded.getShapes()), "shapes");
+	}
+
+	/**
+	 * A style that shows cities, attractions, motorways with a shield in the name,
+	 * forests and lakes in the overview map.
+	 */
+	private static void writeStyle(File dir) throws IOException {
+		write(new File(dir, "version"), "0\n");
+		write(new File(dir, "options"), "levels = 0:24, 1:20\noverview-levels = 2:17, 3:15\n");
+		write(new File(dir, "points"), "place=city {name '${name}'} [0x0100 resolution 15]\n"
+				+ "tourism=attraction {name '${name}'} [0x2c04 resolution 15]\n");
+		write(new File(dir, "lines"), "highway=motorway {name '${ref|highway-symbol:hbox} ${name}'}"
+				+ " [0x01 resolution 15]\n");
+		write(new File(dir, "polygons"), "landuse=forest [0x50 resolution 15]\n"
+				+ "natural=water [0x3c resolution 15]\n");
+	}
+
+	private static void write(File file, String text) throws IOException {
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * A city, an attraction, a motorway, a forest and a lake for each of the
+	 * names.
+	 */
+	private static String makeOsm() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n");
+		sb.append("<bounds minlat='51.0' minlon='0.0' maxlat='51.2' maxlon='0.2'/>\n");
+		long id = 1;
+		for (int i = 0; i < NAMES.length; i++) {
+			double lat = 51.01 + i * 0.045;
+			String name = "<tag k='name' v='" + NAMES[i] + "'/>";
+			node(sb, id++, lat, 0.1, "<tag k='place' v='city'/>" + name);
+			node(sb, id++, lat + 0.002, 0.15, "<tag k='tourism' v='attraction'/>" + name);
+			long first = id;
+			for (int j = 0; j < 4; j++)
+				node(sb, id++, lat + 0.005 + (j % 2) * 0.002, 0.01 + j * 0.05, "");
+			way(sb, id++, "<tag k='highway' v='motorway'/><tag k='ref' v='A" + (i + 1) + "'/>" + name,
+					first, first + 1, first + 2, first + 3);
+			first = id;
+			node(sb, id++, lat + 0.01, 0.02, "");
+			node(sb, id++, lat + 0.03, 0.02, "");
+			node(sb, id++, lat + 0.03, 0.07, "");
+			node(sb, id++, lat + 0.01, 0.07, "");
+			way(sb, id++, "<tag k='landuse' v='forest'/>" + name, first, first + 1, first + 2, first + 3, first);
+			first = id;
+			node(sb, id++, lat + 0.012, 0.12, "");
+			node(sb, id++, lat + 0.035, 0.13, "");
+			node(sb, id++, lat + 0.02, 0.18, "");
+			way(sb, id++, "<tag k='natural' v='water'/>" + name, first, first + 1, first + 2, first);
+		}
+		sb.append("</osm>\n");
+		return sb.toString();
+	}
+
+	private static void node(StringBuilder sb, long id, double lat, double lon, String tags) {
+		sb.append("<node id='").append(id).append("' lat='").append(lat).append("' lon='").append(lon).append("'>");
+		sb.append(tags).append("</node>\n");
+	}
+
+	private static void way(StringBuilder sb, long id, String tags, long... nodes) {
+		sb.append("<way id='").append(id).append("'>");
+		for (long n : nodes)
+			sb.append("<nd ref='").append(n).append("'/>");
+		sb.append(tags).append("</way>\n");
+	}
+
+	private static List<String> describeLevels(LevelInfo[] levels) {
+		List<String> list = new ArrayList<>();
+		for (LevelInfo li : levels)
+			list.add(li.getLevel() + ":" + li.getBits());
+		return list;
+	}
+
+	private static String describe(MapElement el) {
+		return Integer.toHexString(el.getType()) + " " + el.getMinResolution() + "-" + el.getMaxResolution() + " '"
+				+ el.getName() + "'";
+	}
+
+	private static String describe(List<Coord> points) {
+		StringBuilder sb = new StringBuilder();
+		for (Coord co : points)
+			sb.append(' ').append(co.getLatitude()).append('/').append(co.getLongitude());
+		return sb.toString();
+	}
+
+	private static List<String> describePoints(List<MapPoint> points) {
+		List<String> list = new ArrayList<>();
+		for (MapPoint mp : points)
+			list.add(describe(mp) + describe(List.of(mp.getLocation())));
+		return list;
+	}
+
+	private static List<String> describeLines(List<MapLine> lines) {
+		List<String> list = new ArrayList<>();
+		for (MapLine ml : lines)
+			list.add(describe(ml) + " " + ml.isDirection() + describe(ml.getPoints()));
+		return list;
+	}
+
+	private static List<String> describeShapes(List<MapShape> shapes) {
+		List<String> list = new ArrayList<>();
+		for (MapShape ms : shapes)
+			list.add(describe(ms) + describe(ms.getPoints()));
+		return list;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.combiners;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import func.lib.TestUtils;
+import uk.me.parabola.mkgmap.main.Main;
+
+/**
+ * The overview map is the same with one and with several
+ * {@code --overview-threads}, both when the tiles are built in the same run
+ * and when they are read from img files.
+ */
+public class OverviewThreadsTest {
+	private static final int NUM_TILES = 4;
+	private static final int NUM_ROWS = 10;
+	private static final int WAYS_PER_ROW = 15;
+	private static final int FOREST_GRID = 5;
+
+	@TempDir
+	File tempDir;
+
+	@Test
+	public void testSameOverviewWithThreads() throws IOException {
+		File styleDir = writeStyle();
+		List<String> osmFiles = new ArrayList<>();
+		for (int t = 0; t < NUM_TILES; t++) {
+			File osm = new File(tempDir, (63240001 + t) + ".osm");
+			Files.write(osm.toPath(), makeOsm(t).getBytes(StandardCharsets.UTF_8));
+			osmFiles.add(osm.getPath());
+		}
+
+		File expectedDir = compile(styleDir, 1, "osm1", osmFiles);
+		Map<String, byte[]> expected = readOverview(expectedDir);
+		assertFalse(expected.isEmpty(), "overview map is written");
+		for (int threads : new int[] { 2, 4 }) {
+			File dir = compile(styleDir, threads, "osm" + threads, osmFiles);
+			assertSameContents(expected, readOverview(dir), "from osm with overview-threads=" + threads);
+		}
+
+		// read the tiles that were written with one thread
+		List<String> imgFiles = new ArrayList<>();
+		for (int t = 0; t < NUM_TILES; t++)
+			imgFiles.add(new File(expectedDir, (63240001 + t) + ".img").getPath());
+		for (int threads : new int[] { 1, 2, 4 }) {
+			File dir = compile(styleDir, threads, "img" + threads, imgFiles);
+			assertSameContents(expected, readOverview(dir), "from img with overview-threads=" + threads);
+		}
+	}
+
+	private static void assertSameContents(Map<String, byte[]> expected, Map<String, byte[]> contents, String msg) {
+		assertEquals(expected.keySet(), contents.keySet(), msg);
+		for (Map.Entry<String, byte[]> e : expected.entrySet())
+			assertArrayEquals(e.getValue(), contents.get(e.getKey()), e.getKey() + " " + msg);
+	}
+
+	private File compile(File styleDir, int threads, String name, List<String> inputs) {
+		File dir = new File(tempDir, name);
+		assertTrue(dir.mkdir());
+		List<String> args = new ArrayList<>();
+		args.add("--output-dir=" + dir.getPath());
+		args.add("--style-file=" + styleDir.getPath());
+		args.add("--tdbfile");
+		args.add("--overview-threads=" + threads);
+		args.addAll(inputs);
+		Main.mainNoSystemExit(args.toArray(new String[0]));
+		return dir;
+	}
+
+	private static Map<String, byte[]> readOverview(File dir) throws IOException {
+		return TestUtils.readImgContents(new File(dir, "osmmap.img").getPath());
+	}
+
+	/**
+	 * A style that shows motorways, forests and lakes in the overview map.
+	 */
+	private File writeStyle() throws IOException {
+		File dir = new File(tempDir, "style");
+		assertTrue(dir.mkdir());
+		Files.write(new File(dir, "version").toPath(), "0\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(dir, "options").toPath(),
+				"levels = 0:24, 1:20, 2:18\noverview-levels = 3:17, 4:15\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(dir, "lines").toPath(),
+				"highway=motorway [0x01 resolution 15]\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(new File(dir, "polygons").toPath(),
+				"landuse=forest [0x50 resolution 15]\nnatural=water [0x3c resolution 15]\n"
+						.getBytes(StandardCharsets.UTF_8));
+		return dir;
+	}
+
+	/**
+	 * A tile with rows of short motorways, the first and the last of each
+	 * row meet those of the neighbouring tiles. A grid of forest squares
+	 * that share their edges and a lake.
+	 */
+	private static String makeOsm(int tile) {
+		double minLon = tile * 0.1;
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n");
+		sb.append("<bounds minlat='51.0' minlon='").append(minLon).append("' maxlat='51.1' maxlon='")
+				.append(minLon + 0.1).append("'/>\n");
+		long id = 1;
+		for (int r = 0; r < NUM_ROWS; r++) {
+			double lat = 51.005 + r * 0.004;
+			long first = id;
+			for (int i = 0; i < WAYS_PER_ROW; i++) {
+				node(sb, id++, lat, minLon + i * 0.1 / WAYS_PER_ROW);
+				node(sb, id++, lat + 0.0005, minLon + (i + 0.5) * 0.1 / WAYS_PER_ROW);
+			}
+			node(sb, id++, lat, minLon + 0.1);
+			for (int i = 0; i < WAYS_PER_ROW; i++) {
+				// the first and the last way end at the tile boundary
+				long end = i == WAYS_PER_ROW - 1 ? first + 2 * WAYS_PER_ROW : first + 2 * i + 1;
+				way(sb, id++, "<tag k='highway' v='motorway'/>", first + 2 * i, end);
+			}
+		}
+		long grid = id;
+		for (int r = 0; r <= FOREST_GRID; r++) {
+			for (int c = 0; c <= FOREST_GRID; c++)
+				node(sb, id++, 51.05 + r * 0.008, minLon + 0.005 + c * 0.008);
+		}
+		for (int r = 0; r < FOREST_GRID; r++) {
+			for (int c = 0; c < FOREST_GRID; c++) {
+				long sw = grid + r * (FOREST_GRID + 1) + c;
+				long nw = sw + FOREST_GRID + 1;
+				way(sb, id++, "<tag k='landuse' v='forest'/>", sw, nw, nw + 1, sw + 1, sw);
+			}
+		}
+		long lake = id;
+		node(sb, id++, 51.06, minLon + 0.06);
+		node(sb, id++, 51.09, minLon + 0.065);
+		node(sb, id++, 51.085, minLon + 0.095);
+		node(sb, id++, 51.055, minLon + 0.09);
+		way(sb, id, "<tag k='natural' v='water'/>", lake, lake + 1, lake + 2, lake + 3, lake);
+		sb.append("</osm>\n");
+		return sb.toString();
+	}
+
+	private static void node(StringBuilder sb, long id, double lat, double lon) {
+		sb.append("<node id='").append(id).append("' lat='").append(lat).append("' lon='").append(lon)
+				.append("'/>\n");
+	}
+
+	private static void way(StringBuilder sb, long id, String tags, long... nodes) {
+		sb.append("<way id='").append(id).append("'>");
+		for (long n : nodes)
+			sb.append("<nd ref='").append(n).append("'/>");
+		sb.append(tags).append("</way>\n");
+	}
+}
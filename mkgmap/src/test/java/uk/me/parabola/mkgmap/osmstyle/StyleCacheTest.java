@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.mkgmap.general.LineAdder;
+import uk.me.parabola.mkgmap.general.MapLine;
+import uk.me.parabola.mkgmap.reader.osm.TagDict;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * Tests for the style cache.
+ */
+public class StyleCacheTest {
+	private static final String STYLE_LOC = "classpath:teststyles";
+
+	@TempDir
+	Path cacheDir;
+
+	@AfterEach
+	public void clearCache() {
+		StyleCache.clear();
+	}
+
+	@Test
+	public void testCopiesAreEqual() throws FileNotFoundException {
+		EnhancedProperties props = new EnhancedProperties();
+		StyleImpl s1 = StyleCache.getStyle(STYLE_LOC, "simple", props);
+		StyleImpl s2 = StyleCache.getStyle(STYLE_LOC, "simple", props);
+
+		assertNotSame(s1, s2, "each caller gets its own instance");
+		String expected = dump(new StyleImpl(STYLE_LOC, "simple"));
+		assertEquals(expected, dump(s1));
+		assertEquals(expected, dump(s2));
+	}
+
+	@Test
+	public void testSavedStyle() throws IOException {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("style-cache", cacheDir.toString());
+		String expected = dump(StyleCache.getStyle(STYLE_LOC, "simple", props));
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			assertEquals(1, files.count(), "cache file written");
+		}
+
+		// the tag keys in the saved style must not depend on the state of the dictionary
+		StyleCache.clear();
+		for (int i = 0; i < 100; i++)
+			TagDict.getInstance().xlate("style-cache-test-" + i);
+		assertEquals(expected, dump(StyleCache.getStyle(STYLE_LOC, "simple", props)));
+	}
+
+	/**
+	 * The overlays of a style are kept in the copies and in the saved style.
+	 */
+	@Test
+	public void testOverlays() throws FileNotFoundException {
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("style-cache", cacheDir.toString());
+		List<Integer> expected = Arrays.asList(1, 2, 3);
+		assertEquals(expected, overlaidTypes(StyleCache.getStyle(STYLE_LOC, "simple", props)));
+		assertEquals(expected, overlaidTypes(StyleCache.getStyle(STYLE_LOC, "simple", props)));
+
+		StyleCache.clear();
+		assertEquals(expected, overlaidTypes(StyleCache.getStyle(STYLE_LOC, "simple", props)));
+	}
+
+	/**
+	 * @return the types of the lines that the overlays of the style create
+	 * for a line with an overlaid type
+	 */
+	private static List<Integer> overlaidTypes(StyleImpl style) {
+		List<Integer> types = new ArrayList<>();
+		LineAdder adder = style.getOverlays(line -> types.add(line.getType()));
+		assertNotNull(adder, "style has overlays");
+		MapLine line = new MapLine();
+		line.setType(0x142);
+		line.setPoints(new ArrayList<>(Arrays.asList(new Coord(51.0, 0.0), new Coord(51.1, 0.1))));
+		adder.add(line);
+		return types;
+	}
+
+	private static String dump(StyleImpl style) {
+		StringWriter sw = new StringWriter();
+		style.dumpToFile(sw);
+		return sw.toString();
+	}
+}
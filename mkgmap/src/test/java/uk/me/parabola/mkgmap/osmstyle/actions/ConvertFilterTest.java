@@ -21,6 +21,7 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import uk.me.parabola.mkgmap.osmstyle.eval.ValueCache;
 import uk.me.parabola.mkgmap.reader.osm.Element;
 import uk.me.parabola.mkgmap.reader.osm.Way;
 import uk.me.parabola.mkgmap.scan.SyntaxException;
@@ -138,6 +139,25 @@ public class ConvertFilterTest {
 		assertEquals(in, s);
 	}
 
+	/**
+	 * The conversions give the same results when the values are taken from
+	 * the cache of another filter. Filters with different conversions
+	 * don't share the results for the same value.
+	 */
+	@Test
+	public void testCachedConversions() {
+		ValueCache cache = ValueCache.forThread();
+		cache.clear();
+		for (int pass = 0; pass < 2; pass++) {
+			for (Data data : simpleTests) {
+				ConvertFilter f = new ConvertFilter(data.conv);
+				assertEquals(data.output, f.doFilter(data.input, el), "conversion " + data.conv + " pass " + pass);
+			}
+		}
+		assertEquals(simpleTests.size(), cache.getMisses());
+		assertEquals(simpleTests.size(), cache.getHits());
+	}
+
 	class Data {
 		private final String conv;
 		private final String input;
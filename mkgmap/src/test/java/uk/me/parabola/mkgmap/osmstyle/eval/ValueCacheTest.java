@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle.eval;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.me.parabola.mkgmap.osmstyle.function.GetTagFunction;
+import uk.me.parabola.mkgmap.reader.osm.Way;
+
+/**
+ * Tests for the cache of the results of operations on tag values.
+ */
+public class ValueCacheTest {
+	private static final List<String> VALUES = Arrays.asList("20", "30", "30.5", "29.9 mph", "50 km/h", "48km/h",
+			"30mph", "abc", "", "-5", "1e3", "30 knots");
+
+	private final ValueCache cache = ValueCache.forThread();
+	private int calls;
+
+	@BeforeEach
+	public void clearCache() {
+		cache.clear();
+		calls = 0;
+	}
+
+	private String count(String value) {
+		calls++;
+		return value.toUpperCase();
+	}
+
+	@Test
+	public void testHits() {
+		String first = cache.get("upper", "abc", this::count);
+		assertEquals("ABC", first);
+		assertSame(first, cache.get("upper", "abc", this::count));
+		assertEquals(1, calls, "operation is done once");
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		// another key is another operation
+		cache.get("other", "abc", this::count);
+		assertEquals(2, calls);
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testEviction() {
+		for (int i = 0; i < ValueCache.MAX_SIZE; i++)
+			cache.get("upper", "v" + i, this::count);
+		assertEquals(ValueCache.MAX_SIZE, cache.size());
+		cache.get("upper", "v0", this::count);
+		assertEquals(ValueCache.MAX_SIZE, calls, "all values are still cached");
+
+		// the next value doesn't fit, the cache is cleared
+		cache.get("other", "new", this::count);
+		assertEquals(1, cache.size());
+		cache.get("upper", "v0", this::count);
+		assertEquals(ValueCache.MAX_SIZE + 2, calls, "value is calculated again");
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testCachePerThread() throws InterruptedException {
+		AtomicReference<ValueCache> other = new AtomicReference<>();
+		Thread t = new Thread(() -> other.set(ValueCache.forThread()));
+		t.start();
+		t.join();
+		assertNotSame(cache, other.get());
+		assertSame(cache, ValueCache.forThread());
+	}
+
+	/**
+	 * The numeric comparisons give the same result as the comparison of the
+	 * parsed values without the cache, both when the cache is empty and
+	 * when the values were cached by another op.
+	 */
+	@Test
+	public void testNumericOps() {
+		for (String limit : Arrays.asList("30", "50 km/h")) {
+			List<NumericOp> ops = Arrays.asList(new GTOp(), new GTEOp(), new LTOp(), new LTEOp());
+			ops.forEach(op -> op.set(new GetTagFunction("maxspeed"), new ValueOp(limit)));
+			for (String value : VALUES) {
+				Way el = new Way(1);
+				el.addTag("maxspeed", value);
+				ValueWithUnit v1 = new ValueWithUnit(value);
+				ValueWithUnit v2 = new ValueWithUnit(limit);
+				boolean valid = v1.isValid() && v2.isValid();
+				int cmp = valid ? v1.compareTo(v2) : 0;
+				boolean[] expected = { valid && cmp > 0, valid && cmp >= 0, valid && cmp < 0, valid && cmp <= 0 };
+				for (int pass = 0; pass < 2; pass++) {
+					if (pass == 0)
+						cache.clear();
+					for (int i = 0; i < ops.size(); i++) {
+						assertEquals(expected[i], ops.get(i).eval(el),
+								value + " " + ops.get(i) + (pass == 0 ? " empty cache" : " cached"));
+					}
+				}
+			}
+			// the ops share the parsed values
+			assertTrue(cache.getHits() > cache.getMisses());
+		}
+	}
+
+	@Test
+	public void testRegexOps() {
+		List<String> regexes = Arrays.asList("[0-9]+", "[0-9]+ ?(mph|km/h)", ".*");
+		for (String regex : regexes) {
+			RegexOp op = new RegexOp();
+			op.set(new GetTagFunction("maxspeed"), new ValueOp(regex));
+			Pattern pattern = Pattern.compile(regex);
+			for (String value : VALUES) {
+				Way el = new Way(1);
+				el.addTag("maxspeed", value);
+				boolean expected = pattern.matcher(value).matches();
+				assertEquals(expected, op.eval(el), value + " " + op);
+				assertEquals(expected, op.eval(el), value + " " + op + " cached");
+			}
+		}
+		assertEquals(regexes.size() * VALUES.size(), cache.getMisses(), "each regex has its own results");
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.osmstyle.housenumber;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import func.lib.TestUtils;
+import uk.me.parabola.mkgmap.main.Main;
+
+/**
+ * The house numbers give the same map with one and with several threads.
+ */
+public class HousenumberThreadsTest {
+	private static final int NUM_STREETS = 12;
+	private static final int NUM_HOUSES = 10;
+
+	@TempDir
+	File tempDir;
+
+	@Test
+	public void testSameMapWithThreads() throws IOException {
+		File osm = new File(tempDir, "63240001.osm");
+		Files.write(osm.toPath(), makeOsm().getBytes(StandardCharsets.UTF_8));
+
+		Map<String, byte[]> expected = compile(osm, 1);
+		assertTrue(expected.keySet().stream().anyMatch(name -> name.endsWith(".NET")), "the map is routable");
+		for (int threads : new int[] { 2, 4 }) {
+			Map<String, byte[]> contents = compile(osm, threads);
+			assertEquals(expected.keySet(), contents.keySet(), "housenumber-threads=" + threads);
+			for (Map.Entry<String, byte[]> e : expected.entrySet()) {
+				assertArrayEquals(e.getValue(), contents.get(e.getKey()),
+						e.getKey() + " with housenumber-threads=" + threads);
+			}
+		}
+	}
+
+	private Map<String, byte[]> compile(File osm, int threads) throws IOException {
+		File dir = new File(tempDir, "threads" + threads);
+		assertTrue(dir.mkdir());
+		Main.mainNoSystemExit("--output-dir=" + dir.getPath(), "--route", "--housenumbers",
+				"--housenumber-threads=" + threads, osm.getPath());
+		return TestUtils.readImgContents(new File(dir, "63240001.img").getPath());
+	}
+
+	/**
+	 * Parallel streets in two towns, each with houses on both sides. The
+	 * streets of the first town are split into two ways that share a point,
+	 * and all streets meet a cross street. Every third street has an
+	 * interpolation way instead of some of the houses.
+	 */
+	private static String makeOsm() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n");
+		sb.append("<bounds minlat='51.0' minlon='0.0' maxlat='51.02' maxlon='0.02'/>\n");
+		long crossId = 900_000;
+		for (int s = 0; s < NUM_STREETS; s++) {
+			String city = s < NUM_STREETS / 2 ? "Ashby" : "Brampton";
+			String street = "Street " + (s % (NUM_STREETS / 2));
+			double lat = 51.001 + s * 0.0015;
+			long base = 1000L * (s + 1);
+			node(sb, base + 1, lat, 0.001, "");
+			node(sb, base + 2, lat, 0.006, "");
+			node(sb, base + 3, lat, 0.011, "");
+			node(sb, crossId + s, lat, 0.016, "");
+			String tags = "<tag k='highway' v='residential'/><tag k='name' v='" + street + "'/>";
+			if (s < NUM_STREETS / 2) {
+				way(sb, base + 10, tags, base + 1, base + 2);
+				way(sb, base + 11, tags, base + 2, base + 3, crossId + s);
+			} else {
+				way(sb, base + 10, tags, base + 1, base + 2, base + 3, crossId + s);
+			}
+			for (int h = 0; h < NUM_HOUSES; h++) {
+				if (s % 3 == 0 && h >= 2 && h < NUM_HOUSES - 2)
+					continue;
+				double houseLat = lat + (h % 2 == 0 ? 0.0002 : -0.0002);
+				double houseLon = 0.0015 + h * 0.001;
+				String houseTags = "<tag k='addr:street' v='" + street + "'/><tag k='addr:city' v='" + city
+						+ "'/><tag k='addr:housenumber' v='" + (h + 1) + "'/>";
+				node(sb, base + 100 + h, houseLat, houseLon, houseTags);
+			}
+			if (s % 3 == 0) {
+				String ipTags = "<tag k='addr:interpolation' v='odd'/><tag k='addr:street' v='" + street
+						+ "'/><tag k='addr:city' v='" + city + "'/>";
+				way(sb, base + 20, ipTags, base + 100, base + 100 + NUM_HOUSES - 2);
+			}
+		}
+		way(sb, crossId + 100, "<tag k='highway' v='tertiary'/><tag k='name' v='Cross Street'/>",
+				crossIds(crossId));
+		sb.append("</osm>\n");
+		return sb.toString();
+	}
+
+	private static long[] crossIds(long crossId) {
+		long[] ids = new long[NUM_STREETS];
+		for (int s = 0; s < NUM_STREETS; s++)
+			ids[s] = crossId + s;
+		return ids;
+	}
+
+	private static void node(StringBuilder sb, long id, double lat, double lon, String tags) {
+		sb.append("<node id='").append(id).append("' lat='").append(lat).append("' lon='").append(lon).append("'>");
+		sb.append(tags).append("</node>\n");
+	}
+
+	private static void way(StringBuilder sb, long id, String tags, long... nodes) {
+		sb.append("<way id='").append(id).append("'>");
+		for (long n : nodes)
+			sb.append("<nd ref='").append(n).append("'/>");
+		sb.append(tags).append("</way>\n");
+	}
+}
@@ -18,6 +18,9 @@ package uk.me.parabola.mkgmap.reader.osm;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -72,4 +75,42 @@ public class ElementTest {
 		assertEquals("", el.getTag("g"));
 		assertEquals("", el.getTag("h"));
 	}
+
+	@Test
+	public void testTagSnapshot() {
+		Element el = new Way(1);
+		el.addTag("a", "1");
+		el.addTag("b", "2");
+
+		assertTrue(TagSnapshot.attach(el));
+		try {
+			assertFalse(TagSnapshot.attach(new Way(2)), "snapshot is in use");
+			assertEquals("1", el.getTag("a"));
+			assertEquals("2", el.getTag(TagDict.getInstance().xlate("b")));
+			assertNull(el.getTag("c"));
+
+			// changes are seen by the next lookup
+			el.addTag("c", "3");
+			el.deleteTag("a");
+			assertEquals("3", el.getTag("c"));
+			assertNull(el.getTag("a"));
+
+			el.removeAllTags();
+			assertNull(el.getTag("b"));
+		} finally {
+			TagSnapshot.detach(el);
+		}
+
+		// a second element doesn't see the tags of the first one
+		Element other = new Way(3);
+		other.addTag("d", "4");
+		assertTrue(TagSnapshot.attach(other));
+		try {
+			assertNull(other.getTag("b"));
+			assertEquals("4", other.getTag("d"));
+		} finally {
+			TagSnapshot.detach(other);
+		}
+		assertEquals("4", other.getTag("d"));
+	}
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * The multipolygons of a tile give the same ways with the same ids with
+ * one and with several threads.
+ */
+public class MultiPolygonProcessorTest {
+	private static final int NUM_BLOCKS = 8;
+
+	@Test
+	public void testSameWaysWithThreads() {
+		String osm = makeOsm();
+		List<String> expected = load(osm, 1);
+		// the generated ways of the multipolygons are there
+		assertTrue(expected.stream().filter(s -> s.contains("mkgmap:mp_created=true")).count() >= NUM_BLOCKS);
+		for (int threads : new int[] { 2, 4 }) {
+			assertEquals(expected, load(osm, threads), "multipolygon-threads=" + threads);
+		}
+	}
+
+	/**
+	 * Blocks of multipolygons: a forest with a lake as inner ring and a
+	 * water multipolygon that uses the same lake way. The outer ring of the
+	 * odd blocks is split into two ways. A way and a node follow the
+	 * relations.
+	 */
+	private static String makeOsm() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n");
+		sb.append("<bounds minlat='50.99' minlon='-0.01' maxlat='51.05' maxlon='0.01'/>\n");
+		for (int row = 0; row < NUM_BLOCKS * 4; row++) {
+			for (int col = 0; col < 4; col++) {
+				sb.append("<node id='").append(nodeId(row, col)).append("' lat='").append(51 + row * 0.001)
+						.append("' lon='").append(col * 0.001).append("'/>\n");
+			}
+		}
+		for (int k = 0; k < NUM_BLOCKS; k++) {
+			int r = 4 * k;
+			if (k % 2 == 0) {
+				way(sb, 100 + k * 10 + 1, "", nodeId(r, 0), nodeId(r + 3, 0), nodeId(r + 3, 3), nodeId(r, 3),
+						nodeId(r, 0));
+			} else {
+				way(sb, 100 + k * 10 + 1, "", nodeId(r, 0), nodeId(r + 3, 0), nodeId(r + 3, 3));
+				way(sb, 100 + k * 10 + 3, "", nodeId(r + 3, 3), nodeId(r, 3), nodeId(r, 0));
+			}
+			way(sb, 100 + k * 10 + 2, "", nodeId(r + 1, 1), nodeId(r + 2, 1), nodeId(r + 2, 2), nodeId(r + 1, 2),
+					nodeId(r + 1, 1));
+		}
+		for (int k = 0; k < NUM_BLOCKS; k++) {
+			sb.append("<relation id='").append(500 + k * 2).append("'>");
+			sb.append("<member type='way' ref='").append(100 + k * 10 + 1).append("' role='outer'/>");
+			if (k % 2 == 1)
+				sb.append("<member type='way' ref='").append(100 + k * 10 + 3).append("' role='outer'/>");
+			sb.append("<member type='way' ref='").append(100 + k * 10 + 2).append("' role='inner'/>");
+			sb.append("<tag k='type' v='multipolygon'/><tag k='landuse' v='forest'/>");
+			sb.append("<tag k='name' v='Forest ").append(k).append("'/></relation>\n");
+			sb.append("<relation id='").append(501 + k * 2).append("'>");
+			sb.append("<member type='way' ref='").append(100 + k * 10 + 2).append("' role='outer'/>");
+			sb.append("<tag k='type' v='multipolygon'/><tag k='natural' v='water'/></relation>\n");
+		}
+		way(sb, 999, "<tag k='highway' v='track'/>", nodeId(0, 0), nodeId(NUM_BLOCKS * 4 - 1, 0));
+		sb.append("<node id='9999' lat='51.001' lon='0.002'><tag k='amenity' v='bench'/></node>\n");
+		sb.append("</osm>\n");
+		return sb.toString();
+	}
+
+	private static long nodeId(int row, int col) {
+		return 1000 + row * 10L + col;
+	}
+
+	private static void way(StringBuilder sb, long id, String tags, long... nodes) {
+		sb.append("<way id='").append(id).append("'>");
+		for (long n : nodes)
+			sb.append("<nd ref='").append(n).append("'/>");
+		sb.append(tags).append("</way>\n");
+	}
+
+	/**
+	 * Load the data and list the ways and nodes with their ids, tags and
+	 * points in the order of the element saver.
+	 */
+	private static List<String> load(String osm, int threads) {
+		class TestSource extends OsmMapDataSource {
+			@Override
+			public Set<String> getUsedTags() {
+				// return null => all tags are used
+				return null;
+			}
+
+			@Override
+			public void load(String name, boolean addBackground) {
+				parse(new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8)), name);
+				elementSaver.finishLoading();
+			}
+		}
+		FakeIdGenerator.setStartId(1L << 62);
+		EnhancedProperties props = new EnhancedProperties();
+		props.setProperty("multipolygon-threads", String.valueOf(threads));
+		TestSource src = new TestSource();
+		src.config(props);
+		src.load("test.osm", false);
+
+		List<String> elements = new ArrayList<>();
+		for (Way w : src.getElementSaver().getWays().values()) {
+			StringBuilder sb = new StringBuilder("w" + w.getId() + " " + w.toTagString());
+			for (Coord co : w.getPoints())
+				sb.append(' ').append(co.getHighPrecLat()).append('/').append(co.getHighPrecLon());
+			elements.add(sb.toString());
+		}
+		for (Node n : src.getElementSaver().getNodes().values())
+			elements.add("n" + n.getId() + " " + n.toTagString());
+		return elements;
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.mkgmap.reader.osm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uk.me.parabola.imgfmt.app.Coord;
+import uk.me.parabola.util.EnhancedProperties;
+
+/**
+ * With --two-pass-load the same elements are saved as with a normal load,
+ * apart from the ways without tags that are not used in a relation.
+ */
+public class TwoPassLoadTest {
+	// a way without tags that is not used by a relation
+	private static final long UNUSED_WAY = 30;
+	// a point that is only used by the unused way
+	private static final long UNUSED_POINT = 8;
+	// a node with tags that is not used by a way or relation, it is
+	// followed by a point that is not used at all
+	private static final long POI = 20;
+
+	private static final String OSM = "<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6'>\n"
+			+ "<bounds minlat='51.0' minlon='0.0' maxlat='51.1' maxlon='0.1'/>\n"
+			+ "<node id='1' lat='51.01' lon='0.01'/>\n"
+			+ "<node id='2' lat='51.01' lon='0.05'/>\n"
+			+ "<node id='3' lat='51.05' lon='0.05'/>\n"
+			+ "<node id='4' lat='51.05' lon='0.01'/>\n"
+			+ "<node id='5' lat='51.02' lon='0.02'/>\n"
+			+ "<node id='6' lat='51.02' lon='0.04'/>\n"
+			+ "<node id='7' lat='51.04' lon='0.03'/>\n"
+			+ "<node id='8' lat='51.08' lon='0.08'/>\n"
+			+ "<node id='9' lat='51.07' lon='0.02'><tag k='barrier' v='gate'/></node>\n"
+			+ "<node id='10' lat='51.09' lon='0.09'/>\n"
+			+ "<node id='11' lat='51.07' lon='0.07'/>\n"
+			+ "<node id='20' lat='51.06' lon='0.06'><tag k='amenity' v='bench'/></node>\n"
+			+ "<node id='12' lat='51.03' lon='0.08'/>\n"
+			// a street with a tagged node
+			+ "<way id='21'><nd ref='4'/><nd ref='9'/><nd ref='11'/>"
+			+ "<tag k='highway' v='residential'/><tag k='name' v='Main Street'/></way>\n"
+			// the outer and inner ways of a multipolygon have no tags
+			+ "<way id='22'><nd ref='1'/><nd ref='2'/><nd ref='3'/><nd ref='4'/><nd ref='1'/></way>\n"
+			+ "<way id='23'><nd ref='5'/><nd ref='6'/><nd ref='7'/><nd ref='5'/></way>\n"
+			+ "<way id='30'><nd ref='8'/><nd ref='11'/></way>\n"
+			+ "<relation id='40'><member type='way' ref='22' role='outer'/>"
+			+ "<member type='way' ref='23' role='inner'/>"
+			+ "<tag k='type' v='multipolygon'/><tag k='landuse' v='forest'/></relation>\n"
+			+ "<relation id='41'><member type='node' ref='10' role='label'/>"
+			+ "<member type='way' ref='21' role='street'/><tag k='type' v='street'/></relation>\n"
+			+ "</osm>\n";
+
+	@TempDir
+	File tempDir;
+
+	@Test
+	public void testSameElements() throws IOException {
+		File osm = new File(tempDir, "test.osm");
+		Files.write(osm.toPath(), OSM.getBytes(StandardCharsets.UTF_8));
+
+		TestSource normal = load(osm, false);
+		TestSource twoPass = load(osm, true);
+
+		List<String> expectedWays = describeWays(normal.getElementSaver());
+		assertTrue(expectedWays.stream().anyMatch(s -> s.startsWith("w" + UNUSED_WAY + " ")),
+				"unused way is saved by the normal load");
+		expectedWays.removeIf(s -> s.startsWith("w" + UNUSED_WAY + " "));
+		assertEquals(expectedWays, describeWays(twoPass.getElementSaver()), "ways");
+		assertFalse(twoPass.getElementSaver().getWays().containsKey(UNUSED_WAY));
+
+		List<String> nodes = describeNodes(normal.getElementSaver());
+		assertTrue(nodes.stream().anyMatch(s -> s.startsWith("n" + POI + " ")), "the bench is saved");
+		assertEquals(nodes, describeNodes(twoPass.getElementSaver()), "nodes");
+		assertEquals(describeRelations(normal.getElementSaver()), describeRelations(twoPass.getElementSaver()),
+				"relations");
+
+		// only the points that are needed are stored
+		assertNotNull(normal.unusedPoint);
+		assertNull(twoPass.unusedPoint, "point of the unused way is not stored");
+		assertNotNull(normal.poiPoint);
+		// the bench was created with the last point that was not stored
+		assertNull(twoPass.poiPoint, "point of the bench is not stored");
+		assertTrue(twoPass.getElementSaver().getNodes().containsKey(POI));
+	}
+
+	private static class TestSource extends OsmMapDataSource {
+		Coord unusedPoint;
+		Coord poiPoint;
+
+		@Override
+		public Set<String> getUsedTags() {
+			// return null => all tags are used
+			return null;
+		}
+
+		@Override
+		public void load(String name, boolean addBackground) {
+			// the first pass of the two pass load reads the file again
+			parse(new ByteArrayInputStream(OSM.getBytes(StandardCharsets.UTF_8)), name);
+			ElementSaver saver = getElementSaver();
+			unusedPoint = saver.getCoord(UNUSED_POINT);
+			poiPoint = saver.getCoord(POI);
+			saver.finishLoading();
+		}
+	}
+
+	private static TestSource load(File osm, boolean twoPass) {
+		FakeIdGenerator.setStartId(1L << 62);
+		EnhancedProperties props = new EnhancedProperties();
+		if (twoPass)
+			props.setProperty("two-pass-load", "true");
+		TestSource src = new TestSource();
+		src.config(props);
+		src.load(osm.getPath(), false);
+		return src;
+	}
+
+	private static List<String> describeWays(ElementSaver saver) {
+		List<String> list = new ArrayList<>();
+		for (Way w : saver.getWays().values()) {
+			StringBuilder sb = new StringBuilder("w" + w.getId() + " " + w.toTagString());
+			for (Coord co : w.getPoints())
+				sb.append(' ').append(co.getHighPrecLat()).append('/').append(co.getHighPrecLon());
+			list.add(sb.toString());
+		}
+		return list;
+	}
+
+	private static List<String> describeNodes(ElementSaver saver) {
+		List<String> list = new ArrayList<>();
+		for (Node n : saver.getNodes().values()) {
+			list.add("n" + n.getId() + " " + n.toTagString() + " " + n.getLocation().getHighPrecLat() + "/"
+					+ n.getLocation().getHighPrecLon());
+		}
+		return list;
+	}
+
+	private static List<String> describeRelations(ElementSaver saver) {
+		List<String> list = new ArrayList<>();
+		for (Relation r : saver.getRelations().values()) {
+			StringBuilder sb = new StringBuilder("r" + r.getId() + " " + r.toTagString());
+			for (Map.Entry<String, Element> e : r.getElements())
+				sb.append(' ').append(e.getKey()).append('=').append(e.getValue().getId());
+			list.add(sb.toString());
+		}
+		return list;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2026 by the mkgmap contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
+public class Long2ObjectHashOrderMapTest {
+
+	@Test
+	public void testOsmIds() {
+		Random random = new Random(1);
+		compareWithHashMap(() -> 1_000_000_000L + random.nextInt(50_000_000), 200_000);
+	}
+
+	@Test
+	public void testFakeIds() {
+		long[] id = { (1L << 62) };
+		compareWithHashMap(() -> id[0]++, 50_000);
+	}
+
+	/**
+	 * Many keys in one bucket of a small table, HashMap grows the table
+	 * instead of converting the bucket into a tree.
+	 */
+	@Test
+	public void testCollisionsInSmallTable() {
+		long[] id = { 0 };
+		compareWithHashMap(() -> (id[0]++) * 64, 40);
+	}
+
+	/**
+	 * Many keys in one bucket of a large table, HashMap converts the bucket
+	 * into a tree and the map delegates to a HashMap.
+	 */
+	@Test
+	public void testCollisionsInLargeTable() {
+		Random random = new Random(2);
+		// the hash code of these keys is 0
+		compareWithHashMap(() -> {
+			long j = random.nextInt(30) + 1;
+			return random.nextBoolean() ? random.nextInt(1000) : (j << 32 | j);
+		}, 2000);
+	}
+
+	@Test
+	public void testInitialCapacity() {
+		Map<Long, Integer> expected = new HashMap<>(5000);
+		Long2ObjectHashOrderMap<Integer> map = new Long2ObjectHashOrderMap<>(5000);
+		for (int i = 0; i < 10_000; i++) {
+			long key = i * 4099L;
+			expected.put(key, i);
+			map.put(key, Integer.valueOf(i));
+		}
+		assertSameOrder(expected, map);
+	}
+
+	@Test
+	public void testIteratorRemove() {
+		Map<Long, Integer> expected = new HashMap<>();
+		Long2ObjectHashOrderMap<Integer> map = new Long2ObjectHashOrderMap<>();
+		for (int i = 0; i < 1000; i++) {
+			expected.put((long) i * 7, i);
+			map.put((long) i * 7, Integer.valueOf(i));
+		}
+		expected.values().removeIf(v -> v % 3 == 0);
+		Iterator<Integer> iter = map.values().iterator();
+		while (iter.hasNext()) {
+			if (iter.next() % 3 == 0)
+				iter.remove();
+		}
+		assertSameOrder(expected, map);
+		assertNull(map.get(0));
+		assertEquals(Integer.valueOf(1), map.get(7));
+	}
+
+	private interface KeySource {
+		long next();
+	}
+
+	/**
+	 * Apply the same random puts, removes and a clear to a HashMap and
+	 * the map and compare the iteration order after each step.
+	 */
+	private static void compareWithHashMap(KeySource keys, int count) {
+		Random random = new Random(count);
+		Map<Long, Integer> expected = new HashMap<>();
+		Long2ObjectHashOrderMap<Integer> map = new Long2ObjectHashOrderMap<>();
+		List<Long> added = new ArrayList<>();
+		for (int round = 0; round < 2; round++) {
+			for (int i = 0; i < count; i++) {
+				long key = keys.next();
+				added.add(key);
+				assertEquals(expected.put(key, i), map.put(key, Integer.valueOf(i)));
+				if (random.nextInt(10) == 0) {
+					long old = added.get(random.nextInt(added.size()));
+					assertEquals(expected.remove(old), map.remove(old));
+				}
+				if (random.nextInt(20) == 0) {
+					long old = added.get(random.nextInt(added.size()));
+					assertEquals(expected.put(old, -i), map.put(old, Integer.valueOf(-i)));
+				}
+			}
+			assertSameOrder(expected, map);
+			if (round == 0) {
+				expected.clear();
+				map.clear();
+				assertSameOrder(expected, map);
+			}
+		}
+	}
+
+	private static void assertSameOrder(Map<Long, Integer> expected, Long2ObjectHashOrderMap<Integer> map) {
+		assertEquals(expected.size(), map.size());
+		List<String> expectedEntries = new ArrayList<>();
+		for (Map.Entry<Long, Integer> e : expected.entrySet())
+			expectedEntries.add(e.getKey() + "=" + e.getValue());
+		List<String> entries = new ArrayList<>();
+		for (Long2ObjectMap.Entry<Integer> e : map.long2ObjectEntrySet())
+			entries.add(e.getLongKey() + "=" + e.getValue());
+		assertEquals(expectedEntries, entries);
+		for (Map.Entry<Long, Integer> e : expected.entrySet())
+			assertEquals(e.getValue(), map.get(e.getKey().longValue()));
+	}
+}
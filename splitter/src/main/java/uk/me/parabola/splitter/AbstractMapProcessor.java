@@ -31,6 +31,12 @@ public abstract class AbstractMapProcessor implements MapProcessor {
 	public boolean skipRels(){
 		return false;
 	}
+	public boolean reuseElements(){
+		return false;
+	}
+	public boolean allowConcurrentFiles(){
+		return false;
+	}
 
 	public void boundTag(Area bounds){}
 
@@ -62,4 +62,8 @@ public abstract class AbstractOSMWriter implements OSMWriter{
 	public boolean areaIsPseudo(){
 		return false;
 	}
+
+	public boolean keepsElements(){
+		return false;
+	}
 }
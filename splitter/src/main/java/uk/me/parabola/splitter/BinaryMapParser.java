@@ -2,11 +2,9 @@ package uk.me.parabola.splitter;
 
 import crosby.binary.BinaryParser;
 import crosby.binary.Osmformat;
+import crosby.binary.file.FileBlock;
 import crosby.binary.file.FileBlockPosition;
 
-
-import it.unimi.dsi.fastutil.shorts.ShortArrayList;
-
 import java.util.List;
 
 public class BinaryMapParser extends BinaryParser implements MapReader {
@@ -14,27 +12,26 @@ public class BinaryMapParser extends BinaryParser implements MapReader {
 	private static final short TYPE_NODES = 0x2; 
 	private static final short TYPE_WAYS = 0x4; 
 	private static final short TYPE_RELS = 0x8; 
-	private final ShortArrayList blockTypes = new ShortArrayList();
-	private final ShortArrayList knownBlockTypes;
 
 	// for status messages
 	private final ElementCounter elemCounter = new ElementCounter();
 	
-	private short blockType = -1;
-	private int blockCount = -1;
+	// the types of the elements in the current block
+	private short blockType;
 	private boolean skipTags;
 	private boolean skipNodes;
 	private boolean skipWays;
 	private boolean skipRels;
 	short wantedTypeMask = 0;
+	private final ElementFactory elementFactory;
 	
-	BinaryMapParser(MapProcessor processor, ShortArrayList knownBlockTypes) {
+	BinaryMapParser(MapProcessor processor) {
 		this.processor = processor;
-		this.knownBlockTypes = knownBlockTypes;
 		this.skipTags = processor.skipTags();
 		this.skipNodes = processor.skipNodes();
 		this.skipWays = processor.skipWays();
 		this.skipRels = processor.skipRels();
+		this.elementFactory = new ElementFactory(processor);
 		
 		if (skipNodes == false){
 			wantedTypeMask |= TYPE_DENSE;
@@ -47,23 +44,27 @@ public class BinaryMapParser extends BinaryParser implements MapReader {
 	}
 	MapProcessor processor;
 
-	public ShortArrayList getBlockList(){
-		return blockTypes;
+	/**
+	 * Parse a block that was read via a {@link PbfBlockIndex}.
+	 * @param block the uncompressed block
+	 * @return the types of the elements found in the block
+	 */
+	short parseBlock(FileBlock block) {
+		blockType = 0;
+		handleBlock(block);
+		return blockType;
 	}
-	
+
+	/**
+	 * @param types the types of the elements in a block as returned by parseBlock()
+	 * @return true if the block contains elements that are needed by the processor
+	 */
+	boolean isWantedBlock(short types) {
+		return types == 0 || (types & wantedTypeMask) != 0;
+	}
+
 	@Override
     public boolean skipBlock(FileBlockPosition block) {
-		blockCount++;
-		if (knownBlockTypes != null){
-			blockType = knownBlockTypes.getShort(blockCount);
-			if (blockType != 0 && (blockType & wantedTypeMask) == 0)
-				return true;
-		}
-		else if (blockType != -1){
-			//System.out.println("previous block contained " + blockType );
-			blockTypes.add(blockType);
-		}
-		blockType = 0;
         // System.out.println("Seeing block of type: "+block.getType());
         if (block.getType().equals("OSMData"))
             return false;
@@ -75,7 +76,6 @@ public class BinaryMapParser extends BinaryParser implements MapReader {
 	
 	@Override
 	public void complete() {
-		blockTypes.add(blockType);
 		// End of map is sent when all input files are processed.
 		// So do nothing else.
 	}
@@ -89,14 +89,13 @@ public class BinaryMapParser extends BinaryParser implements MapReader {
 		long last_id = 0, last_lat = 0, last_lon = 0;
 		int j = 0;
 		int maxi = nodes.getIdCount();
-		Node tmp = new Node();
 		for (int i=0 ; i < maxi; i++) {
 			long lat = nodes.getLat(i)+last_lat; last_lat = lat;
 			long lon = nodes.getLon(i)+last_lon; last_lon = lon;
 			long id =  nodes.getId(i)+last_id; last_id = id;
 			double latf = parseLat(lat), lonf = parseLon(lon);
 
-			tmp = new Node();
+			Node tmp = elementFactory.nextNode();
 			tmp.set(id, latf, lonf);
 
 			if (!skipTags) {
@@ -123,7 +122,7 @@ public class BinaryMapParser extends BinaryParser implements MapReader {
 		if (skipNodes) 
 			return;
 		for (Osmformat.Node i : nodes) {
-			Node tmp = new Node();
+			Node tmp = elementFactory.nextNode();
 			for (int j=0 ; j < i.getKeysCount(); j++)
 				tmp.addTag(getStringById(i.getKeys(j)),getStringById(i.getVals(j)));
 			long id = i.getId();
@@ -146,7 +145,7 @@ public class BinaryMapParser extends BinaryParser implements MapReader {
 		if (skipWays) 
 			return;
 		for (Osmformat.Way i : ways) {
-			Way tmp = new Way();
+			Way tmp = elementFactory.nextWay();
 			if (skipTags == false){
 				for (int j=0 ; j < i.getKeysCount(); j++)
 					tmp.addTag(getStringById(i.getKeys(j)),getStringById(i.getVals(j)));
@@ -175,7 +174,7 @@ public class BinaryMapParser extends BinaryParser implements MapReader {
 		if (skipRels)
 			return;
 		for (Osmformat.Relation i : rels) {
-			Relation tmp = new Relation();
+			Relation tmp = elementFactory.nextRelation();
 			if (skipTags == false){
 				for (int j=0 ; j < i.getKeysCount(); j++)
 					tmp.addTag(getStringById(i.getKeys(j)),getStringById(i.getVals(j)));
@@ -17,7 +17,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 
@@ -66,11 +65,9 @@ public class BinaryMapWriter extends AbstractOSMWriter {
       {
         StringTable stable = getStringTable();
         for(T i : contents) {
-          Iterator<Element.Tag> tags = i.tagsIterator();
-          while(tags.hasNext()) {
-            Element.Tag tag = tags.next();
-            stable.incr(tag.getKey());
-            stable.incr(tag.getValue());
+          for(int j = 0; j < i.getTagCount(); j++) {
+            stable.incr(i.getTagKey(j));
+            stable.incr(i.getTagValue(j));
           }
           if(!omit_metadata) {
             //            stable.incr(i.getUser().getName());
@@ -165,7 +162,7 @@ public class BinaryMapWriter extends AbstractOSMWriter {
         boolean doesBlockHaveTags = false;
         // Does anything in this block have tags?
         for(Node i : contents) {
-          doesBlockHaveTags = doesBlockHaveTags || (i.tagsIterator().hasNext());
+          doesBlockHaveTags = doesBlockHaveTags || i.hasTags();
         }
         if(!omit_metadata) {
           Osmformat.DenseInfo.Builder bdi = Osmformat.DenseInfo.newBuilder();
@@ -186,11 +183,9 @@ public class BinaryMapWriter extends AbstractOSMWriter {
 
           // Then we must include tag information.
           if(doesBlockHaveTags) {
-            Iterator<Element.Tag> tags = i.tagsIterator();
-            while(tags.hasNext()) {
-              Element.Tag t = tags.next();
-              bi.addKeysVals(stable.getIndex(t.getKey()));
-              bi.addKeysVals(stable.getIndex(t.getValue()));
+            for(int j = 0; j < i.getTagCount(); j++) {
+              bi.addKeysVals(stable.getIndex(i.getTagKey(j)));
+              bi.addKeysVals(stable.getIndex(i.getTagValue(j)));
             }
             bi.addKeysVals(0); // Add delimiter.
           }
@@ -221,11 +216,9 @@ public class BinaryMapWriter extends AbstractOSMWriter {
           bi.setId(id);
           bi.setLon(lon);
           bi.setLat(lat);
-          Iterator<Element.Tag> tags = i.tagsIterator();
-          while(tags.hasNext()) {
-            Element.Tag t = tags.next();
-            bi.addKeys(stable.getIndex(t.getKey()));
-            bi.addVals(stable.getIndex(t.getValue()));
+          for(int j = 0; j < i.getTagCount(); j++) {
+            bi.addKeys(stable.getIndex(i.getTagKey(j)));
+            bi.addVals(stable.getIndex(i.getTagValue(j)));
           }
           if(!omit_metadata) {
             bi.setInfo(serializeMetadata(i));
@@ -258,11 +251,9 @@ public class BinaryMapWriter extends AbstractOSMWriter {
             bi.addRefs(id - lastid);
             lastid = id;
           }
-          Iterator<Element.Tag> tags = i.tagsIterator();
-          while(tags.hasNext()) {
-            Element.Tag t = tags.next();
-            bi.addKeys(stable.getIndex(t.getKey()));
-            bi.addVals(stable.getIndex(t.getValue()));
+          for(int j = 0; j < i.getTagCount(); j++) {
+            bi.addKeys(stable.getIndex(i.getTagKey(j)));
+            bi.addVals(stable.getIndex(i.getTagValue(j)));
           }
           if(!omit_metadata) {
             bi.setInfo(serializeMetadata(i));
@@ -318,11 +309,9 @@ public class BinaryMapWriter extends AbstractOSMWriter {
             bi.addRolesSid(stable.getIndex(j.getRole()));
           }
 
-          Iterator<Element.Tag> tags = i.tagsIterator();
-          while(tags.hasNext()) {
-            Element.Tag t = tags.next();
-            bi.addKeys(stable.getIndex(t.getKey()));
-            bi.addVals(stable.getIndex(t.getValue()));
+          for(int j = 0; j < i.getTagCount(); j++) {
+            bi.addKeys(stable.getIndex(i.getTagKey(j)));
+            bi.addVals(stable.getIndex(i.getTagValue(j)));
           }
           if(!omit_metadata) {
             bi.setInfo(serializeMetadata(i));
@@ -437,7 +426,7 @@ public class BinaryMapWriter extends AbstractOSMWriter {
   {
     String filename = String.format(Locale.ROOT, "%08d.osm.pbf", mapId);
     try {
-      output = new BlockOutputStream(new FileOutputStream(new File(outputDir,
+      output = new ParallelBlockOutputStream(new FileOutputStream(new File(outputDir,
           filename)));
       serializer = new PBFSerializer(output);
       writeHeader();
@@ -500,6 +489,13 @@ public class BinaryMapWriter extends AbstractOSMWriter {
     }
   }
 
+  /** The elements are buffered until a block is complete. */
+  @Override
+  public boolean keepsElements()
+  {
+    return true;
+  }
+
   public void write(Node node)
   {
     serializer.processor.process(node);
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads multiple input files at the same time for a processor that
+ * allows it, see {@link MapProcessor#allowConcurrentFiles()}.
+ * Each file is parsed in a worker thread, the calling thread passes the
+ * elements to the processor, so the processor doesn't have to be thread safe.
+ */
+class ConcurrentFileReader {
+	private static final int QUEUED_BATCHES_PER_FILE = 4;
+
+	/**
+	 * Reads one input file.
+	 */
+	interface FileParser {
+		void parse(MapProcessor processor, String filename);
+	}
+
+	private ConcurrentFileReader() {
+	}
+
+	/**
+	 * Read all files and pass their elements to the processor.
+	 * @param processor the processor
+	 * @param filenames the input files
+	 * @param numThreads the number of files that are parsed at the same time
+	 * @param parser called in the worker threads to parse a file
+	 */
+	static void process(MapProcessor processor, List<String> filenames, int numThreads, FileParser parser) {
+		int numWorkers = Math.min(numThreads, filenames.size());
+		BlockingQueue<List<Object>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES_PER_FILE * numWorkers);
+		ExecutorService pool = Executors.newFixedThreadPool(numWorkers);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < filenames.size(); i++) {
+				String filename = filenames.get(i);
+				boolean firstFile = i == 0;
+				results.add(pool.submit(() -> {
+					FileCollector collector = new FileCollector(processor, queue, firstFile);
+					try {
+						System.out.println("Processing " + filename);
+						parser.parse(collector, filename);
+						collector.finish();
+					} finally {
+						queue.put(ElementCollector.END_OF_INPUT);
+					}
+					return null;
+				}));
+			}
+			int running = filenames.size();
+			while (running > 0) {
+				List<Object> batch = queue.take();
+				if (batch == ElementCollector.END_OF_INPUT)
+					running--;
+				else
+					ElementCollector.deliver(batch, processor);
+			}
+			for (Future<?> result : results)
+				result.get();
+		} catch (InterruptedException e) {
+			throw new SplitFailedException("Interrupted while reading input files", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new SplitFailedException("Failed to read input files", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Collects the elements of one file. If the first file has no bounds,
+	 * the area covered by its nodes is used instead. This is the same as
+	 * the call of {@link DensityMapCollector#checkBounds()} before the
+	 * second file is read sequentially.
+	 */
+	private static class FileCollector extends ElementCollector {
+		private final MapDetails details = new MapDetails();
+		private final boolean firstFile;
+		private boolean seenBounds;
+		private boolean seenNodes;
+
+		FileCollector(MapProcessor target, BlockingQueue<List<Object>> queue, boolean firstFile) {
+			super(target, queue);
+			this.firstFile = firstFile;
+		}
+
+		@Override
+		public void boundTag(Area bounds) {
+			seenBounds = true;
+			super.boundTag(bounds);
+		}
+
+		@Override
+		public void processNode(Node n) {
+			if (firstFile) {
+				seenNodes = true;
+				details.addToBounds(n.getMapLat(), n.getMapLon());
+			}
+			super.processNode(n);
+		}
+
+		void finish() throws InterruptedException {
+			if (firstFile && !seenBounds && seenNodes)
+				super.boundTag(details.getBounds());
+			flush();
+		}
+	}
+}
@@ -42,6 +42,14 @@ class DensityMapCollector extends AbstractMapProcessor{
 	public boolean skipRels() {
 		return true;
 	}
+	@Override
+	public boolean reuseElements() {
+		return true;
+	}
+	@Override
+	public boolean allowConcurrentFiles() {
+		return true;
+	}
 
 	@Override
 	public void boundTag(Area bounds) {
@@ -12,15 +12,16 @@
  */
 package uk.me.parabola.splitter;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.Arrays;
 
 /**
  * @author Steve Ratcliffe
  */
 public abstract class Element {
-	protected ArrayList<Tag> tags; 
+	// Most elements are nodes. Most nodes have no tags. Create the tag arrays lazily
+	private String[] tagKeys;
+	private String[] tagValues;
+	private int numTags;
 	private long id;
 
 	
@@ -32,51 +33,70 @@ public abstract class Element {
 		return id;
 	}
 
-	class Tag {
-		public Tag(String key,String value) {
-			this.key = key;
-			this.value = value;
-		}
-		public String getKey() {
-			return key;
-		}
-		public String getValue() {
-			return value;
-		}
-		public String toString (){
-			return key + "=" + value;
-		}
-		final public String key,value;
-	}
-	
 	public void addTag(String key, String value) {
 		if (key.equals("created_by"))
 			return;
-		// Most elements are nodes. Most nodes have no tags. Create the tag table lazily
-		if (tags == null)
-			tags = new ArrayList<Tag>(4);
-
-		tags.add(new Tag(key, value));
+		if (tagKeys == null) {
+			tagKeys = new String[4];
+			tagValues = new String[4];
+		} else if (numTags == tagKeys.length) {
+			tagKeys = Arrays.copyOf(tagKeys, numTags * 2);
+			tagValues = Arrays.copyOf(tagValues, numTags * 2);
+		}
+		tagKeys[numTags] = key;
+		tagValues[numTags] = value;
+		numTags++;
 	}
 
 	public boolean hasTags() {
-		return tags != null && !tags.isEmpty();
+		return numTags > 0;
 	}
 
-	public Iterator<Tag> tagsIterator() {
-		if (tags == null)
-			return Collections.emptyIterator();
+	public int getTagCount() {
+		return numTags;
+	}
 
-		return tags.iterator();
+	public String getTagKey(int i) {
+		return tagKeys[i];
 	}
-	
+
+	public String getTagValue(int i) {
+		return tagValues[i];
+	}
+
 	public String getTag (String key){
-		if (tags == null)
-			return null;
-		for (Tag tag:tags){
-			if (key.equals(tag.key))
-				return tag.value;
+		for (int i = 0; i < numTags; i++){
+			if (key.equals(tagKeys[i]))
+				return tagValues[i];
 		}
 		return null;
 	}
+
+	/**
+	 * Remove id and tags so that the instance can be filled with the
+	 * data of the next element. The arrays are kept for reuse.
+	 */
+	public void reset() {
+		id = 0;
+		if (numTags > 0) {
+			Arrays.fill(tagKeys, 0, numTags, null);
+			Arrays.fill(tagValues, 0, numTags, null);
+			numTags = 0;
+		}
+	}
+
+	/**
+	 * @return a copy of this element that is independent of later changes 
+	 * of this instance. 
+	 */
+	public abstract Element copy();
+
+	protected void copyTo(Element other) {
+		other.id = id;
+		if (numTags > 0) {
+			other.tagKeys = Arrays.copyOf(tagKeys, numTags);
+			other.tagValues = Arrays.copyOf(tagValues, numTags);
+			other.numTags = numTags;
+		}
+	}
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Collects the elements that a parser reads in batches, so that
+ * the parser can run in another thread than the processor that
+ * gets the elements. The skip flags are taken from that processor.
+ */
+class ElementCollector extends AbstractMapProcessor {
+	/** Signals the end of the input of one collector */
+	static final List<Object> END_OF_INPUT = new ArrayList<>(0);
+	private static final int BATCH_SIZE = 4096;
+
+	private final MapProcessor target;
+	private final BlockingQueue<List<Object>> queue;
+	private List<Object> batch = new ArrayList<>(BATCH_SIZE);
+
+	/**
+	 * @param target the processor that will get the elements
+	 * @param queue the queue for the batches
+	 */
+	ElementCollector(MapProcessor target, BlockingQueue<List<Object>> queue) {
+		this.target = target;
+		this.queue = queue;
+	}
+
+	@Override
+	public boolean skipTags() {
+		return target.skipTags();
+	}
+	@Override
+	public boolean skipNodes() {
+		return target.skipNodes();
+	}
+	@Override
+	public boolean skipWays() {
+		return target.skipWays();
+	}
+	@Override
+	public boolean skipRels() {
+		return target.skipRels();
+	}
+
+	@Override
+	public void boundTag(Area bounds) {
+		add(bounds);
+	}
+	@Override
+	public void processNode(Node n) {
+		add(n);
+	}
+	@Override
+	public void processWay(Way w) {
+		add(w);
+	}
+	@Override
+	public void processRelation(Relation r) {
+		add(r);
+	}
+
+	private void add(Object o) {
+		batch.add(o);
+		if (batch.size() >= BATCH_SIZE) {
+			try {
+				flush();
+			} catch (InterruptedException e) {
+				throw new SplitFailedException("Interrupted while reading input", e);
+			}
+		}
+	}
+
+	/**
+	 * Put the collected elements into the queue.
+	 * @throws InterruptedException
+	 */
+	void flush() throws InterruptedException {
+		if (batch.isEmpty())
+			return;
+		queue.put(batch);
+		batch = new ArrayList<>(BATCH_SIZE);
+	}
+
+	/**
+	 * Pass a batch of elements to a processor.
+	 * @param batch the batch that was taken from the queue
+	 * @param processor the processor
+	 */
+	static void deliver(List<Object> batch, MapProcessor processor) {
+		for (Object o : batch) {
+			if (o instanceof Node)
+				processor.processNode((Node) o);
+			else if (o instanceof Way)
+				processor.processWay((Way) o);
+			else if (o instanceof Relation)
+				processor.processRelation((Relation) o);
+			else if (o instanceof Area)
+				processor.boundTag((Area) o);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+/**
+ * Creates the elements that a parser passes to a {@link MapProcessor}.
+ * If the processor allows it, the same instance is returned for each 
+ * element of a type, so that reading a file doesn't create
+ * an object for each node, way, and relation.
+ */
+class ElementFactory {
+	private final Node node;
+	private final Way way;
+	private final Relation rel;
+
+	ElementFactory(MapProcessor processor) {
+		if (processor.reuseElements()) {
+			node = new Node();
+			way = new Way();
+			rel = new Relation();
+		} else {
+			node = null;
+			way = null;
+			rel = null;
+		}
+	}
+
+	Node nextNode() {
+		if (node == null)
+			return new Node();
+		node.reset();
+		return node;
+	}
+
+	Way nextWay() {
+		if (way == null)
+			return new Way();
+		way.reset();
+		return way;
+	}
+
+	Relation nextRelation() {
+		if (rel == null)
+			return new Relation();
+		rel.reset();
+		return rel;
+	}
+}
@@ -17,15 +17,16 @@ import java.awt.Rectangle;
 /**
  * Contains info that is needed by the {@link Tile} class. For a given
  * DensityMap we calculate some extra info to allow faster access to row sums
- * and column sums.
+ * and column sums. The node counts are kept in a summed-area table, so the
+ * number of nodes in any rectangle is found with four lookups.
  * 
  * @author GerdP
  * 
  */
 public class EnhancedDensityMap {
 	private final DensityMap densityMap;
-	private int[][] xyMap;
-	private int[][] yxMap;
+	/** sums[y][x] is the number of nodes in the grid elements below y and left of x */
+	private long[][] sums;
 	private double[] aspectRatioFactor;
 	private int minAspectRatioFactorPos;
 	private int maxNodesInDensityMapGridElement = Integer.MIN_VALUE;
@@ -65,18 +66,20 @@ public class EnhancedDensityMap {
 		minAspectRatioFactorPos = minPos;
 		assert lat == maxLat;
 		
-		// filter the density map and populate xyMap   
+		// filter the density map and populate the summed-area table
 		int width = densityMap.getWidth();
 		int height = densityMap.getHeight();
-		xyMap = new int [width][height];
 		int shift = densityMap.getShift();
-		for (int x = 0; x < width; x++){
-			int polyXPos = densityMap.getBounds().getMinLong() +  (x << shift);
-			int[] xCol = xyMap[x];
-			for(int y = 0; y < height; y++){
+		sums = new long[height + 1][width + 1];
+		for (int y = 0; y < height; y++){
+			int polyYPos = densityMap.getBounds().getMinLat() + (y << shift);
+			long[] below = sums[y];
+			long[] row = sums[y + 1];
+			long rowSum = 0;
+			for (int x = 0; x < width; x++){
 				int count = densityMap.getNodeCount(x, y);
 				if (polygonArea != null){
-					int polyYPos = densityMap.getBounds().getMinLat() + (y << shift);
+					int polyXPos = densityMap.getBounds().getMinLong() +  (x << shift);
 					if (polygonArea.intersects(polyXPos, polyYPos, 1<<shift, 1<<shift))
 						count = Math.max(1, count);
 					else 
@@ -85,18 +88,25 @@ public class EnhancedDensityMap {
 				if (count > 0){
 					if (count > maxNodesInDensityMapGridElement)
 						maxNodesInDensityMapGridElement = count;
-					xCol[y] = count;
+					rowSum += count;
 				}
+				row[x + 1] = below[x + 1] + rowSum;
 			}
 		}
-		// create and populate yxMap, this helps to speed up row access
-		yxMap = new int [height][width];
-		for(int y = 0; y < height; y++){
-			int[] yRow = yxMap[y];
-			for (int x = 0; x < width; x++){
-				yRow[x] = xyMap[x][y];
-			}
-		}
+	}
+
+	/**
+	 * Calculate the number of nodes in a rectangle of the density map.
+	 * @param x the first column
+	 * @param y the first row
+	 * @param width the number of columns
+	 * @param height the number of rows
+	 * @return the sum of the grid elements
+	 */
+	public long getNodeCount(int x, int y, int width, int height) {
+		long[] below = sums[y];
+		long[] above = sums[y + height];
+		return above[x + width] - above[x] - below[x + width] + below[x];
 	}
 
 	// calculate aspect ratio of a tile which is a view on the densityMap
@@ -124,12 +134,6 @@ public class EnhancedDensityMap {
 	public long getNodeCount(){
 		return densityMap.getNodeCount();
 	}
-	public int[] getMapRow(int mapRow) {
-		return yxMap[mapRow];
-	}
-	public int[] getMapCol(int mapCol) {
-		return xyMap[mapCol];
-	}
 	public double[] getAspectRatioFactor() {
 		return aspectRatioFactor;
 	}
@@ -13,7 +13,6 @@
 
 package uk.me.parabola.splitter;
 
-import crosby.binary.file.BlockInputStream;
 
 import org.openstreetmap.osmosis.core.filter.common.PolygonFileReader;
 import org.xmlpull.v1.XmlPullParserException;
@@ -25,7 +24,6 @@ import uk.me.parabola.splitter.geo.CityFinder;
 import uk.me.parabola.splitter.geo.CityLoader;
 import uk.me.parabola.splitter.geo.DefaultCityFinder;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
-import it.unimi.dsi.fastutil.shorts.ShortArrayList;
 
 import java.awt.Point;
 import java.awt.Rectangle;
@@ -48,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -132,9 +131,12 @@ public class Main {
 	private final OSMId2ObjectMap<Short> oneTileOnlyRels = new OSMId2ObjectMap<>();
 
 	// for faster access on blocks in pbf files
-	private final HashMap<String, ShortArrayList> blockTypeMap = new HashMap<>(); 
+	private final Map<String, PbfBlockIndex> blockIndexMap = new ConcurrentHashMap<>(); 
+	private boolean saveBlockIndex;
 	// for faster access on blocks in o5m files
-	private final HashMap<String, long[]> skipArrayMap = new HashMap<>();
+	private final Map<String, long[]> skipArrayMap = new ConcurrentHashMap<>();
+	// for reading o5m files with multiple threads
+	private final Map<String, O5mSegmentReader> o5mSegmentMap = new ConcurrentHashMap<>();
 
 	private String stopAfter;
 
@@ -144,6 +146,9 @@ public class Main {
 	private PolygonDescProcessor polygonDescProcessor;
 
 	private int searchLimit;
+
+	// receives the data of the areas instead of the output files
+	private TileConsumer tileConsumer;
 	
 	public static void main(String[] args) {
 		Main m = new Main();
@@ -157,6 +162,21 @@ public class Main {
 		}
 	}
 	
+	/**
+	 * Split the input files without writing output files. The data of
+	 * each area is passed to the consumer when it is complete, so that 
+	 * the areas can be processed while the following passes are running.
+	 * The option --max-areas limits the number of areas that are kept 
+	 * in memory in one pass.
+	 * @param args the splitter options and input files, --output is ignored
+	 * @param consumer receives the data of the areas
+	 * @return 0 on success, else 1
+	 */
+	public int split(String[] args, TileConsumer consumer) {
+		tileConsumer = consumer;
+		return start(args);
+	}
+
 	private int start(String[] args) {
 		int rc = 0;
 		JVMHealthMonitor healthMonitor = null;
@@ -412,6 +432,18 @@ public class Main {
 		kmlOutputFile = params.getWriteKml();
 
 		maxThreads = params.getMaxThreads().getCount();
+
+		String mapStorage = params.getMapStorage();
+		if (Arrays.asList("heap", "direct", "mapped").contains(mapStorage) == false){
+			throw new IllegalArgumentException("Error: the --map-storage parameter must be either heap, direct, or mapped.");
+		}
+		SparseLong2ShortMap.setStorage(mapStorage, fileOutputDir);
+		saveBlockIndex = params.isPbfBlockIndex();
+		int pbfCompression = params.getPbfCompression();
+		if (pbfCompression < 0 || pbfCompression > 9) {
+			throw new IllegalArgumentException("Error: the --pbf-compression parameter must be a value between 0 and 9.");
+		}
+		ParallelBlockOutputStream.setCompression(pbfCompression, maxThreads);
 		
 		problemFile = params.getProblemFile();
 		if (problemFile != null){
@@ -598,6 +630,7 @@ public class Main {
 		
 		splittableArea.setTrim(trim);
 		splittableArea.setMapId(mapId);
+		splittableArea.setMaxThreads(maxThreads);
 		long startSplit = System.currentTimeMillis();
 		List<Area> areas ;
 		if (numTiles >= 2){
@@ -796,7 +829,9 @@ public class Main {
 		for (int j = 0; j < allWriters.length; j++) {
 			Area area = areas.get(j);
 			OSMWriter w;
-			if ("pbf".equals(outputType)) 
+			if (tileConsumer != null)
+				w = new MemoryOSMWriter(area, area.getMapId(), overlapAmount, tileConsumer);
+			else if ("pbf".equals(outputType)) 
 				w = new BinaryMapWriter(area, fileOutputDir, area.getMapId(), overlapAmount );
 			else if ("o5m".equals(outputType))
 				w = new O5mMapWriter(area, fileOutputDir, area.getMapId(), overlapAmount, wellKnownTagKeys,wellKnownTagVals);
@@ -1346,20 +1381,37 @@ public class Main {
 	}
 
 	private boolean processOSMFiles(MapProcessor processor, List<String> filenames) throws XmlPullParserException {
-		// Create both an XML reader and a binary reader, Dispatch each input to the
-		// Appropriate parser.
-		OSMParser parser = new OSMParser(processor, mixed);
-	
-		for (int i = 0; i < filenames.size(); i++){
-			String filename = filenames.get(i);
-			System.out.println("Processing " + filename);
-			if (i == 1 && processor instanceof DensityMapCollector){
-				((DensityMapCollector) processor).checkBounds();
+		if (filenames.size() > 1 && maxThreads > 1 && processor.allowConcurrentFiles()){
+			ConcurrentFileReader.process(processor, filenames, maxThreads, 
+					(collector, filename) -> processOSMFile(collector, filename, 1));
+		} else {
+			for (int i = 0; i < filenames.size(); i++){
+				String filename = filenames.get(i);
+				System.out.println("Processing " + filename);
+				if (i == 1 && processor instanceof DensityMapCollector){
+					((DensityMapCollector) processor).checkBounds();
+				}
+				processOSMFile(processor, filename, maxThreads);
 			}
-			
-			try {
-				if (filename.endsWith(".o5m")) {
-					File file = new File(filename);
+		}
+		boolean done = processor.endMap();
+		return done;
+	}
+
+	/**
+	 * Dispatch the input file to the appropriate parser.
+	 * @param processor the processor 
+	 * @param filename the input file
+	 * @param numThreads the number of threads that can be used to read the file
+	 */
+	private void processOSMFile(MapProcessor processor, String filename, int numThreads) {
+		try {
+			if (filename.endsWith(".o5m")) {
+				File file = new File(filename);
+				O5mSegmentReader segmentReader = o5mSegmentMap.get(filename);
+				if (segmentReader != null && numThreads > 1 && segmentReader.getNumSegments() > 1){
+					segmentReader.process(file, processor, numThreads);
+				} else {
 					try(InputStream stream = new FileInputStream(file)){
 						long[] skipArray = skipArrayMap.get(filename);
 						O5mMapParser o5mParser = new O5mMapParser(processor, stream, skipArray);
@@ -1367,45 +1419,48 @@ public class Main {
 						if (skipArray == null){
 							skipArray = o5mParser.getSkipArray();
 							skipArrayMap.put(filename, skipArray);
+							o5mSegmentMap.put(filename, new O5mSegmentReader(o5mParser.getSegmentStarts(),
+									o5mParser.getSegmentTypes(), file.length()));
 						}
 					}
 				}
-				else if (filename.endsWith(".pbf")) {
-					// Is it a binary file?
-					File file = new File(filename);
-					ShortArrayList blockTypes = blockTypeMap.get(filename);
-					BinaryMapParser binParser = new BinaryMapParser(processor, blockTypes);
-					try(InputStream stream = new FileInputStream(file)){
-						BlockInputStream blockinput = (new BlockInputStream(stream, binParser));
-						blockinput.process();
-						if (blockTypes == null){
-							// remember this file 
-							blockTypes = binParser.getBlockList();
-							blockTypeMap.put(filename, blockTypes);
-						}
-					}
+			}
+			else if (filename.endsWith(".pbf")) {
+				// Is it a binary file?
+				File file = new File(filename);
+				BinaryMapParser binParser = new BinaryMapParser(processor);
+				PbfBlockIndex blockIndex = blockIndexMap.get(filename);
+				if (blockIndex == null && saveBlockIndex)
+					blockIndex = PbfBlockIndex.load(file);
+				if (blockIndex == null){
+					blockIndex = PbfBlockIndex.create(file, binParser);
+					if (saveBlockIndex)
+						blockIndex.save(file);
 				} else {
-					// No, try XML.
-					try (Reader reader = Utils.openFile(filename, maxThreads > 1)){
-						parser.setReader(reader);
-						parser.parse();
-					}
+					blockIndex.process(file, binParser);
+				}
+				// remember this file 
+				blockIndexMap.put(filename, blockIndex);
+			} else {
+				// No, try XML.
+				OSMParser parser = new OSMParser(processor, mixed);
+				try (Reader reader = Utils.openFile(filename, numThreads > 1)){
+					parser.setReader(reader);
+					parser.parse();
 				}
-			} catch (FileNotFoundException e) {
-				System.out.println(e);
-				throw new SplitFailedException("ERROR: file " + filename + " was not found");
-			} catch (XmlPullParserException e) {
-				e.printStackTrace();
-				throw new SplitFailedException("ERROR: file " + filename + " is not a valid OSM XML file");
-			} catch (IllegalArgumentException e) {
-				e.printStackTrace();
-				throw new SplitFailedException("ERROR: file " + filename + " contains unexpected data");
-			} catch (IOException e) {
-				e.printStackTrace();
-				throw new SplitFailedException("ERROR: file " + filename + " caused I/O exception");
 			}
+		} catch (FileNotFoundException e) {
+			System.out.println(e);
+			throw new SplitFailedException("ERROR: file " + filename + " was not found");
+		} catch (XmlPullParserException e) {
+			e.printStackTrace();
+			throw new SplitFailedException("ERROR: file " + filename + " is not a valid OSM XML file");
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+			throw new SplitFailedException("ERROR: file " + filename + " contains unexpected data");
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new SplitFailedException("ERROR: file " + filename + " caused I/O exception");
 		}
-		boolean done = processor.endMap();
-		return done;
 	}
 }
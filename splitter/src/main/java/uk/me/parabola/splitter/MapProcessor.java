@@ -38,6 +38,22 @@ public interface MapProcessor {
 	 */
 	boolean skipRels();
 
+	/**
+	 * (performance) Returns true if the reader is allowed to pass the same
+	 * Node, Way, or Relation instance again with the data of the next element.
+	 * The processor must not keep references to the elements or their tags, 
+	 * refs, or members, it has to use {@link Element#copy()} instead.
+	 */
+	boolean reuseElements();
+
+	/**
+	 * (performance) Returns true if the input files may be read at the same time.
+	 * The elements of different files are then passed interleaved, and a file without 
+	 * bounds is passed the bounds of its nodes. The processor is still called from 
+	 * one thread only.
+	 */
+	boolean allowConcurrentFiles();
+
 	/**
 	 * returns a value that identifies the current phase
 	 * @return
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the elements of an area in memory and passes them to a
+ * {@link TileConsumer} when the area is complete, no file is written.
+ */
+public class MemoryOSMWriter extends AbstractOSMWriter {
+	private final TileConsumer consumer;
+	private List<Element> elements;
+
+	public MemoryOSMWriter(Area bounds, int mapId, int extra, TileConsumer consumer) {
+		super(bounds, null, mapId, extra);
+		this.consumer = consumer;
+	}
+
+	@Override
+	public void initForWrite() {
+		elements = new ArrayList<>();
+	}
+
+	@Override
+	public void finishWrite() {
+		List<Element> complete = elements;
+		elements = null;
+		consumer.tileComplete(bounds, complete);
+	}
+
+	@Override
+	public void write(Node node) {
+		elements.add(node);
+	}
+
+	@Override
+	public void write(Way way) {
+		elements.add(way);
+	}
+
+	@Override
+	public void write(Relation rel) {
+		elements.add(rel);
+	}
+
+	/** The elements are kept until the area is complete. */
+	@Override
+	public boolean keepsElements() {
+		return true;
+	}
+}
@@ -16,7 +16,6 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -108,6 +107,10 @@ class MultiTileProcessor extends AbstractMapProcessor {
 			return false;
 		return true;
 	}
+	@Override
+	public boolean reuseElements() {
+		return true;
+	}
 
 	@Override
 	public int getPhase() {
@@ -994,21 +997,21 @@ class MultiTileProcessor extends AbstractMapProcessor {
 			String goodNameCandidate = null;
 			String nameCandidate = null;
 			String zipCode = null;
-			Iterator<Element.Tag> tags = rel.tagsIterator();
-			while(tags.hasNext()) {
-				Element.Tag t = tags.next();
+			for (int i = 0; i < rel.getTagCount(); i++) {
+				String key = rel.getTagKey(i);
+				String value = rel.getTagValue(i);
 				for (String nameTag: NAME_TAGS){
-					if (nameTag.equals(t.key)){
-						goodNameCandidate = t.value;
+					if (nameTag.equals(key)){
+						goodNameCandidate = value;
 						break;
 					}
 				}
 				if (goodNameCandidate != null)
 					break;
-				if (t.key.contains("name"))
-					nameCandidate = t.value;
-				else if ("postal_code".equals(t.key))
-					zipCode = t.value;
+				if (key.contains("name"))
+					nameCandidate = value;
+				else if ("postal_code".equals(key))
+					zipCode = value;
 			}
 			if (goodNameCandidate != null)
 				name = goodNameCandidate;
@@ -48,4 +48,15 @@ public class Node extends Element {
 	public int getMapLon() {
 		return mapLon;
 	}
+
+	@Override
+	public Node copy() {
+		Node n = new Node();
+		copyTo(n);
+		n.lat = lat;
+		n.lon = lon;
+		n.mapLat = mapLat;
+		n.mapLon = mapLon;
+		return n;
+	}
 }
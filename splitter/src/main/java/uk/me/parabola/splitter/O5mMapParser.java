@@ -18,6 +18,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
 /**
  * Parser for the o5m format described here: http://wiki.openstreetmap.org/wiki/O5m
  * The routines to are based on the osmconvert.c source from Markus Weber who allows 
@@ -37,6 +40,12 @@ public class O5mMapParser implements MapReader{
 	private static final int RESET_FLAG = 0xff;
 	
 	private static final int EOF_FLAG = -1;
+
+	// flags for the types of data sets in a segment 
+	static final int SEGMENT_NODES = 0x1;
+	static final int SEGMENT_WAYS = 0x2;
+	static final int SEGMENT_RELS = 0x4;
+	static final int SEGMENT_OTHER = 0x8;
 	
 	// o5m constants
 	private static final int STRING_TABLE_SIZE = 15000;
@@ -56,6 +65,7 @@ public class O5mMapParser implements MapReader{
 	private InputStream is;
 	private ByteArrayInputStream bis;
 	private MapProcessor processor;
+	private final ElementFactory elementFactory;
 	
 	// buffer for byte -> String conversions
 	private byte[] cnvBuffer; 
@@ -75,6 +85,12 @@ public class O5mMapParser implements MapReader{
 	// to allow skipping large parts of the stream
 	long[] firstPosInFile;
 	long[] skipArray;
+	// performance: save byte position of each reset flag and the types of the data sets 
+	// that follow it, so that the segments between them can be read in parallel
+	private LongArrayList segmentStarts;
+	private IntArrayList segmentTypes;
+	// true if the positions above are recorded, this is done in the first pass
+	private final boolean recordPositions;
 	
 	// for delta calculations
 	private long lastNodeId;
@@ -93,6 +109,22 @@ public class O5mMapParser implements MapReader{
 	 * each known 05m data type (esp. nodes, ways, and relations). 
 	 */
 	O5mMapParser(MapProcessor processor, InputStream stream, long[] skipArray) {
+		this(processor, stream, skipArray, skipArray == null);
+	}
+
+	/**
+	 * Create a parser for one segment of an o5m file, see {@link O5mSegmentReader}.
+	 * The stream must start with the reset flag of the segment. The positions
+	 * of the data sets are not recorded again.
+	 * @param processor A mapProcessor instance
+	 * @param stream The InputStream that contains the segment
+	 * @return the parser
+	 */
+	static O5mMapParser forSegment(MapProcessor processor, InputStream stream) {
+		return new O5mMapParser(processor, stream, null, false);
+	}
+
+	private O5mMapParser(MapProcessor processor, InputStream stream, long[] skipArray, boolean recordPositions) {
 		this.processor = processor;
 		this.fis = new BufferedInputStream(stream, 4*1024*1024);
 		is = fis;
@@ -101,14 +133,18 @@ public class O5mMapParser implements MapReader{
 		this.skipNodes = processor.skipNodes();
 		this.skipWays = processor.skipWays();
 		this.skipRels = processor.skipRels();
+		this.elementFactory = new ElementFactory(processor);
 		this.cnvBuffer = new byte[4000]; // OSM data should not contain string pairs with length > 512
 		this.ioBuf = new byte[8192];
 		this.ioPos = 0;
 		this.stringPair = new String[2];
 		this.lastRef = new long[3];
-		if (skipArray == null){
+		this.recordPositions = recordPositions;
+		if (recordPositions){
 			firstPosInFile = new long[256];
 			Arrays.fill(firstPosInFile, -1);
+			segmentStarts = new LongArrayList();
+			segmentTypes = new IntArrayList();
 		}
 		reset();
 	}
@@ -122,6 +158,8 @@ public class O5mMapParser implements MapReader{
 		++countBytes;
 		if (start != RESET_FLAG) 
 			throw new IOException("wrong header byte " + start);
+		if (recordPositions)
+			startSegment(0);
 		if (skipArray != null){
 			if (skipNodes ){
 				if (skipWays)
@@ -141,11 +179,13 @@ public class O5mMapParser implements MapReader{
 			int fileType = is.read();
 			++countBytes;
 			if (fileType >= 0 && fileType < 0xf0){
-				if (skipArray == null){
+				if (recordPositions){
 					// save first occurrence of a data set type
 					if (firstPosInFile[fileType] == -1){
 						firstPosInFile[fileType] = Math.max(0, countBytes-1);    
 					}
+					int last = segmentTypes.size() - 1;
+					segmentTypes.set(last, segmentTypes.getInt(last) | getSegmentType(fileType));
 				}
 				bytesToRead = 0;
 				size = readUnsignedNum64FromStream();
@@ -191,7 +231,11 @@ public class O5mMapParser implements MapReader{
 			else if (fileType == TIMESTAMP_DATASET) readFileTimestamp();
 			else if (fileType == HEADER_DATASET) readHeader();
 			else if (fileType == EOD_FLAG) done = true;
-			else if (fileType == RESET_FLAG) reset();
+			else if (fileType == RESET_FLAG) {
+				reset();
+				if (recordPositions)
+					startSegment(countBytes - 1);
+			}
 			else {
 				if (fileType < 0xf0 )skip(size); // skip unknown data set 
 			}
@@ -244,7 +288,7 @@ public class O5mMapParser implements MapReader{
 	 * @throws IOException
 	 */
 	private void readNode() throws IOException{
-		Node node = new Node();
+		Node node = elementFactory.nextNode();
 		lastNodeId += readSignedNum64();
 		if (bytesToRead == 0)
 			return; // only nodeId: this is a delete action, we ignore it 
@@ -277,7 +321,7 @@ public class O5mMapParser implements MapReader{
 		readVersionTsAuthor();
 		if (bytesToRead == 0)
 			return; // only wayId + version: this is a delete action, we ignore it 
-		Way way = new Way();
+		Way way = elementFactory.nextWay();
 		way.setId(lastWayId);
 		long refSize = readUnsignedNum32();
 		long stop = bytesToRead - refSize;
@@ -305,7 +349,7 @@ public class O5mMapParser implements MapReader{
 		if (bytesToRead == 0)
 			return; // only relId + version: this is a delete action, we ignore it 
 		
-		Relation rel = new Relation();
+		Relation rel = elementFactory.nextRelation();
 		rel.setId(lastRelId);
 		long refSize = readUnsignedNum32();
 		long stop = bytesToRead - refSize;
@@ -646,5 +690,34 @@ public class O5mMapParser implements MapReader{
 	public long[] getSkipArray() {
 		return firstPosInFile;
 	}
+
+	private void startSegment(long pos) {
+		segmentStarts.add(pos);
+		segmentTypes.add(0);
+	}
+
+	private static int getSegmentType(int fileType) {
+		switch (fileType) {
+		case NODE_DATASET: return SEGMENT_NODES;
+		case WAY_DATASET: return SEGMENT_WAYS;
+		case REL_DATASET: return SEGMENT_RELS;
+		default: return SEGMENT_OTHER;
+		}
+	}
+
+	/**
+	 * @return the byte positions of the reset flags, or null if the parser was 
+	 * called with a skip array or for a segment
+	 */
+	public LongArrayList getSegmentStarts() {
+		return segmentStarts;
+	}
+
+	/**
+	 * @return for each segment a combination of the SEGMENT_ flags
+	 */
+	public IntArrayList getSegmentTypes() {
+		return segmentTypes;
+	}
 	
 }
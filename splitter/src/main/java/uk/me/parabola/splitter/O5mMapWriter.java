@@ -22,7 +22,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 
@@ -260,10 +259,8 @@ public class O5mMapWriter extends AbstractOSMWriter{
 	private void writeTags(Element element, OutputStream stream) throws IOException {
 		if (!element.hasTags())
 			return;
-		Iterator<Element.Tag> it = element.tagsIterator();
-		while (it.hasNext()) {
-			Element.Tag entry = it.next();
-			stw_write(entry.key, entry.value, stream);
+		for (int i = 0; i < element.getTagCount(); i++) {
+			stw_write(element.getTagKey(i), element.getTagValue(i), stream);
 		}
 	}
 
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Reads an o5m file with multiple threads.
+ * The o5m format clears all delta values and the string table at each
+ * reset flag, so the segments between them can be decoded independently.
+ * The positions of the reset flags are collected by the O5mMapParser
+ * in the first pass.
+ * The segments are decoded by worker threads while the calling thread
+ * passes the elements to the processor in the order of the file.
+ */
+class O5mSegmentReader {
+	private static final int QUEUED_BATCHES = 8;
+
+	// the start of each segment, the last entry is the length of the file
+	private final long[] positions;
+	private final int[] types;
+
+	/**
+	 * @param segmentStarts the positions of the reset flags as returned by the O5mMapParser
+	 * @param segmentTypes the types of the data sets in each segment
+	 * @param fileLength the length of the file
+	 */
+	O5mSegmentReader(LongArrayList segmentStarts, IntArrayList segmentTypes, long fileLength) {
+		int n = segmentStarts.size();
+		positions = new long[n + 1];
+		for (int i = 0; i < n; i++)
+			positions[i] = segmentStarts.getLong(i);
+		positions[n] = fileLength;
+		types = segmentTypes.toIntArray();
+	}
+
+	int getNumSegments() {
+		return types.length;
+	}
+
+	/**
+	 * Read the segments that contain wanted data sets and pass their elements
+	 * to the processor.
+	 * @param file the o5m file
+	 * @param processor the processor
+	 * @param numThreads the number of threads used for decoding
+	 * @throws IOException
+	 */
+	void process(File file, MapProcessor processor, int numThreads) throws IOException {
+		// like the sequential parser, skip the header and bounding box together with the nodes 
+		int wanted = 0;
+		if (!processor.skipNodes())
+			wanted |= O5mMapParser.SEGMENT_NODES | O5mMapParser.SEGMENT_OTHER;
+		if (!processor.skipWays())
+			wanted |= O5mMapParser.SEGMENT_WAYS;
+		if (!processor.skipRels())
+			wanted |= O5mMapParser.SEGMENT_RELS;
+
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<BlockingQueue<List<Object>>> queues = new ArrayList<>();
+			List<Future<?>> results = new ArrayList<>();
+			// the tasks are started in the order of the file, so the segment that is
+			// needed next is always being decoded
+			for (int i = 0; i < types.length; i++) {
+				if ((types[i] & wanted) == 0)
+					continue;
+				BlockingQueue<List<Object>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+				long start = positions[i];
+				long end = positions[i + 1];
+				queues.add(queue);
+				results.add(pool.submit(() -> {
+					decodeSegment(file, start, end, processor, queue);
+					return null;
+				}));
+			}
+			for (int i = 0; i < queues.size(); i++) {
+				BlockingQueue<List<Object>> queue = queues.get(i);
+				while (true) {
+					List<Object> batch = queue.take();
+					if (batch == ElementCollector.END_OF_INPUT)
+						break;
+					ElementCollector.deliver(batch, processor);
+				}
+				results.get(i).get();
+			}
+		} catch (InterruptedException e) {
+			throw new SplitFailedException("Interrupted while reading " + file, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new SplitFailedException("Failed to read " + file, e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static void decodeSegment(File file, long start, long end, MapProcessor processor,
+			BlockingQueue<List<Object>> queue) throws IOException, InterruptedException {
+		ElementCollector collector = new ElementCollector(processor, queue);
+		try (InputStream stream = new FileInputStream(file)) {
+			long toSkip = start;
+			while (toSkip > 0)
+				toSkip -= stream.skip(toSkip);
+			O5mMapParser parser = O5mMapParser.forSegment(collector, new SegmentInputStream(stream, end - start));
+			parser.parse();
+			collector.flush();
+		} finally {
+			queue.put(ElementCollector.END_OF_INPUT);
+		}
+	}
+
+	/**
+	 * A stream that ends after the given number of bytes.
+	 */
+	private static class SegmentInputStream extends FilterInputStream {
+		private long remaining;
+
+		SegmentInputStream(InputStream in, long length) {
+			super(in);
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0)
+				return -1;
+			int b = super.read();
+			if (b >= 0)
+				remaining--;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0)
+				return -1;
+			int n = super.read(b, off, (int) Math.min(len, remaining));
+			if (n > 0)
+				remaining -= n;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(Math.min(n, remaining));
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), remaining);
+		}
+	}
+}
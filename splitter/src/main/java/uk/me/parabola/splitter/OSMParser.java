@@ -30,6 +30,7 @@ class OSMParser extends AbstractXppParser implements MapReader {
 	private Relation currentRelation = new Relation();	
 
 	private final MapProcessor processor;
+	private final ElementFactory elementFactory;
 	// for status messages
 	private final ElementCounter elemCounter = new ElementCounter();
 
@@ -50,6 +51,7 @@ class OSMParser extends AbstractXppParser implements MapReader {
 		skipNodes = processor.skipNodes();
 		skipWays = processor.skipWays();
 		skipRels = processor.skipRels();
+		elementFactory = new ElementFactory(processor);
 	}
 
 	/**
@@ -109,19 +111,19 @@ class OSMParser extends AbstractXppParser implements MapReader {
 		double lat = Convert.parseDouble(latStr);
 		double lon = Convert.parseDouble(lonStr);
 
-		currentNode = new Node();
+		currentNode = elementFactory.nextNode();
 		currentNode.set(id, lat, lon);
 		state = State.Node;
 	}
 
 	private void startWay() {
-		currentWay = new Way();
+		currentWay = elementFactory.nextWay();
 		currentWay.setId(getLongAttr("id"));
 		state = State.Way;
 	}
 
 	private void startRelation() {
-		currentRelation = new Relation();
+		currentRelation = elementFactory.nextRelation();
 		currentRelation.setId(getLongAttr("id"));
 		state = State.Relation;
 	}
@@ -51,6 +51,12 @@ public interface OSMWriter {
 
 	public abstract void write(Relation rel) throws IOException;
 
+	/**
+	 * @return true if the writer keeps references to the written elements
+	 * after write() returns, so that they must not be changed later 
+	 */
+	public boolean keepsElements();
+
 	/**
 	 * @return true if the area was added for the problem list generator
 	 */
@@ -23,7 +23,6 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.zip.GZIPOutputStream;
@@ -138,13 +137,11 @@ public class OSMXMLWriter extends AbstractOSMWriter{
 	}
 
 	private void writeTags(Element element) throws IOException {
-		Iterator<Element.Tag> it = element.tagsIterator();
-		while (it.hasNext()) {
-			Element.Tag entry = it.next();
+		for (int i = 0; i < element.getTagCount(); i++) {
 			writeString("<tag k='");
-			writeAttribute(entry.getKey());
+			writeAttribute(element.getTagKey(i));
 			writeString("' v='");
-			writeAttribute(entry.getValue());
+			writeAttribute(element.getTagValue(i));
 			writeString("'/>\n");
 		}
 	}
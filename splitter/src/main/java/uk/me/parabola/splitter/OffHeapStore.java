@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A growable list of equally sized memory segments that are not part of the
+ * Java heap. The segments are either allocated as direct buffers or mapped
+ * from a temporary file. Mapped segments are backed by the page cache, so
+ * the operating system can write them out when memory is short.
+ * New segments are filled with zeros. After {@link #reset()} the allocated
+ * segments are handed out again, they are cleared when they are reused.
+ */
+class OffHeapStore {
+	private static final byte[] ZEROS = new byte[8192];
+
+	private final int segmentSize;
+	private final File dir;
+	private final String name;
+	private final List<ByteBuffer> segments = new ArrayList<>();
+	// the number of segments in use, the others are kept for reuse
+	private int used;
+	private RandomAccessFile raf;
+	private FileChannel channel;
+
+	/**
+	 * @param name used for the name of the temporary file
+	 * @param segmentSize the size of one segment in bytes
+	 * @param dir the directory for the temporary file, or null to use direct buffers
+	 */
+	OffHeapStore(String name, int segmentSize, File dir) {
+		this.name = name;
+		this.segmentSize = segmentSize;
+		this.dir = dir;
+	}
+
+	/**
+	 * @return the number of segments in use
+	 */
+	int size() {
+		return used;
+	}
+
+	/**
+	 * @param n the index of the segment
+	 * @return the segment, adds all segments up to n if needed
+	 */
+	ByteBuffer segment(int n) {
+		while (n >= used) {
+			if (used < segments.size())
+				fillZeros(segments.get(used));
+			else
+				segments.add(allocate(used));
+			used++;
+		}
+		return segments.get(n);
+	}
+
+	/**
+	 * Add a new segment.
+	 * @return the new segment
+	 */
+	ByteBuffer addSegment() {
+		return segment(used);
+	}
+
+	/**
+	 * Mark all segments as unused. The memory is kept, so that the segments
+	 * can be reused without allocating new buffers.
+	 */
+	void reset() {
+		used = 0;
+	}
+
+	private static void fillZeros(ByteBuffer segment) {
+		ByteBuffer buf = segment.duplicate();
+		buf.clear();
+		while (buf.hasRemaining())
+			buf.put(ZEROS, 0, Math.min(ZEROS.length, buf.remaining()));
+	}
+
+	private ByteBuffer allocate(int n) {
+		ByteBuffer buf;
+		if (dir == null) {
+			try {
+				buf = ByteBuffer.allocateDirect(segmentSize);
+			} catch (OutOfMemoryError e) {
+				throw new SplitFailedException("Out of direct memory, increase -XX:MaxDirectMemorySize or use --map-storage=mapped");
+			}
+		} else {
+			try {
+				if (channel == null) {
+					File tmpFile = File.createTempFile(name, null, dir);
+					raf = new RandomAccessFile(tmpFile, "rw");
+					channel = raf.getChannel();
+					// the file is kept open, so we can remove the name right away
+					if (!tmpFile.delete())
+						tmpFile.deleteOnExit();
+				}
+				buf = channel.map(FileChannel.MapMode.READ_WRITE, (long) n * segmentSize, segmentSize);
+			} catch (IOException e) {
+				throw new SplitFailedException("Failed to map temporary file in " + dir, e);
+			}
+		}
+		return buf.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Release all segments. The memory is returned to the operating system
+	 * when the buffers are garbage collected.
+	 */
+	void close() {
+		segments.clear();
+		used = 0;
+		if (channel != null) {
+			try {
+				raf.close();
+			} catch (IOException e) {
+				// ignore, the file was already deleted
+			}
+			channel = null;
+			raf = null;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import com.google.protobuf.ByteString;
+
+import crosby.binary.Fileformat;
+import crosby.binary.file.BlockOutputStream;
+import crosby.binary.file.FileBlock;
+
+/**
+ * Writes the blocks of a pbf file. The blocks are compressed by a pool of
+ * threads which is shared by all files, the compressed blocks are written
+ * in the original order. Only a few blocks of each file are kept in the
+ * pool, the writer waits for the oldest one when the limit is reached.
+ */
+class ParallelBlockOutputStream extends BlockOutputStream {
+	/** level 0 means that the blocks are stored without compression */
+	public static final int NO_COMPRESSION = 0;
+	private static final int MAX_PENDING_BLOCKS = 4;
+
+	private static int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	private static int numThreads = 1;
+	private static ExecutorService pool;
+
+	private final OutputStream out;
+	private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+	ParallelBlockOutputStream(OutputStream out) {
+		super(out);
+		this.out = out;
+	}
+
+	/**
+	 * Select how the blocks are compressed.
+	 * @param level 0 for uncompressed blocks, else the deflate level 1 to 9
+	 * @param threads the number of threads that compress the blocks
+	 */
+	public static synchronized void setCompression(int level, int threads) {
+		compressionLevel = level;
+		numThreads = threads;
+	}
+
+	private static synchronized ExecutorService getPool() {
+		if (numThreads <= 1)
+			return null;
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(numThreads, r -> {
+				Thread t = new Thread(r, "pbf-compress");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return pool;
+	}
+
+	@Override
+	public void write(FileBlock block) throws IOException {
+		final String type = block.getType();
+		final ByteString data = block.getData();
+		final int level = compressionLevel;
+		ExecutorService executor = getPool();
+		if (executor == null) {
+			out.write(encode(type, data, level));
+			return;
+		}
+		pending.add(executor.submit(() -> encode(type, data, level)));
+		while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > MAX_PENDING_BLOCKS)) {
+			writePending();
+		}
+	}
+
+	private void writePending() throws IOException {
+		try {
+			out.write(pending.poll().get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SplitFailedException("interrupted while compressing pbf block", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new SplitFailedException("failed to compress pbf block", cause);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		while (!pending.isEmpty()) {
+			writePending();
+		}
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Create the blob header and the blob for a block.
+	 * @return the bytes as they are written to the file
+	 */
+	static byte[] encode(String type, ByteString data, int level) throws IOException {
+		Fileformat.Blob.Builder blob = Fileformat.Blob.newBuilder();
+		if (level == NO_COMPRESSION) {
+			blob.setRaw(data);
+		} else {
+			blob.setZlibData(deflate(data.toByteArray(), level));
+			blob.setRawSize(data.size());
+		}
+		ByteString blobData = blob.build().toByteString();
+		ByteString header = Fileformat.BlobHeader.newBuilder().setType(type).setDatasize(blobData.size()).build()
+				.toByteString();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + header.size() + blobData.size());
+		DataOutputStream dos = new DataOutputStream(bytes);
+		dos.writeInt(header.size());
+		header.writeTo(dos);
+		blobData.writeTo(dos);
+		dos.flush();
+		return bytes.toByteArray();
+	}
+
+	private static ByteString deflate(byte[] raw, int level) {
+		Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(raw);
+			deflater.finish();
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+			byte[] buf = new byte[1 << 16];
+			while (!deflater.finished()) {
+				int len = deflater.deflate(buf);
+				compressed.write(buf, 0, len);
+			}
+			return ByteString.copyFrom(compressed.toByteArray());
+		} finally {
+			deflater.end();
+		}
+	}
+}
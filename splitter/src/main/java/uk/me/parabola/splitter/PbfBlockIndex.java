@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.google.protobuf.ByteString;
+
+import crosby.binary.Fileformat;
+import crosby.binary.file.FileBlock;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+
+/**
+ * The position, size, and content of the blocks in a pbf file.
+ * The index is created while the file is read the first time. Later
+ * passes use it to read only the blocks that contain the element types
+ * which are needed by the processor, all other blocks are skipped
+ * without reading them from disk.
+ *
+ * The index can be saved in a file next to the pbf file so that
+ * it can be used again in the next run.
+ */
+class PbfBlockIndex {
+	private static final String INDEX_EXT = ".blocks";
+	private static final int INDEX_MAGIC = 0x53504249; // "SPBI"
+	private static final int INDEX_VERSION = 1;
+
+	private static final String HEADER_BLOCK = "OSMHeader";
+	private static final String DATA_BLOCK = "OSMData";
+
+	// the length of the file and the modification time when the index was created
+	private final long fileLength;
+	private final long lastModified;
+
+	// for each block: the position and size of the blob, and the element types found in it
+	private final LongArrayList offsets = new LongArrayList();
+	private final IntArrayList sizes = new IntArrayList();
+	private final ShortArrayList types = new ShortArrayList();
+	private final BitSet headerBlocks = new BitSet();
+
+	private PbfBlockIndex(File file) {
+		this.fileLength = file.length();
+		this.lastModified = file.lastModified();
+	}
+
+	private PbfBlockIndex(long fileLength, long lastModified) {
+		this.fileLength = fileLength;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Read all blocks of the file and create the index.
+	 * @param file the pbf file
+	 * @param parser the parser that is called for each block
+	 * @return the new index
+	 * @throws IOException
+	 */
+	static PbfBlockIndex create(File file, BinaryMapParser parser) throws IOException {
+		PbfBlockIndex index = new PbfBlockIndex(file);
+		try (FileInputStream fis = new FileInputStream(file);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 1 << 16))) {
+			long pos = 0;
+			while (true) {
+				int headerSize;
+				try {
+					headerSize = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				byte[] headerData = new byte[headerSize];
+				in.readFully(headerData);
+				Fileformat.BlobHeader header = Fileformat.BlobHeader.parseFrom(headerData);
+				byte[] blob = new byte[header.getDatasize()];
+				in.readFully(blob);
+				long blobPos = pos + 4 + headerSize;
+				pos = blobPos + blob.length;
+
+				String type = header.getType();
+				if (!HEADER_BLOCK.equals(type) && !DATA_BLOCK.equals(type)) {
+					System.out.println("Skipped block of type: " + type);
+					continue;
+				}
+				short elemTypes = parser.parseBlock(FileBlock.newInstance(type, unpack(blob), null));
+				index.offsets.add(blobPos);
+				index.sizes.add(blob.length);
+				index.types.add(elemTypes);
+				if (HEADER_BLOCK.equals(type))
+					index.headerBlocks.set(index.offsets.size() - 1);
+			}
+		}
+		parser.complete();
+		return index;
+	}
+
+	/**
+	 * Read the blocks that contain elements which are wanted by the parser.
+	 * @param file the pbf file
+	 * @param parser the parser that is called for each block
+	 * @return the number of blocks that were read
+	 * @throws IOException
+	 */
+	int process(File file, BinaryMapParser parser) throws IOException {
+		long bytesRead = 0;
+		int blocksRead = 0;
+		try (FileInputStream fis = new FileInputStream(file); FileChannel channel = fis.getChannel()) {
+			for (int i = 0; i < offsets.size(); i++) {
+				if (!parser.isWantedBlock(types.getShort(i)))
+					continue;
+				int size = sizes.getInt(i);
+				byte[] blob = new byte[size];
+				ByteBuffer buf = ByteBuffer.wrap(blob);
+				long pos = offsets.getLong(i);
+				while (buf.hasRemaining()) {
+					if (channel.read(buf, pos + buf.position()) < 0)
+						throw new EOFException("unexpected end of file " + file);
+				}
+				String type = headerBlocks.get(i) ? HEADER_BLOCK : DATA_BLOCK;
+				parser.parseBlock(FileBlock.newInstance(type, unpack(blob), null));
+				bytesRead += size;
+				blocksRead++;
+			}
+		}
+		parser.complete();
+		System.out.println("Read " + blocksRead + " of " + offsets.size() + " blocks ("
+				+ Utils.format(bytesRead / (1024 * 1024)) + " of " + Utils.format(fileLength / (1024 * 1024)) + " MB)");
+		return blocksRead;
+	}
+
+	/**
+	 * Uncompress the data of a blob.
+	 */
+	private static ByteString unpack(byte[] data) throws IOException {
+		Fileformat.Blob blob = Fileformat.Blob.parseFrom(data);
+		if (blob.hasRaw())
+			return blob.getRaw();
+		if (blob.hasZlibData()) {
+			byte[] raw = new byte[blob.getRawSize()];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(blob.getZlibData().toByteArray());
+				inflater.inflate(raw);
+				if (!inflater.finished())
+					throw new IOException("wrong size of compressed block");
+			} catch (DataFormatException e) {
+				throw new IOException("invalid compressed block", e);
+			} finally {
+				inflater.end();
+			}
+			return ByteString.copyFrom(raw);
+		}
+		throw new UnknownFeatureException("unsupported compression of pbf block");
+	}
+
+	private static File indexFile(File file) {
+		return new File(file.getPath() + INDEX_EXT);
+	}
+
+	/**
+	 * Read the saved index of a pbf file.
+	 * @param file the pbf file
+	 * @return the index or null if no valid index was found
+	 */
+	static PbfBlockIndex load(File file) {
+		File indexFile = indexFile(file);
+		if (!indexFile.exists())
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+				return null;
+			PbfBlockIndex index = new PbfBlockIndex(in.readLong(), in.readLong());
+			if (index.fileLength != file.length() || index.lastModified != file.lastModified()) {
+				System.out.println("Ignoring outdated block index " + indexFile);
+				return null;
+			}
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				index.offsets.add(in.readLong());
+				index.sizes.add(in.readInt());
+				index.types.add(in.readShort());
+				index.headerBlocks.set(i, in.readBoolean());
+			}
+			System.out.println("Using block index " + indexFile);
+			return index;
+		} catch (IOException e) {
+			System.out.println("Cannot read block index " + indexFile + ": " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Save the index next to the pbf file.
+	 * @param file the pbf file
+	 */
+	void save(File file) {
+		File indexFile = indexFile(file);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			out.writeLong(fileLength);
+			out.writeLong(lastModified);
+			out.writeInt(offsets.size());
+			for (int i = 0; i < offsets.size(); i++) {
+				out.writeLong(offsets.getLong(i));
+				out.writeInt(sizes.getInt(i));
+				out.writeShort(types.getShort(i));
+				out.writeBoolean(headerBlocks.get(i));
+			}
+		} catch (IOException e) {
+			System.out.println("Cannot write block index " + indexFile + ": " + e.getMessage());
+			if (!indexFile.delete())
+				indexFile.deleteOnExit();
+		}
+	}
+}
@@ -39,6 +39,11 @@ class PolygonDescProcessor extends AbstractMapProcessor {
 		this.resolution = resolution;
 	}
 
+	@Override
+	public boolean reuseElements() {
+		return true;
+	}
+
 	@Override
 	public void processNode(Node n){
 		// round all coordinates to be on the used grid. 
@@ -19,7 +19,6 @@ import it.unimi.dsi.fastutil.longs.LongArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashSet;
-import java.util.Iterator;
 
 /**
  * Find ways and relations that will be incomplete.
@@ -120,6 +119,18 @@ class ProblemListProcessor extends AbstractMapProcessor {
 			return false;
 		return true;
 	}
+	@Override
+	public boolean reuseElements() {
+		return true;
+	}
+	/**
+	 * The relations can be read in any order. Ways have to be read
+	 * after the nodes of all files. 
+	 */
+	@Override
+	public boolean allowConcurrentFiles() {
+		return phase == PHASE2_RELS_ONLY;
+	}
 		
 	@Override
 	public int getPhase(){
@@ -229,21 +240,21 @@ class ProblemListProcessor extends AbstractMapProcessor {
 		boolean isMPRelType = false;
 		boolean hasBoundaryTag = false;
 		boolean isWantedBoundary = (wantedBoundaryTagValues == null) ? true:false;
-		Iterator<Element.Tag> tags = rel.tagsIterator();
-		while(tags.hasNext()) {
-			Element.Tag t = tags.next();
-			if ("type".equals(t.key)) {
-				if ("restriction".equals((t.value)) || "through_route".equals((t.value)) || t.value.startsWith("restriction:"))
+		for (int i = 0; i < rel.getTagCount(); i++) {
+			String key = rel.getTagKey(i);
+			String value = rel.getTagValue(i);
+			if ("type".equals(key)) {
+				if ("restriction".equals(value) || "through_route".equals(value) || value.startsWith("restriction:"))
 					useThis= true; // no need to check other tags
-				else if ("multipolygon".equals((t.value))  || "boundary".equals((t.value)))
+				else if ("multipolygon".equals(value)  || "boundary".equals(value))
 					isMPRelType= true;
-			} else if ("boundary".equals(t.key)){
+			} else if ("boundary".equals(key)){
 				hasBoundaryTag = true;
 				if (wantedBoundaryTagValues != null){
-					if (wantedBoundaryTagValues.contains(t.value))
+					if (wantedBoundaryTagValues.contains(value))
 						isWantedBoundary = true;
 				} else {
-					if (unwantedBoundaryTagValues.contains(t.value))
+					if (unwantedBoundaryTagValues.contains(value))
 						isWantedBoundary = false;
 				}
 			}
@@ -30,7 +30,22 @@ public class Relation extends Element {
 		return members;
 	}
 
-	static class Member {
+	@Override
+	public void reset() {
+		super.reset();
+		members.clear();
+	}
+
+	@Override
+	public Relation copy() {
+		Relation r = new Relation();
+		copyTo(r);
+		// members are not modified after creation, so they can be shared
+		r.members.addAll(members);
+		return r;
+	}
+
+	public static class Member {
 		private String type;
 		private long ref;
 		private String role;
@@ -12,13 +12,32 @@
  */
 package uk.me.parabola.splitter;
 
+import java.io.File;
+
 /**
  * Helper class to create appropriate instance of a Long/Short map. 
  * @author Gerd
  *
  */
 public class SparseLong2ShortMap {
+	private static String storage = "heap";
+	private static File tmpDir;
+
+	/**
+	 * Select where the maps keep their data.
+	 * @param type heap, direct, or mapped
+	 * @param dir the directory for temporary files when type is mapped
+	 */
+	public static void setStorage(String type, File dir){
+		storage = type;
+		tmpDir = dir;
+	}
+
 	public static SparseLong2ShortMapFunction createMap(){
+		if ("direct".equals(storage))
+			return new SparseLong2ShortMapOffHeap(null);
+		if ("mapped".equals(storage))
+			return new SparseLong2ShortMapOffHeap(tmpDir);
 		long maxMem = Runtime.getRuntime().maxMemory() / 1024 / 1024;
 		// prefer implementation with lower memory footprint when free heap is less than 2 GB
 		if (maxMem < 2048)
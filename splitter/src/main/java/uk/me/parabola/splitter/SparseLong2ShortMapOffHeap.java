@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * {@link SparseLong2ShortMapOffHeap} implements {@link SparseLong2ShortMapFunction}
+ * with the same chunk layout and compression as {@link SparseLong2ShortMapInline},
+ * but the large vectors and the chunks are kept outside of the Java heap in
+ * an {@link OffHeapStore}, either in direct buffers or in memory mapped
+ * temporary files. Only the top level HashMap, the current chunk and the
+ * lists of reusable chunks are on the heap, so that large splits with
+ * --keep-complete need only a small heap.
+ *
+ * A chunk record consists of the 64 bit mask of used entries followed by
+ * the (compressed) values. Records of equal length are stored together,
+ * so a record is found with two values:
+ * x is the length of the chunk (the number of required shorts) (1-64, we store the value decremented by 1 to have 0-63)
+ * y is the position of the record in the store for length x (0-2147483647)
+ * Both values are placed together into one long which is saved in the large vector.
+ */
+public class SparseLong2ShortMapOffHeap implements SparseLong2ShortMapFunction {
+	private static final long CHUNK_ID_MASK = 0x7ffffffL; 		// the part of the key that is not saved in the top HashMap
+	private static final long TOP_ID_MASK = ~CHUNK_ID_MASK;  	// the part of the key that is saved in the top HashMap
+	private static final int TOP_ID_SHIFT = Long.numberOfTrailingZeros(TOP_ID_MASK);
+
+	private static final int CHUNK_STORE_BITS_FOR_X = 6;
+	private static final int CHUNK_STORE_BITS_FOR_Y = 31;
+	private static final long CHUNK_STORE_X_MASK = (1L << CHUNK_STORE_BITS_FOR_X) - 1;
+	private static final long CHUNK_STORE_Y_MASK = (1L << CHUNK_STORE_BITS_FOR_Y) - 1;
+	private static final long CHUNK_STORE_USED_FLAG_MASK = 1L << 63;
+	private static final int CHUNK_STORE_Y_SHIFT = CHUNK_STORE_BITS_FOR_X;
+
+	// number of records in one segment of a chunk store
+	private static final int RECORDS_BITS = 16;
+	private static final int RECORDS_PER_SEGMENT = 1 << RECORDS_BITS;
+	private static final int RECORDS_MASK = RECORDS_PER_SEGMENT - 1;
+
+	private static final int CHUNK_SIZE = 64; 							// 64  = 1<< 6 (last 6 bits of the key)
+	private static final long CHUNK_OFFSET_MASK = CHUNK_SIZE-1;  		// the part of the key that contains the offset in the chunk
+	private static final long OLD_CHUNK_ID_MASK = ~CHUNK_OFFSET_MASK;	// first 58 bits of a long. If this part of the key changes, a different chunk is needed
+
+	private static final long INVALID_CHUNK_ID = 1L; // must NOT be divisible by CHUNK_SIZE
+	private static final int LARGE_VECTOR_SIZE = (int)(CHUNK_ID_MASK/ CHUNK_SIZE + 1); // number of entries addressed by one topMap entry
+
+	private static final int ONE_VALUE_CHUNK_SIZE = 1;
+
+	/** What to return on unassigned indices */
+	private short unassigned = UNASSIGNED;
+	private long size;
+
+	private long currentChunkId = INVALID_CHUNK_ID;
+	private short [] currentChunk = new short[CHUNK_SIZE];  // stores the values in the real position
+	private short [] tmpWork = new short[CHUNK_SIZE];  // a chunk after applying the "mask encoding"
+	private short [] RLEWork = new short[CHUNK_SIZE];  // for the RLE-compressed chunk
+
+	// for statistics
+	private long [] countChunkLen;
+	private long expanded = 0;
+	private long uncompressedLen = 0;
+	private long compressedLen = 0;
+	private int storedLengthOfCurrentChunk = 0;
+	private long currentChunkIdInStore = 0;
+
+	private final File dir;
+	private Long2ObjectOpenHashMap<ByteBuffer> topMap;
+	private OffHeapStore vectorStore;
+	private OffHeapStore[] chunkStores;
+	private int[] freePosInStore;
+	// chunks that can be reused, one list for each length
+	private LongArrayList[] reusableChunks;
+
+	/**
+	 * A map that stores pairs of (OSM) IDs and short values identifying the
+	 * areas in which the object (node,way) with the ID occurs.
+	 * @param dir the directory for temporary files or null to use direct memory
+	 */
+	SparseLong2ShortMapOffHeap(File dir) {
+		this.dir = dir;
+		clear();
+	}
+
+	/**
+	 * Count how many of the lowest X bits in mask are set
+	 *
+	 * @return
+	 */
+	private static int countUnder(long mask, int lowest) {
+		return Long.bitCount(mask & ((1L << lowest) - 1));
+	}
+
+	private static int recordSize(int x) {
+		return 8 + (x + 1) * 2; // the mask and the values
+	}
+
+	/**
+	 * Try to use Run Length Encoding to compress the chunk stored in tmpWork. In most
+	 * cases this works very well because chunks often have only one
+	 * or two distinct values.
+	 * @param maxlen: number of elements in the chunk.
+	 * @return -1 if compression doesn't save space, else the number of elements in the
+	 * compressed chunk stored in buffer RLEWork.
+	 */
+	private int chunkCompressRLE (int maxlen){
+		int opos =  1;
+		for (int i = 0; i < maxlen; i++) {
+			short runLength = 1;
+			while (i+1 < maxlen && tmpWork[i] == tmpWork[i+1]) {
+				runLength++;
+				i++;
+			}
+			if (opos+2 >= tmpWork.length)
+				return -1; // compressed record is not shorter
+			RLEWork[opos++] = runLength;
+			RLEWork[opos++] = tmpWork[i];
+		}
+		if (opos == 3){
+			// special case: the chunk contains only one distinct value
+			// we can store this in a length-1 chunk because we don't need
+			// the length counter nor the compression flag
+			RLEWork[0] = RLEWork[2];
+			return ONE_VALUE_CHUNK_SIZE;
+		}
+
+		if (opos < maxlen){
+			RLEWork[0] = unassigned; // signal a normal compressed record
+			return opos;
+		}
+		return -1;
+	}
+
+	/**
+	 * Try to compress the data in currentChunk and store the result in the chunkStore.
+	 */
+	private void saveCurrentChunk(){
+		long mask = 0;
+		int RLELen = -1;
+		int opos = 0;
+		long elementMask = 1L;
+		short [] chunkToSave;
+		// move used entries to the beginning
+		for (int j=0; j < CHUNK_SIZE; j++){
+			if (currentChunk[j] != unassigned) {
+				mask |= elementMask;
+				tmpWork[opos++] = currentChunk[j];
+			}
+			elementMask <<= 1;
+		}
+		uncompressedLen += opos;
+		if (opos > ONE_VALUE_CHUNK_SIZE)
+			RLELen =  chunkCompressRLE(opos);
+		if (RLELen > 0){
+			chunkToSave = RLEWork;
+			opos = RLELen;
+		}
+		else
+			chunkToSave = tmpWork;
+		compressedLen += opos;
+		putChunk(currentChunkId, chunkToSave, opos, mask);
+	}
+
+	@Override
+	public boolean containsKey(long key) {
+		return get(key) != unassigned;
+	}
+
+	@Override
+	public short put(long key, short val) {
+		long chunkId = key & OLD_CHUNK_ID_MASK;
+		if (val == unassigned) {
+			throw new IllegalArgumentException("Cannot store the value that is reserved as being unassigned. val=" + val);
+		}
+		int chunkoffset = (int) (key & CHUNK_OFFSET_MASK);
+		short out;
+		if (currentChunkId == chunkId){
+			out = currentChunk[chunkoffset];
+			currentChunk[chunkoffset] = val;
+			if (out == unassigned)
+				size++;
+			return out;
+		}
+
+		if (currentChunkId != INVALID_CHUNK_ID){
+			// we need a different chunk
+			saveCurrentChunk();
+		}
+
+		fillCurrentChunk(key);
+		out = currentChunk[chunkoffset];
+		currentChunkId = chunkId;
+		currentChunk[chunkoffset] = val;
+		if (out == unassigned)
+			size++;
+
+		return out;
+	}
+
+	/**
+	 * Check if we already have a chunk for the given key. If no,
+	 * fill currentChunk with default value, else with the saved
+	 * chunk.
+	 * @param key
+	 */
+	private void fillCurrentChunk(long key) {
+		Arrays.fill(currentChunk, unassigned);
+		storedLengthOfCurrentChunk = 0;
+		currentChunkIdInStore = 0;
+		long topID = key >> TOP_ID_SHIFT;
+		ByteBuffer largeVector = topMap.get(topID);
+		if (largeVector == null)
+			return;
+		int chunkid = (int) (key & CHUNK_ID_MASK) / CHUNK_SIZE;
+
+		long idx = largeVector.getLong(chunkid * 8);
+		if (idx == 0)
+			return;
+		currentChunkIdInStore = idx;
+		int x = (int) (idx & CHUNK_STORE_X_MASK);
+		int y = (int) ((idx >> CHUNK_STORE_Y_SHIFT) & CHUNK_STORE_Y_MASK);
+		int chunkLen = x +  1;
+		ByteBuffer store = chunkStores[x].segment(y >>> RECORDS_BITS);
+		int startPos = (y & RECORDS_MASK) * recordSize(x);
+		long chunkMask = store.getLong(startPos);
+		startPos += 8;
+		long elementmask = 0;
+
+		++expanded;
+		storedLengthOfCurrentChunk = chunkLen;
+		boolean isCompressed = (chunkLen == ONE_VALUE_CHUNK_SIZE || store.getShort(startPos) == unassigned);
+		if (isCompressed){
+			int opos = 0;
+			if (chunkLen == ONE_VALUE_CHUNK_SIZE) {
+				// decode one-value-chunk
+				short val = store.getShort(startPos);
+				elementmask = 1;
+				for (opos = 0; opos<CHUNK_SIZE; opos++){
+					if ((chunkMask & elementmask) != 0)
+						currentChunk[opos] = val;
+					elementmask <<= 1;
+				}
+			}
+			else {
+				// decode RLE-compressed chunk with multiple values
+				int ipos = 1;
+				int len = store.getShort(startPos + 2 * ipos++);
+				short val = store.getShort(startPos + 2 * ipos++);
+				while (len > 0){
+					while (len > 0 && opos < currentChunk.length){
+						if ((chunkMask & 1L << opos) != 0){
+							currentChunk[opos] = val;
+							--len;
+						}
+						++opos;
+					}
+					if (ipos+1 < chunkLen){
+						len = store.getShort(startPos + 2 * ipos++);
+						val = store.getShort(startPos + 2 * ipos++);
+					}
+					else len = -1;
+				}
+			}
+		}
+		else {
+			// decode uncompressed chunk
+			int ipos = startPos;
+			elementmask = 1;
+			for (int opos=0; opos < CHUNK_SIZE; opos++) {
+				if ((chunkMask & elementmask) != 0) {
+					currentChunk[opos] = store.getShort(ipos);
+					ipos += 2;
+				}
+				elementmask <<= 1;
+			}
+		}
+	}
+
+	@Override
+	public short get(long key){
+		long chunkId = key & OLD_CHUNK_ID_MASK;
+		int chunkoffset = (int) (key & CHUNK_OFFSET_MASK);
+
+		if (currentChunkId == chunkId)
+			 return currentChunk[chunkoffset];
+
+		long topID = key >> TOP_ID_SHIFT;
+		ByteBuffer largeVector = topMap.get(topID);
+		if (largeVector == null)
+			return unassigned;
+		int chunkid = (int) (key & CHUNK_ID_MASK) / CHUNK_SIZE;
+
+		long idx = largeVector.getLong(chunkid * 8);
+		if (idx == 0)
+			return unassigned;
+		int x = (int) (idx & CHUNK_STORE_X_MASK);
+		int y = (int) ((idx >> CHUNK_STORE_Y_SHIFT) & CHUNK_STORE_Y_MASK);
+		int chunkLen = x +  1;
+		ByteBuffer store = chunkStores[x].segment(y >>> RECORDS_BITS);
+		int startOfRecord = (y & RECORDS_MASK) * recordSize(x);
+
+		long chunkMask = store.getLong(startOfRecord);
+		long elementmask = 1L << chunkoffset;
+		if ((chunkMask & elementmask) == 0)
+			return unassigned; // not in chunk
+		int startOfChunk = startOfRecord + 8;
+		// the map contains the key, extract the value
+		short firstAfterMask = store.getShort(startOfChunk);
+		if (chunkLen == ONE_VALUE_CHUNK_SIZE)
+			return firstAfterMask;
+		int index = countUnder(chunkMask, chunkoffset);
+		if (firstAfterMask == unassigned){
+			// extract from compressed chunk
+			short len;
+			for (int j=1; j < chunkLen; j+=2){
+				len = store.getShort(startOfChunk + 2 * j);
+				index -= len;
+				if (index < 0) return store.getShort(startOfChunk + 2 * (j + 1));
+			}
+			return unassigned; // should not happen
+		}
+		// extract from uncompressed chunk
+		return store.getShort(startOfChunk + 2 * index);
+	}
+
+	@Override
+	public void clear() {
+		if (chunkStores != null) {
+			// keep the allocated segments, they are reused for the next pass
+			vectorStore.reset();
+			for (OffHeapStore store : chunkStores)
+				store.reset();
+		} else {
+			System.out.println(this.getClass().getSimpleName() + ": Allocating three-tier structure to save area info (HashMap->vector->chunkvector) in "
+					+ (dir == null ? "direct memory" : "memory mapped files in " + dir.getAbsolutePath()));
+			vectorStore = new OffHeapStore("vectors", LARGE_VECTOR_SIZE * 8, dir);
+			chunkStores = new OffHeapStore[CHUNK_SIZE];
+			for (int i = 0; i < CHUNK_SIZE; i++)
+				chunkStores[i] = new OffHeapStore("chunks" + (i + 1) + "-", RECORDS_PER_SEGMENT * recordSize(i), dir);
+		}
+		topMap = new Long2ObjectOpenHashMap<>();
+		freePosInStore = new int[CHUNK_SIZE];
+		countChunkLen = new long[CHUNK_SIZE +  1 ]; // used for statistics
+		reusableChunks = new LongArrayList[CHUNK_SIZE];
+		for (int i = 0; i < CHUNK_SIZE; i++)
+			reusableChunks[i] = new LongArrayList();
+		currentChunkId = INVALID_CHUNK_ID;
+		size = 0;
+		uncompressedLen = 0;
+		compressedLen = 0;
+		expanded = 0;
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public short defaultReturnValue() {
+		return unassigned;
+	}
+
+	@Override
+	public void defaultReturnValue(short arg0) {
+		unassigned = arg0;
+	}
+
+	/**
+	 * Find the place were a chunk has to be stored and copy the content
+	 * to this place.
+	 * @param key the (OSM) id
+	 * @param chunk  the chunk
+	 * @param len the number of used bytes in the chunk
+	 */
+	private void putChunk (long key, short[] chunk, int len, long mask) {
+		long topID = key >> TOP_ID_SHIFT;
+		ByteBuffer largeVector = topMap.get(topID);
+		if (largeVector == null){
+			largeVector = vectorStore.addSegment();
+			topMap.put(topID, largeVector);
+		}
+
+		int chunkid = (int) (key & CHUNK_ID_MASK) / CHUNK_SIZE;
+		int x = len - 1;
+		if (storedLengthOfCurrentChunk > 0){
+			// this is a rewrite, add the previously used chunk to the reusable list
+			reusableChunks[storedLengthOfCurrentChunk - 1].add(currentChunkIdInStore);
+		}
+		LongArrayList reusableChunk = reusableChunks[x];
+		int y;
+		if (!reusableChunk.isEmpty()){
+			long reusedIdx = reusableChunk.removeLong(reusableChunk.size()-1);
+			y = (int) ((reusedIdx >> CHUNK_STORE_Y_SHIFT) & CHUNK_STORE_Y_MASK);
+		} else {
+			if (freePosInStore[x] == Integer.MAX_VALUE){
+				stats(1);
+				System.err.println(this.getClass().getSimpleName()
+						+ ": reached limit of possible length-" + len
+						+ " chunks: "
+						+ Utils.format(CHUNK_STORE_Y_MASK + 1L));
+				throw new SplitFailedException("Try to reduce the max-area value so that one more pass is used.");
+			}
+			y = freePosInStore[x]++;
+			++countChunkLen[len];
+		}
+		ByteBuffer store = chunkStores[x].segment(y >>> RECORDS_BITS);
+		int pos = (y & RECORDS_MASK) * recordSize(x);
+		store.putLong(pos, mask);
+		pos += 8;
+		for (int i = 0; i < len; i++) {
+			store.putShort(pos, chunk[i]);
+			pos += 2;
+		}
+		assert x < 1<<CHUNK_STORE_BITS_FOR_X;
+		long idx = CHUNK_STORE_USED_FLAG_MASK
+				| (y & CHUNK_STORE_Y_MASK)<< CHUNK_STORE_Y_SHIFT
+				| (x & CHUNK_STORE_X_MASK);
+
+		assert idx  != 0;
+		largeVector.putLong(chunkid * 8, idx);
+	}
+
+	@Override
+	/**
+	 * calculate and print performance values regarding memory
+	 */
+	public void stats(int msgLevel) {
+		long totalOverhead = 0;
+		long totalBytes = 0;
+		long totalChunks = 0;
+		int i;
+
+		if (size() == 0){
+			System.out.println("Map is empty");
+			return;
+		}
+		for (i=1; i <=CHUNK_SIZE; i++) {
+			long bytes = countChunkLen[i] * recordSize(i - 1);
+			totalChunks += countChunkLen[i];
+			long overhead = (long) chunkStores[i - 1].size() * RECORDS_PER_SEGMENT * recordSize(i - 1) - bytes;
+			if (msgLevel > 0) {
+				System.out.println("Length-" + i + " chunks: " + Utils.format(countChunkLen[i]) + ", used Bytes including overhead: " + Utils.format(bytes+overhead));
+			}
+			totalBytes += bytes;
+			totalOverhead += overhead;
+		}
+		totalOverhead += topMap.size() * (long)LARGE_VECTOR_SIZE * 8;
+
+		float bytesPerKey = (size()==0) ? 0: (float)((totalBytes + totalOverhead)*100 / size()) / 100;
+		if (msgLevel > 0){
+			System.out.println();
+			System.out.println("Number of stored ids: " + Utils.format(size()) + " require ca. " +
+					bytesPerKey + " bytes per pair outside of the heap. " +
+					totalChunks + " chunks are used, the avg. number of values in one "+CHUNK_SIZE+"-chunk is " +
+					((totalChunks==0) ? 0 :(size() / totalChunks)) + ".");
+		}
+		System.out.println("Map details: bytes/overhead " + Utils.format(totalBytes) + " / " + Utils.format(totalOverhead) + ", overhead includes " +
+				topMap.size() + " vectors with " + LARGE_VECTOR_SIZE * 8/1024/1024 + " MB");
+		if (msgLevel > 0 & uncompressedLen > 0){
+			System.out.print("RLE compresion info: compressed / uncompressed size / ratio: " +
+					Utils.format(compressedLen) + " / "+
+					Utils.format(uncompressedLen) + " / "+
+					Utils.format(Math.round(100-(float) (compressedLen*100/uncompressedLen))) + "%");
+			if (expanded > 0 )
+				System.out.print(", times fully expanded: " + Utils.format(expanded));
+			System.out.println();
+		}
+	}
+}
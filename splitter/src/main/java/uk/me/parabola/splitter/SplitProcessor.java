@@ -15,11 +15,13 @@ package uk.me.parabola.splitter;
 import uk.me.parabola.splitter.Relation.Member;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Date;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Splits a map into multiple areas.
@@ -46,11 +48,16 @@ class SplitProcessor extends AbstractMapProcessor {
 	private WriterIndex writerIndex;
 	private final int maxThreads;
 	private final short unassigned = Short.MIN_VALUE;
+	// true if the written elements are kept in queues or by the writers
+	private final boolean copyElements;
 
 	private final InputQueueInfo[] writerInputQueues;
-	private final BlockingQueue<InputQueueInfo> toProcess;
-	private final ArrayList<Thread> workerThreads;
-	private final InputQueueInfo STOP_MSG = new InputQueueInfo(null);
+	private final ExecutorService writerPool;
+	// the number of elements in all input queues, guarded by bufferLock
+	private final Object bufferLock = new Object();
+	private long bufferedElements;
+	private final long maxBufferedElements;
+	private volatile Throwable writeFailure;
 
 
 	// private int currentNodeAreaSet;
@@ -74,7 +81,7 @@ class SplitProcessor extends AbstractMapProcessor {
 		this.writerOffset = writerOffset;
 		this.lastWriter = writerOffset + numWritersThisPass-1;
 		this.maxThreads = maxThreads;
-		this.toProcess = new ArrayBlockingQueue<InputQueueInfo>(numWritersThisPass);
+		this.maxBufferedElements = (long) numWritersThisPass * NO_ELEMENTS * STAGING_SIZE;
 		this.writerInputQueues = new InputQueueInfo[numWritersThisPass];
 		for (int i = 0; i < writerInputQueues.length; i++) {
 			writerInputQueues[i] = new InputQueueInfo(this.writers[i + writerOffset]);
@@ -87,17 +94,26 @@ class SplitProcessor extends AbstractMapProcessor {
 		currentRelAreaSet = new BitSet(writers.length);
 		usedWriters = new BitSet(); 
 
-		int noOfWorkerThreads = Math.min(this.maxThreads - 1, numWritersThisPass);
-		workerThreads = new ArrayList<Thread>(noOfWorkerThreads);
-		for (int i = 0; i < noOfWorkerThreads; i++) {
-			Thread worker = new Thread(new OSMWriterWorker());
-			worker.setName("worker-" + i);
-			workerThreads.add(worker);
-			worker.start();
+		boolean keep = maxThreads > 1;
+		for (int i = writerOffset; i <= lastWriter; i++) {
+			keep |= writers[i].keepsElements();
 		}
+		copyElements = keep;
+
+		int noOfWorkerThreads = Math.min(this.maxThreads - 1, numWritersThisPass);
+		writerPool = (noOfWorkerThreads > 0) ? Executors.newWorkStealingPool(noOfWorkerThreads) : null;
 		
 	} 
 
+	/**
+	 * The parser may reuse the elements. They are copied when 
+	 * they are passed to a queue or a writer that keeps them.   
+	 */
+	@Override
+	public boolean reuseElements() {
+		return true;
+	}
+
 	@Override
 	public void processNode(Node n) {
 		try {
@@ -230,30 +246,20 @@ class SplitProcessor extends AbstractMapProcessor {
 		coords = null;
 		ways = null;
 
-		for (int i = 0; i < writerInputQueues.length; i++) {
-			try {
-				writerInputQueues[i].stop();
-			} catch (InterruptedException e) {
-				throw new SplitFailedException(
-						"Failed to add the stop element for worker thread " + i,
-						e);
-			}
-		}
-		try {
-			if (maxThreads > 1)
-				toProcess.put(STOP_MSG);// Magic flag used to indicate that all data is done.
-
-		} catch (InterruptedException e1) {
-			e1.printStackTrace();
-		}
-
-		for (Thread workerThread : workerThreads) {
+		if (writerPool != null) {
 			try {
-				workerThread.join();
+				for (InputQueueInfo queue : writerInputQueues) {
+					queue.flush();
+				}
+				// no more work is added, wait until the queued elements are written
+				writerPool.shutdown();
+				writerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
 			} catch (InterruptedException e) {
-				throw new SplitFailedException("Failed to join for thread "
-						+ workerThread.getName(), e);
+				throw new SplitFailedException("Failed to wait for the writer threads", e);
+			} finally {
+				writerPool.shutdownNow();
 			}
+			checkWriteFailure();
 		}
 		for (int i=writerOffset; i<= lastWriter; i++) {
 			writers[i].finishWrite();
@@ -271,6 +277,8 @@ class SplitProcessor extends AbstractMapProcessor {
 		if (writerCandidates == null && !isSpecialNode)  {
 			return;
 		}
+		if (copyElements)
+			currentNode = currentNode.copy();
 		if (isSpecialNode || writerCandidates.l.size() > 1)
 			usedWriters.clear();
 		if (writerCandidates != null){
@@ -338,6 +346,8 @@ class SplitProcessor extends AbstractMapProcessor {
 		}
 		
 		if (!currentWayAreaSet.isEmpty()) {
+				if (copyElements)
+					currentWay = currentWay.copy();
 				for (int n = currentWayAreaSet.nextSetBit(0); n >= 0; n = currentWayAreaSet.nextSetBit(n + 1)) {
 					if (maxThreads > 1) {
 						addToWorkingQueue(n, currentWay);
@@ -356,6 +366,8 @@ class SplitProcessor extends AbstractMapProcessor {
 			System.out.println("Writing relations " + new Date());
 		}
 		
+		if (copyElements && !currentRelAreaSet.isEmpty())
+			currentRelation = currentRelation.copy();
 		for (int n = currentRelAreaSet.nextSetBit(0); n >= 0; n = currentRelAreaSet.nextSetBit(n + 1)) {
 			// if n is out of bounds, then something has gone wrong
 			if (maxThreads > 1) {
@@ -374,13 +386,62 @@ class SplitProcessor extends AbstractMapProcessor {
 		}
 	}
 
-	private class InputQueueInfo {
+	/**
+	 * Wait until the total number of queued elements is below the limit
+	 * and add the given number. A single dense tile may use the whole
+	 * limit, so it doesn't stop the reader while the other writers are idle.
+	 */
+	private void reserve(int numElements) throws InterruptedException {
+		synchronized (bufferLock) {
+			while (bufferedElements >= maxBufferedElements && writeFailure == null)
+				bufferLock.wait();
+			checkWriteFailure();
+			bufferedElements += numElements;
+		}
+	}
+
+	private void release(int numElements) {
+		synchronized (bufferLock) {
+			bufferedElements -= numElements;
+			bufferLock.notifyAll();
+		}
+	}
+
+	private void checkWriteFailure() {
+		Throwable e = writeFailure;
+		if (e == null)
+			return;
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		throw new SplitFailedException("failed to write element", e);
+	}
+
+	private static void processElement(Element element, OSMWriter writer) throws IOException {
+		if (element instanceof Node) {
+			writer.write((Node) element);
+		} else if (element instanceof Way) {
+			writer.write((Way) element);
+		} else if (element instanceof Relation) {
+			writer.write((Relation) element);
+		}
+	}
+
+	/**
+	 * Collects the elements for one writer. The elements are passed to the
+	 * pool in lists of STAGING_SIZE elements. The queue itself is the task
+	 * that writes them, it is submitted when the first list arrives and runs
+	 * until the queue is empty, so each writer is used by one thread at a
+	 * time and receives the elements in the original order. Idle threads 
+	 * take the tasks of the busy writers.
+	 */
+	private class InputQueueInfo implements Runnable {
 		private final OSMWriter writer;
 		private ArrayList<Element> staging;
-		private final BlockingQueue<ArrayList<Element>> inputQueue;
+		// guarded by this
+		private final ArrayDeque<ArrayList<Element>> inputQueue = new ArrayDeque<>();
+		private boolean scheduled;
 
 		public InputQueueInfo(OSMWriter writer) {
-			inputQueue =  new ArrayBlockingQueue<ArrayList<Element>>(NO_ELEMENTS);
 			this.writer = writer;
 			this.staging = new ArrayList<Element>(STAGING_SIZE);
 		}
@@ -393,76 +454,47 @@ class SplitProcessor extends AbstractMapProcessor {
 		}
 
 		void flush() throws InterruptedException {
-			// System.out.println("Flush");
-			inputQueue.put(staging);
+			if (staging.isEmpty())
+				return;
+			ArrayList<Element> elements = staging;
 			staging = new ArrayList<Element>(STAGING_SIZE);
-			toProcess.put(this);
-		}
-
-		void stop() throws InterruptedException {
-			flush();
-		}
-	}
-
-	public static final int NO_ELEMENTS = 3;
-	final int STAGING_SIZE = 300;
-
-	private class OSMWriterWorker implements Runnable {
-
-		public void processElement(Element element, OSMWriter writer)
-				throws IOException {
-			if (element instanceof Node) {
-				writer.write((Node) element);
-			} else if (element instanceof Way) {
-				writer.write((Way) element);
-			} else if (element instanceof Relation) {
-				writer.write((Relation) element);
+			reserve(elements.size());
+			boolean submit;
+			synchronized (this) {
+				inputQueue.add(elements);
+				submit = !scheduled;
+				scheduled = true;
 			}
+			if (submit)
+				writerPool.execute(this);
 		}
 
 		@Override
 		public void run() {
-			boolean finished = false;
-			while (!finished) {
-				InputQueueInfo workPackage = null;
-				try {
-					workPackage = toProcess.take();
-				} catch (InterruptedException e1) {
-					e1.printStackTrace();
-					continue;
-				}
-				if (workPackage == STOP_MSG) {
-					try {
-						toProcess.put(STOP_MSG); // Re-inject it so that other
-													// threads know that we're
-													// exiting.
-					} catch (InterruptedException e) {
-						e.printStackTrace();
+			while (true) {
+				ArrayList<Element> elements;
+				synchronized (this) {
+					elements = inputQueue.poll();
+					if (elements == null) {
+						scheduled = false;
+						return;
 					}
-					finished = true;
-				} else {
-					synchronized (workPackage) {
-					while (!workPackage.inputQueue.isEmpty()) {
-							ArrayList<Element> elements = null;
-						try {
-							elements = workPackage.inputQueue.poll();
-								for (Element element : elements) {
-								processElement(element, workPackage.writer);
-							}
-
-						} catch (IOException e) {
-								throw new SplitFailedException("Thread "
-										+ Thread.currentThread().getName()
-										+ " failed to write element ", e);
+				}
+				try {
+					if (writeFailure == null) {
+						for (Element element : elements) {
+							processElement(element, writer);
 						}
 					}
-					}
-
+				} catch (IOException | RuntimeException e) {
+					writeFailure = e;
+				} finally {
+					release(elements.size());
 				}
 			}
-			System.out.println("Thread " + Thread.currentThread().getName()
-					+ " has finished");
 		}
 	}
 
+	public static final int NO_ELEMENTS = 3;
+	final int STAGING_SIZE = 300;
 }
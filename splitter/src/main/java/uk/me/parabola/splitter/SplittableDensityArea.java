@@ -17,6 +17,8 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,11 +27,21 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Splits a density map into multiple areas, none of which
  * exceed the desired threshold.
  *
+ * The partitions that are separated by empty areas are solved with their
+ * own search state, only the flags searchAll and beQuiet are passed from
+ * one partition to the next. So they can be solved concurrently with the
+ * same result.
+ *
  * @author GerdP
  */
 public class SplittableDensityArea {
@@ -70,6 +82,8 @@ public class SplittableDensityArea {
 	private boolean trimTiles;
 	private boolean allowEmptyPart = false;
 	private int currMapId;
+	private int maxThreads = 1;
+	private PrintStream out = System.out;
 	
 	public SplittableDensityArea(DensityMap densities, int startSearchLimit) {
 		this.shift = densities.getShift();
@@ -89,6 +103,13 @@ public class SplittableDensityArea {
 		this.maxNodes = maxNodes;
 	}
 
+	/**
+	 * @param maxThreads the number of partitions that are solved at the same time
+	 */
+	public void setMaxThreads(int maxThreads) {
+		this.maxThreads = Math.max(1, maxThreads);
+	}
+
 
 	public void setTrim(boolean trim) {
 		this.trimShape = trim;
@@ -120,10 +141,10 @@ public class SplittableDensityArea {
 		Solution fullSolution = new Solution(maxNodes);
 		int countNoSol = 0;
 		while (true){
-			for (Tile tile: startTiles){
-				if (!beQuiet)
-					System.out.println("Solving partition " + tile.toString());
-				Solution solution = solveRectangularArea(tile);
+			List<Solution> solutions = solvePartitions(startTiles);
+			for (int i = 0; i < startTiles.size(); i++){
+				Tile tile = startTiles.get(i);
+				Solution solution = solutions.get(i);
 				if (solution != null && solution.isEmpty() == false)
 					fullSolution.merge(solution);
 				else {
@@ -146,6 +167,108 @@ public class SplittableDensityArea {
 		return getAreas(fullSolution, null);
 	}
 
+	/**
+	 * Solve the partitions, with a pool of threads if more than one thread
+	 * is allowed. The messages of each partition are printed together and
+	 * in the order of the partitions.
+	 * 
+	 * The flags searchAll and beQuiet are passed from one partition to the
+	 * next as if one instance solved all partitions. A partition that
+	 * depends on them is solved after the previous one.
+	 * @param tiles the partitions
+	 * @return the solutions in the same order, an element may be null
+	 */
+	private List<Solution> solvePartitions(List<Tile> tiles) {
+		List<Solution> solutions = new ArrayList<>();
+		List<SplittableDensityArea> searches = new ArrayList<>();
+		for (int i = 0; i < tiles.size(); i++)
+			searches.add(createPartitionSearch());
+		int numThreads = Math.min(maxThreads, tiles.size());
+		if (numThreads <= 1){
+			SplittableDensityArea prev = this;
+			for (int i = 0; i < tiles.size(); i++){
+				solutions.add(searches.get(i).solvePartition(tiles.get(i), prev));
+				prev = searches.get(i);
+			}
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+			try {
+				List<Future<Solution>> results = new ArrayList<>();
+				List<ByteArrayOutputStream> outputs = new ArrayList<>();
+				CompletableFuture<Solution> prevResult = CompletableFuture.completedFuture(null);
+				SplittableDensityArea prev = this;
+				for (int i = 0; i < tiles.size(); i++){
+					Tile tile = tiles.get(i);
+					ByteArrayOutputStream output = new ByteArrayOutputStream();
+					SplittableDensityArea search = searches.get(i);
+					search.out = new PrintStream(output, true);
+					outputs.add(output);
+					final SplittableDensityArea before = search.dependsOnPrevious(tile) ? prev : this;
+					if (before == this)
+						prevResult = CompletableFuture.supplyAsync(() -> search.solvePartition(tile, before), pool);
+					else
+						prevResult = prevResult.thenApplyAsync(sol -> search.solvePartition(tile, before), pool);
+					results.add(prevResult);
+					prev = search;
+				}
+				for (int i = 0; i < results.size(); i++){
+					solutions.add(results.get(i).get());
+					System.out.print(outputs.get(i).toString());
+				}
+			} catch (InterruptedException e) {
+				throw new SplitFailedException("Interrupted while searching a split", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new SplitFailedException("Failed to search a split", e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+		if (!searches.isEmpty()){
+			SplittableDensityArea last = searches.get(searches.size() - 1);
+			searchAll = last.searchAll;
+			beQuiet = last.beQuiet;
+		}
+		return solutions;
+	}
+
+	/**
+	 * @return a new instance for the search in one partition, it shares
+	 * the prepared density info but has its own search state
+	 */
+	private SplittableDensityArea createPartitionSearch() {
+		SplittableDensityArea search = new SplittableDensityArea(allDensities, startSearchLimit);
+		search.extraDensityInfo = extraDensityInfo;
+		search.maxNodes = maxNodes;
+		search.beQuiet = beQuiet;
+		search.allowEmptyPart = allowEmptyPart;
+		search.trimTiles = trimTiles;
+		return search;
+	}
+
+	/**
+	 * @param tile the partition
+	 * @return true if the search in the partition uses the flags that the
+	 * search in the previous partition left
+	 */
+	private boolean dependsOnPrevious(Tile tile) {
+		return beQuiet || !startsWithSearchAll(tile);
+	}
+
+	/**
+	 * @param tile the partition
+	 * @param before the search that passes its flags to this one 
+	 * @return the solution, maybe empty
+	 */
+	private Solution solvePartition(Tile tile, SplittableDensityArea before) {
+		searchAll = before.searchAll;
+		beQuiet = before.beQuiet;
+		if (!beQuiet)
+			out.println("Solving partition " + tile.toString());
+		return solveRectangularArea(tile);
+	}
+
 	/**
 	 * Split with a given polygon and max nodes threshold. If the polygon
 	 * is not singular, it is divided into singular areas.
@@ -480,6 +603,7 @@ public class SplittableDensityArea {
 			shapeBounds  = RoundingUtils.round(shapeBounds, resolution);
 			SplittableDensityArea splittableArea = new SplittableDensityArea(allDensities.subset(shapeBounds), startSearchLimit);
 			splittableArea.setMaxNodes(maxNodes);
+			splittableArea.setMaxThreads(maxThreads);
 			if (splittableArea.hasData() == false){
 				System.out.println("Warning: a part of the bounding polygon would be empty and is ignored:" + shapeBounds);
 				//result.add(shapeBounds);
@@ -704,7 +828,7 @@ public class SplittableDensityArea {
 					if(sol.getTiles().size() <= 32 && sol.getWorstMinNodes() < VERY_NICE_FILL_RATIO * maxNodes){
 						Solution optSol = solveSmallTile(depth, tile, smi, (long) (VERY_NICE_FILL_RATIO * maxNodes));
 						if (sol.compareTo(optSol) > 0){
-							System.out.println("found better solution for part " + tile + " : " + optSol);
+							out.println("found better solution for part " + tile + " : " + optSol);
 							sol = optSol;
 						}
 					}
@@ -731,6 +855,15 @@ public class SplittableDensityArea {
 			return false;
 		return true;
 	}
+
+	/**
+	 * @param startTile the tile to split
+	 * @return true if the tile is small enough to search all splits
+	 */
+	private boolean startsWithSearchAll(Tile startTile) {
+		return startTile.count < 300 * maxNodes && (checkSize(startTile) || startTile.count < 10 * maxNodes);
+	}
+
 	/**
 	 * Get a first solution and search for better ones until
 	 * either a nice solution is found or no improvement was
@@ -753,12 +886,12 @@ public class SplittableDensityArea {
 		goodSolutions = new HashMap<>();
 		goodRatio = 0.5;
 		TileMetaInfo smiStart = new TileMetaInfo(startTile, null, null);
-		if (startTile.count < 300 * maxNodes && (checkSize(startTile) || startTile.count < 10 * maxNodes) ){
+		if (startsWithSearchAll(startTile)){
 			searchAll = true;
 		}
 		
 		if (!beQuiet)
-			System.out.println("Trying to find nice split for " + startTile);
+			out.println("Trying to find nice split for " + startTile);
 		Solution bestSolution = new Solution(maxNodes);
 		Solution prevBest = new Solution(maxNodes);
 		long t1 = System.currentTimeMillis();
@@ -771,7 +904,7 @@ public class SplittableDensityArea {
 			Solution solution = null;
 			countBad = 0;
 			if (!beQuiet){
-				System.out.println("searching for split with min-nodes " + minNodes + ", learned " + goodSolutions.size() + " good partial solutions");
+				out.println("searching for split with min-nodes " + minNodes + ", learned " + goodSolutions.size() + " good partial solutions");
 			}
 			smiStart.setMinNodes(minNodes);
 			solution = findSolution(0, startTile, startTile, smiStart);
@@ -781,7 +914,7 @@ public class SplittableDensityArea {
 					prevBest = bestSolution;
 					bestSolution = solution;
 					
-					System.out.println("Best solution until now: " + bestSolution.toString() + ", elapsed search time: " + (System.currentTimeMillis() - t1) / 1000 + " s");
+					out.println("Best solution until now: " + bestSolution.toString() + ", elapsed search time: " + (System.currentTimeMillis() - t1) / 1000 + " s");
 					filterGoodSolutions(bestSolution);
 					// change criteria to find a better(nicer) result
 					double factor = 1.10;
@@ -792,7 +925,7 @@ public class SplittableDensityArea {
 
 				if (bestSolution.size() == 1){
 					if (!beQuiet)
-						System.out.println("This can't be improved.");
+						out.println("This can't be improved.");
 					break;
 				}
 			} 
@@ -820,7 +953,7 @@ public class SplittableDensityArea {
 					if (searchLimit < 5_000_000){
 						searchLimit *= 2;
 						resetCaches();
-						System.out.println("No good solution found, duplicated search-limit to " + searchLimit);
+						out.println("No good solution found, duplicated search-limit to " + searchLimit);
 						continue;
 					}
 					if (searchAll){
@@ -829,12 +962,12 @@ public class SplittableDensityArea {
 							minNodes = bestSolution.getWorstMinNodes() + 1;
 						else 
 							minNodes = maxNodes / 100;
-						System.out.println("Still no good solution found, trying alternate algorithm");
+						out.println("Still no good solution found, trying alternate algorithm");
 						continue;
 					}
 				}  
 				if (tryOptimize == false && searchAll == false && bestSolution.isEmpty() == false){
-					System.out.println("Trying to optimize parts of the best solution...");
+					out.println("Trying to optimize parts of the best solution...");
 					tryOptimize = true;
 					resetCaches();
 					continue;
@@ -858,9 +991,9 @@ public class SplittableDensityArea {
 		if (!beQuiet){
 			if (solution.isEmpty() == false){
 				if (solution.getWorstMinNodes() > VERY_NICE_FILL_RATIO * maxNodes && solution.isNice())
-					System.out.println("Solution is very nice. No need to search for a better solution: " + solution.toString());
+					out.println("Solution is very nice. No need to search for a better solution: " + solution.toString());
 				else 
-					System.out.println("Solution is " + (solution.isNice() ? "":"not ") + "nice. Can't find a better solution with search-limit " + searchLimit + ": " + solution.toString());
+					out.println("Solution is " + (solution.isNice() ? "":"not ") + "nice. Can't find a better solution with search-limit " + searchLimit + ": " + solution.toString());
 			}
 		}
 		return;
@@ -117,11 +117,7 @@ import java.awt.Rectangle;
 		 * @return
 		 */
 		private long calcCount(){
-			long sum = 0;
-			for (int i=0;i<height;i++){
-				sum += getRowSum(i);
-			}
-			return sum;
+			return densityInfo.getNodeCount(x, y, width, height);
 		}
 		
 		/**
@@ -131,15 +127,7 @@ import java.awt.Rectangle;
 		 */
 		public long getRowSum(int row) {
 			assert row >= 0 && row < height;
-			int mapRow = row + y;
-			long sum = 0;
-			int[] vector = densityInfo.getMapRow(mapRow);
-			if (vector != null){
-				int lastX = x + width;
-				for (int i = x; i < lastX; i++)
-					sum += vector[i];
-			}
-			return sum;
+			return densityInfo.getNodeCount(x, y + row, width, 1);
 		}
 		private long getRowSum(int row, long []rowSums){
 			if (rowSums[row] < 0)
@@ -154,15 +142,7 @@ import java.awt.Rectangle;
 		 */
 		public long getColSum(int col) {
 			assert col >= 0 && col < width;
-			int mapCol = col + x;
-			long sum = 0;
-			int[] vector = densityInfo.getMapCol(mapCol);
-			if (vector != null){
-				int lastY = y + height;
-				for (int i = y; i < lastY; i++)
-					sum += vector[i];
-			}
-			return sum;
+			return densityInfo.getNodeCount(x + col, y, 1, height);
 		}
 		private long getColSum(int col, long[] colSums){
 			if (colSums[col] < 0)
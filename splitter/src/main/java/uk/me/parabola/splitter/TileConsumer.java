@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+package uk.me.parabola.splitter;
+
+import java.util.List;
+
+/**
+ * Receives the data of the areas when the splitter is used as a library,
+ * see {@link Main#split(String[], TileConsumer)}.
+ */
+public interface TileConsumer {
+	/**
+	 * Called when all elements of an area were collected. The consumer
+	 * may block to limit the number of areas that are kept in memory.
+	 * @param area the area, the map id is set
+	 * @param elements the nodes, ways, and relations of the area in the order of the input
+	 */
+	public void tileComplete(Area area, List<Element> elements);
+}
@@ -42,7 +42,8 @@ import org.apache.tools.bzip2.CBZip2InputStream;
  */
 public class Utils {
 	
-	private static final NumberFormat FORMATTER = NumberFormat.getIntegerInstance();
+	// NumberFormat is not thread safe
+	private static final ThreadLocal<NumberFormat> FORMATTER = ThreadLocal.withInitial(NumberFormat::getIntegerInstance);
 	
 	public static final int MIN_LAT_MAP_UNITS = toMapUnit(-90);
 	public static final int MAX_LAT_MAP_UNITS = toMapUnit(90);
@@ -50,11 +51,11 @@ public class Utils {
 	public static final int MAX_LON_MAP_UNITS = toMapUnit(180);
 
 	public static String format(int number) {
-		return FORMATTER.format(number);
+		return FORMATTER.get().format(number);
 	}
 
 	public static String format(long number) {
-		return FORMATTER.format(number);
+		return FORMATTER.get().format(number);
 	}
 
 	public static double toDegrees(int val) {
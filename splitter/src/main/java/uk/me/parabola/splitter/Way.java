@@ -31,4 +31,18 @@ public class Way extends Element {
 	public LongArrayList getRefs() {
 		return refs;
 	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		refs.clear();
+	}
+
+	@Override
+	public Way copy() {
+		Way w = new Way();
+		copyTo(w);
+		w.refs.addAll(refs);
+		return w;
+	}
 }
@@ -109,4 +109,18 @@ public interface SplitterParams {
 	@Option(defaultValue = "200000", description = "Search limit in split algo. Higher values may find better splits, but will take longer.")
 	int getSearchLimit();
 
+	@Option(defaultValue = "heap", description = "Where to store the maps used to find the tiles of nodes and ways. "
+			+ "Can be heap, direct, or mapped. With mapped the data is kept in temporary files in the output directory which "
+			+ "are mapped into memory, so that a small heap is sufficient also for large files. "
+			+ "direct uses memory outside of the heap, the limit for this is set with the JVM option -XX:MaxDirectMemorySize.")
+	String getMapStorage();
+
+	@Option(description = "Save an index of the blocks of each .pbf input file in a file with the additional extension .blocks next to it, "
+			+ "and use this index in later runs. Without this option the index is only used for the passes of the current run.")
+	boolean isPbfBlockIndex();
+
+	@Option(defaultValue = "6", description = "The compression level of the blocks in .pbf output files, from 1 (fastest) to 9 (smallest files). "
+			+ "0 writes uncompressed blocks, this is useful when the files are only used as input for mkgmap.")
+	int getPbfCompression();
+
 }
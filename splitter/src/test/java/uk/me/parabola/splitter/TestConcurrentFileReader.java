@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.splitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the reader that reads several input files at the same time.
+ */
+public class TestConcurrentFileReader {
+	private static final int NUM_NODES = 20000;
+	private static final List<String> FILES = Arrays.asList("first", "second");
+
+	/**
+	 * The content of a test file: nodes in the given area and an optional
+	 * bounds tag.
+	 */
+	private static class TestFile {
+		final double lat, lon;
+		final Area bounds;
+
+		TestFile(double lat, double lon, Area bounds) {
+			this.lat = lat;
+			this.lon = lon;
+			this.bounds = bounds;
+		}
+
+		void parse(MapProcessor processor) {
+			if (bounds != null)
+				processor.boundTag(bounds);
+			for (int i = 0; i < NUM_NODES; i++) {
+				Node node = new Node();
+				node.set(i + 1, lat + (i % 100) * 0.001, lon + (i / 100) * 0.001);
+				processor.processNode(node);
+			}
+		}
+	}
+
+	/**
+	 * Records the elements of each file, identified by the latitude.
+	 */
+	private static class RecordingProcessor extends AbstractMapProcessor {
+		final Map<Integer, List<Long>> elements = new HashMap<>();
+
+		@Override
+		public boolean allowConcurrentFiles() {
+			return true;
+		}
+
+		@Override
+		public void processNode(Node n) {
+			elements.computeIfAbsent((int) Math.floor(n.getLat()), k -> new ArrayList<>()).add(n.getId());
+		}
+	}
+
+	/**
+	 * The nodes of all files are passed on, those of each file in the order
+	 * of the file.
+	 */
+	@Test
+	public void testCollectedData() {
+		Map<String, TestFile> files = new HashMap<>();
+		files.put("first", new TestFile(10, 10, null));
+		files.put("second", new TestFile(20, 20, null));
+		RecordingProcessor sequential = new RecordingProcessor();
+		for (String name : FILES)
+			files.get(name).parse(sequential);
+		for (int threads : new int[] { 1, 2 }) {
+			RecordingProcessor concurrent = new RecordingProcessor();
+			ConcurrentFileReader.process(concurrent, FILES, threads, (p, name) -> files.get(name).parse(p));
+			Assertions.assertEquals(sequential.elements, concurrent.elements, "threads=" + threads);
+		}
+	}
+
+	/**
+	 * When the first file has no bounds tag, the area of its nodes is used
+	 * as bounds like in the sequential read, but not the area of the nodes
+	 * of the second file.
+	 */
+	@Test
+	public void testBounds() {
+		Area bounds = new Area(Utils.toMapUnit(5), Utils.toMapUnit(5), Utils.toMapUnit(6), Utils.toMapUnit(6));
+		TestFile[][] cases = {
+				{ new TestFile(10, 10, null), new TestFile(20, 20, null) },
+				{ new TestFile(10, 10, null), new TestFile(20, 20, bounds) },
+				{ new TestFile(10, 10, bounds), new TestFile(20, 20, null) },
+		};
+		for (TestFile[] files : cases) {
+			DensityMapCollector sequential = new DensityMapCollector(13);
+			files[0].parse(sequential);
+			sequential.checkBounds();
+			files[1].parse(sequential);
+			Area expected = sequential.getExactArea();
+
+			DensityMapCollector concurrent = new DensityMapCollector(13);
+			ConcurrentFileReader.process(concurrent, FILES, 2, (p, name) -> files[FILES.indexOf(name)].parse(p));
+			Assertions.assertEquals(expected.toHexString(), concurrent.getExactArea().toHexString());
+			// the nodes of the second file are not inside the bounds
+			Assertions.assertFalse(expected.contains(Utils.toMapUnit(20.5), Utils.toMapUnit(20.05)));
+		}
+	}
+}
@@ -13,6 +13,7 @@
 
 package uk.me.parabola.splitter;
 
+import java.io.File;
 import java.io.IOException;
 
 import org.junit.jupiter.api.Assertions;
@@ -40,6 +41,34 @@ public class TestCustomCollections {
 		testMap(new SparseLong2ShortMapHuge(), -1L << 35);
 	}
 
+	@Test
+	public void testLongShortMapOffHeap() {
+		File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+		testMap(new SparseLong2ShortMapOffHeap(null), 0L);
+		testMap(new SparseLong2ShortMapOffHeap(null), -1L << 35);
+		testMap(new SparseLong2ShortMapOffHeap(tmpDir), 0L);
+		testMap(new SparseLong2ShortMapOffHeap(tmpDir), -10000L);
+		testMap(new SparseLong2ShortMapOffHeap(tmpDir), 1L << 35);
+	}
+
+	@Test
+	public void testLongShortMapOffHeapClear() {
+		File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+		for (SparseLong2ShortMapOffHeap map : new SparseLong2ShortMapOffHeap[] {
+				new SparseLong2ShortMapOffHeap(null), new SparseLong2ShortMapOffHeap(tmpDir) }) {
+			testMap(map, 0L);
+			// the segments are reused, nothing of the first pass is left
+			map.clear();
+			Assertions.assertEquals(0, map.size());
+			for (short i = 1; i < 1200; i++)
+				Assertions.assertFalse(map.containsKey(i));
+			Assertions.assertFalse(map.containsKey(123456));
+			testMap(map, 0L);
+			map.clear();
+			testMap(map, -10000L);
+		}
+	}
+
 	private void testMap(SparseLong2ShortMapFunction map, long idOffset) {
 		map.defaultReturnValue((short) Short.MIN_VALUE);
 
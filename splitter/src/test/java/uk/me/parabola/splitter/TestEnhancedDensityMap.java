@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.splitter;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the node counts of tiles.
+ */
+public class TestEnhancedDensityMap {
+
+	@Test
+	public void testTileCounts() {
+		DensityMap densityMap = new DensityMap(new Area(0, 0, 0x10000, 0x18000), 13);
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			// more nodes near the origin
+			int lat = (int) (0x10000 * Math.pow(random.nextDouble(), 2));
+			int lon = (int) (0x18000 * Math.pow(random.nextDouble(), 2));
+			densityMap.addNode(lat, lon);
+		}
+		EnhancedDensityMap densityInfo = new EnhancedDensityMap(densityMap, null);
+		Tile all = new Tile(densityInfo);
+		Assertions.assertEquals(densityMap.getNodeCount(), all.count);
+		Assertions.assertTrue(all.verify());
+
+		for (int i = 0; i < 200; i++) {
+			int x = random.nextInt(densityMap.getWidth());
+			int y = random.nextInt(densityMap.getHeight());
+			int width = 1 + random.nextInt(densityMap.getWidth() - x);
+			int height = 1 + random.nextInt(densityMap.getHeight() - y);
+			Tile tile = new Tile(densityInfo, new Rectangle(x, y, width, height));
+			Assertions.assertEquals(countNodes(densityMap, x, y, width, height), tile.count);
+			for (int row = 0; row < height; row++)
+				Assertions.assertEquals(countNodes(densityMap, x, y + row, width, 1), tile.getRowSum(row));
+			for (int col = 0; col < width; col++)
+				Assertions.assertEquals(countNodes(densityMap, x + col, y, 1, height), tile.getColSum(col));
+		}
+	}
+
+	private static long countNodes(DensityMap densityMap, int x, int y, int width, int height) {
+		long sum = 0;
+		for (int i = x; i < x + width; i++) {
+			for (int j = y; j < y + height; j++)
+				sum += densityMap.getNodeCount(i, j);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.splitter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the reader that decodes the segments of an o5m file with
+ * several threads.
+ */
+public class TestO5mSegmentReader {
+	private static final int NUM_GROUPS = 6;
+	private static final int GROUP_SIZE = 5000;
+
+	@TempDir
+	File tempDir;
+
+	private static class RecordingProcessor extends AbstractMapProcessor {
+		private final boolean nodes, ways, rels;
+		final List<String> elements = new ArrayList<>();
+
+		RecordingProcessor(boolean nodes, boolean ways, boolean rels) {
+			this.nodes = nodes;
+			this.ways = ways;
+			this.rels = rels;
+		}
+
+		@Override
+		public boolean skipNodes() {
+			return !nodes;
+		}
+
+		@Override
+		public boolean skipWays() {
+			return !ways;
+		}
+
+		@Override
+		public boolean skipRels() {
+			return !rels;
+		}
+
+		@Override
+		public void processNode(Node n) {
+			elements.add("n" + n.getId() + " " + n.getLat() + " " + n.getLon() + " " + n.getTag("name"));
+		}
+
+		@Override
+		public void processWay(Way w) {
+			elements.add("w" + w.getId() + " " + w.getRefs() + " " + w.getTag("highway"));
+		}
+
+		@Override
+		public void processRelation(Relation r) {
+			StringBuilder sb = new StringBuilder("r" + r.getId());
+			for (Relation.Member m : r.getMembers())
+				sb.append(' ').append(m.getType()).append(m.getRef()).append(m.getRole());
+			elements.add(sb.append(' ').append(r.getTag("type")).toString());
+		}
+
+		@Override
+		public String toString() {
+			return "nodes=" + nodes + " ways=" + ways + " rels=" + rels;
+		}
+	}
+
+	/**
+	 * The file has groups of nodes, ways and relations in turn, the writer
+	 * starts a new segment with a reset flag for each group. With each
+	 * number of threads and for each combination of wanted element types
+	 * the segments give the same elements in the same order as the
+	 * sequential parser.
+	 */
+	@Test
+	public void testSameAsSequential() throws IOException {
+		File file = writeFile();
+		RecordingProcessor all = new RecordingProcessor(true, true, true);
+		O5mMapParser firstPass;
+		try (InputStream stream = new FileInputStream(file)) {
+			firstPass = new O5mMapParser(all, stream, null);
+			firstPass.parse();
+		}
+		Assertions.assertEquals(3 * NUM_GROUPS * GROUP_SIZE, all.elements.size());
+		O5mSegmentReader segmentReader = new O5mSegmentReader(firstPass.getSegmentStarts(),
+				firstPass.getSegmentTypes(), file.length());
+		Assertions.assertTrue(segmentReader.getNumSegments() > 3 * NUM_GROUPS, "file has many segments");
+
+		boolean[][] phases = { { true, true, true }, { true, false, false }, { false, true, false },
+				{ false, false, true }, { false, true, true } };
+		for (boolean[] phase : phases) {
+			RecordingProcessor expected = new RecordingProcessor(phase[0], phase[1], phase[2]);
+			try (InputStream stream = new FileInputStream(file)) {
+				new O5mMapParser(expected, stream, null).parse();
+			}
+			for (int threads : new int[] { 1, 2, 4 }) {
+				RecordingProcessor processor = new RecordingProcessor(phase[0], phase[1], phase[2]);
+				segmentReader.process(file, processor, threads);
+				Assertions.assertEquals(expected.elements, processor.elements, processor + " threads=" + threads);
+			}
+		}
+	}
+
+	/**
+	 * A parser for a segment doesn't record the positions again.
+	 */
+	@Test
+	public void testSegmentParser() throws IOException {
+		File file = writeFile();
+		try (InputStream stream = new FileInputStream(file)) {
+			O5mMapParser parser = O5mMapParser.forSegment(new RecordingProcessor(true, true, true), stream);
+			parser.parse();
+			Assertions.assertNull(parser.getSegmentStarts());
+			Assertions.assertNull(parser.getSkipArray());
+		}
+	}
+
+	private File writeFile() throws IOException {
+		O5mMapWriter writer = new O5mMapWriter(new Area(0, 0, 0x10000, 0x10000), tempDir, 1, 0, new HashMap<>(),
+				new HashMap<>());
+		writer.initForWrite();
+		for (int g = 0; g < NUM_GROUPS; g++) {
+			for (int i = 0; i < GROUP_SIZE; i++) {
+				int id = g * GROUP_SIZE + i + 1;
+				Node node = new Node();
+				node.set(id, (id % 1000) * 0.001, (id / 1000) * 0.001);
+				node.addTag("name", "n" + (id % 77));
+				writer.write(node);
+			}
+			for (int i = 0; i < GROUP_SIZE; i++) {
+				int id = g * GROUP_SIZE + i + 1;
+				Way way = new Way();
+				way.set(id);
+				way.addRef(id);
+				way.addRef(id + 1);
+				way.addTag("highway", (id % 2 == 0) ? "road" : "track");
+				writer.write(way);
+			}
+			for (int i = 0; i < GROUP_SIZE; i++) {
+				int id = g * GROUP_SIZE + i + 1;
+				Relation rel = new Relation();
+				rel.setId(id);
+				rel.addMember("way", id, "outer");
+				rel.addMember("node", id, "label");
+				rel.addTag("type", "multipolygon");
+				writer.write(rel);
+			}
+		}
+		writer.finishWrite();
+		return new File(tempDir, String.format("%08d.o5m", 1));
+	}
+}
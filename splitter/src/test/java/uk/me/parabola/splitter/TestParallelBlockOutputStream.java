@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.splitter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import crosby.binary.file.BlockInputStream;
+
+/**
+ * Unit tests for the pbf writer that compresses the blocks with several threads.
+ */
+public class TestParallelBlockOutputStream {
+	private static final int NUM_NODES = 12345;
+	private static final int NUM_WAYS = 3456;
+
+	@TempDir
+	File tempDir;
+
+	@AfterEach
+	public void resetCompression() {
+		ParallelBlockOutputStream.setCompression(Deflater.DEFAULT_COMPRESSION, 1);
+	}
+
+	/**
+	 * The file has many blocks. With each compression level the blocks that
+	 * are written by several threads are read back in the original order
+	 * and the file is identical to the one written by a single thread.
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		for (int level = ParallelBlockOutputStream.NO_COMPRESSION; level <= 9; level++) {
+			File single = write(level, 1);
+			File parallel = write(level, 4);
+			Assertions.assertArrayEquals(Files.readAllBytes(single.toPath()), Files.readAllBytes(parallel.toPath()),
+					"different files with compression level " + level);
+			List<String> elements = read(parallel);
+			Assertions.assertEquals(NUM_NODES + NUM_WAYS, elements.size());
+			for (int i = 0; i < NUM_NODES; i++) {
+				Assertions.assertEquals("n" + (i + 1) + " name=" + i, elements.get(i), "level " + level);
+			}
+			for (int i = 0; i < NUM_WAYS; i++) {
+				Assertions.assertEquals("w" + (i + 1) + " [" + (3 * i + 1) + ", " + (3 * i + 2) + ", " + (3 * i + 3)
+						+ "] highway=road", elements.get(NUM_NODES + i), "level " + level);
+			}
+		}
+	}
+
+	private File write(int level, int threads) {
+		ParallelBlockOutputStream.setCompression(level, threads);
+		File dir = new File(tempDir, level + "-" + threads);
+		dir.mkdir();
+		BinaryMapWriter writer = new BinaryMapWriter(new Area(0, 0, 0x10000, 0x10000), dir, 1, 0);
+		writer.initForWrite();
+		for (int i = 0; i < NUM_NODES; i++) {
+			Node node = new Node();
+			node.set(i + 1, (i % 1000) * 0.001, (i / 1000) * 0.001);
+			node.addTag("name", Integer.toString(i));
+			writer.write(node);
+		}
+		for (int i = 0; i < NUM_WAYS; i++) {
+			Way way = new Way();
+			way.set(i + 1);
+			for (int j = 1; j <= 3; j++)
+				way.addRef(3 * i + j);
+			way.addTag("highway", "road");
+			writer.write(way);
+		}
+		writer.finishWrite();
+		return new File(dir, String.format("%08d.osm.pbf", 1));
+	}
+
+	private static List<String> read(File file) throws IOException {
+		List<String> elements = new ArrayList<>();
+		MapProcessor processor = new AbstractMapProcessor() {
+			@Override
+			public void processNode(Node n) {
+				elements.add("n" + n.getId() + " name=" + n.getTag("name"));
+			}
+
+			@Override
+			public void processWay(Way w) {
+				elements.add("w" + w.getId() + " " + w.getRefs() + " highway=" + w.getTag("highway"));
+			}
+		};
+		try (FileInputStream is = new FileInputStream(file)) {
+			BlockInputStream blockinput = new BlockInputStream(is, new BinaryMapParser(processor));
+			blockinput.process();
+			blockinput.close();
+		}
+		return elements;
+	}
+}
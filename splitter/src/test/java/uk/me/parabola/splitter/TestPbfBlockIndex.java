@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.splitter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import crosby.binary.file.BlockInputStream;
+import crosby.binary.file.BlockReaderAdapter;
+import crosby.binary.file.FileBlock;
+import crosby.binary.file.FileBlockPosition;
+
+/**
+ * Unit tests for the index of the blocks in a pbf file.
+ */
+public class TestPbfBlockIndex {
+	private static final int NUM_NODES = 20000;
+	private static final int NUM_WAYS = 10000;
+	private static final int NUM_RELS = 9000;
+
+	@TempDir
+	File tempDir;
+
+	/**
+	 * A recording processor for one phase of the split. It wants only the
+	 * element types that are not skipped.
+	 */
+	private static class PhaseProcessor extends AbstractMapProcessor {
+		private final boolean nodes, ways, rels;
+		final List<String> elements = new ArrayList<>();
+
+		PhaseProcessor(boolean nodes, boolean ways, boolean rels) {
+			this.nodes = nodes;
+			this.ways = ways;
+			this.rels = rels;
+		}
+
+		@Override
+		public boolean skipNodes() {
+			return !nodes;
+		}
+
+		@Override
+		public boolean skipWays() {
+			return !ways;
+		}
+
+		@Override
+		public boolean skipRels() {
+			return !rels;
+		}
+
+		@Override
+		public void processNode(Node n) {
+			if (nodes)
+				elements.add("n" + n.getId() + " " + n.getLat() + " " + n.getLon());
+		}
+
+		@Override
+		public void processWay(Way w) {
+			if (ways)
+				elements.add("w" + w.getId() + " " + w.getRefs());
+		}
+
+		@Override
+		public void processRelation(Relation r) {
+			if (rels) {
+				StringBuilder sb = new StringBuilder("r" + r.getId());
+				for (Relation.Member m : r.getMembers())
+					sb.append(' ').append(m.getType()).append(m.getRef()).append(m.getRole());
+				elements.add(sb.toString());
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "nodes=" + nodes + " ways=" + ways + " rels=" + rels;
+		}
+	}
+
+	private static PhaseProcessor[] phases() {
+		return new PhaseProcessor[] { new PhaseProcessor(true, true, true), new PhaseProcessor(true, false, false),
+				new PhaseProcessor(false, true, false), new PhaseProcessor(false, false, true),
+				new PhaseProcessor(false, true, true) };
+	}
+
+	/**
+	 * The index is created for a file with several blocks of each element
+	 * type, saved and loaded again. In each phase the blocks that are read
+	 * with the index give the same elements as a sequential read of the
+	 * whole file, and the blocks without wanted elements are skipped.
+	 */
+	@Test
+	public void testPhases() throws IOException {
+		File file = writeFile();
+		PhaseProcessor all = new PhaseProcessor(true, true, true);
+		PbfBlockIndex created = PbfBlockIndex.create(file, new BinaryMapParser(all));
+		Assertions.assertEquals(NUM_NODES + NUM_WAYS + NUM_RELS, all.elements.size());
+		created.save(file);
+
+		PbfBlockIndex index = PbfBlockIndex.load(file);
+		Assertions.assertNotNull(index, "index is loaded");
+		for (PhaseProcessor phase : phases()) {
+			PhaseProcessor expected = new PhaseProcessor(phase.nodes, phase.ways, phase.rels);
+			int wantedBlocks = readSequential(file, expected);
+			int blocksRead = index.process(file, new BinaryMapParser(phase));
+			Assertions.assertEquals(expected.elements, phase.elements, phase.toString());
+			Assertions.assertEquals(wantedBlocks, blocksRead, "blocks read with " + phase);
+		}
+	}
+
+	/**
+	 * A saved index is not used when the length or the modification time of
+	 * the file has changed.
+	 */
+	@Test
+	public void testStaleIndex() throws IOException {
+		File file = writeFile();
+		PbfBlockIndex.create(file, new BinaryMapParser(new PhaseProcessor(true, true, true))).save(file);
+		Assertions.assertNotNull(PbfBlockIndex.load(file));
+
+		long lastModified = file.lastModified();
+		Assertions.assertTrue(file.setLastModified(lastModified + 10_000));
+		Assertions.assertNull(PbfBlockIndex.load(file), "modification time changed");
+
+		try (FileOutputStream os = new FileOutputStream(file, true)) {
+			os.write(0);
+		}
+		Assertions.assertTrue(file.setLastModified(lastModified));
+		Assertions.assertNull(PbfBlockIndex.load(file), "length changed");
+	}
+
+	private File writeFile() {
+		BinaryMapWriter writer = new BinaryMapWriter(new Area(0, 0, 0x10000, 0x10000), tempDir, 1, 0);
+		writer.initForWrite();
+		for (int i = 0; i < NUM_NODES; i++) {
+			Node node = new Node();
+			node.set(i + 1, (i % 1000) * 0.001, (i / 1000) * 0.001);
+			writer.write(node);
+		}
+		for (int i = 0; i < NUM_WAYS; i++) {
+			Way way = new Way();
+			way.set(i + 1);
+			way.addRef(2 * i + 1);
+			way.addRef(2 * i + 2);
+			way.addTag("highway", "road");
+			writer.write(way);
+		}
+		for (int i = 0; i < NUM_RELS; i++) {
+			Relation rel = new Relation();
+			rel.setId(i + 1);
+			rel.addMember("way", i + 1, "outer");
+			rel.addTag("type", "multipolygon");
+			writer.write(rel);
+		}
+		writer.finishWrite();
+		return new File(tempDir, String.format("%08d.osm.pbf", 1));
+	}
+
+	/**
+	 * Read the whole file without the index.
+	 * @return the number of blocks that are header blocks or contain
+	 * elements that are wanted by the processor
+	 */
+	private static int readSequential(File file, PhaseProcessor processor) throws IOException {
+		BinaryMapParser parser = new BinaryMapParser(processor);
+		int[] wantedBlocks = { 0 };
+		BlockReaderAdapter counter = new BlockReaderAdapter() {
+			@Override
+			public boolean skipBlock(FileBlockPosition block) {
+				return parser.skipBlock(block);
+			}
+
+			@Override
+			public void handleBlock(FileBlock block) {
+				int before = processor.elements.size();
+				parser.handleBlock(block);
+				if ("OSMHeader".equals(block.getType()) || processor.elements.size() > before)
+					wantedBlocks[0]++;
+			}
+
+			@Override
+			public void complete() {
+				parser.complete();
+			}
+		};
+		try (FileInputStream is = new FileInputStream(file)) {
+			BlockInputStream blockinput = new BlockInputStream(is, counter);
+			blockinput.process();
+			blockinput.close();
+		}
+		return wantedBlocks[0];
+	}
+}
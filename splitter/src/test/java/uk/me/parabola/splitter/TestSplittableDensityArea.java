@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2026 by the splitter contributors
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License version 3 or
+ * version 2 as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * General Public License for more details.
+ */
+
+package uk.me.parabola.splitter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the search of a split with several partitions.
+ */
+public class TestSplittableDensityArea {
+
+	/**
+	 * A small partition ends with searchAll set, the following large
+	 * partition starts with it. The number of areas is the one found when
+	 * all partitions were solved by one instance.
+	 */
+	@Test
+	public void testPartitionsWithThreads() {
+		List<Area> expected = split(1);
+		Assertions.assertEquals(973, expected.size());
+		Assertions.assertEquals(expected.toString(), split(4).toString());
+	}
+
+	private static List<Area> split(int threads) {
+		DensityMap densityMap = new DensityMap(new Area(0, 0, 0x80000, 0x80000), 13);
+		Random random = new Random(42);
+		// small and large clusters, separated by empty areas
+		int[][] clusters = { { 0, 0x2000, 20000 }, { 0x20000, 0x18000, 1_100_000 }, { 0x40000, 0x2000, 15000 },
+				{ 0x60000, 0x18000, 1_200_000 } };
+		for (int[] c : clusters) {
+			for (int i = 0; i < c[2]; i++) {
+				int lat = c[0] + random.nextInt(c[1]);
+				int lon = random.nextInt(c[1]);
+				densityMap.addNode(lat, lon);
+			}
+		}
+		SplittableDensityArea splittableArea = new SplittableDensityArea(densityMap, 200000);
+		splittableArea.setMaxNodes(3000);
+		splittableArea.setMaxThreads(threads);
+		return splittableArea.split(Collections.emptyList());
+	}
+}